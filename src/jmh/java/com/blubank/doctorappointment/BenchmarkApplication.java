@@ -0,0 +1,58 @@
+package com.blubank.doctorappointment;
+
+import com.blubank.doctorappointment.models.Doctor;
+import com.blubank.doctorappointment.payloads.requests.CreateDoctorDto;
+import com.blubank.doctorappointment.services.DoctorService;
+import com.blubank.doctorappointment.services.OverlapMode;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Boots the application against a private in-memory database for benchmarks that need the
+ * full persistence stack, and seeds doctors with a working day of slots each.
+ */
+public final class BenchmarkApplication {
+    public static final LocalDate FIRST_DAY = LocalDate.of(2030, 1, 7);
+
+    private BenchmarkApplication() {
+    }
+
+    public static ConfigurableApplicationContext start(String... extraArgs) {
+        List<String> args = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:benchmark-" + UUID.randomUUID() + ";MODE=Oracle",
+                "--spring.boot.admin.client.enabled=false",
+                "--logging.level.root=WARN",
+                // optimistic-lock conflicts are an expected outcome under contention
+                "--logging.level.org.hibernate.engine.jdbc.batch.internal.BatchingBatch=OFF"));
+        args.addAll(List.of(extraArgs));
+        return new SpringApplicationBuilder(DoctorAppointmentApplication.class)
+                .logStartupInfo(false)
+                .run(args.toArray(new String[0]));
+    }
+
+    /**
+     * Creates {@code doctors} doctors, each with {@code days} consecutive days of 09:00-17:00
+     * slots starting at {@link #FIRST_DAY}.
+     */
+    public static List<Doctor> seed(ConfigurableApplicationContext context, int doctors, int days) {
+        DoctorService doctorService = context.getBean(DoctorService.class);
+        List<Doctor> seeded = new ArrayList<>();
+        for (int d = 0; d < doctors; d++) {
+            CreateDoctorDto dto = new CreateDoctorDto();
+            dto.setName("Doctor " + d);
+            Doctor doctor = doctorService.create(dto);
+            for (int day = 0; day < days; day++) {
+                LocalDate date = FIRST_DAY.plusDays(day);
+                doctorService.addAppointments(doctor.getId(), date.atTime(9, 0), date.atTime(17, 0), OverlapMode.REJECT);
+            }
+            seeded.add(doctor);
+        }
+        return seeded;
+    }
+}
@@ -0,0 +1,68 @@
+package com.blubank.doctorappointment.loadtest;
+
+import com.blubank.doctorappointment.models.Appointment;
+import com.blubank.doctorappointment.models.Doctor;
+import com.blubank.doctorappointment.repositories.AppointmentRepository;
+import com.blubank.doctorappointment.repositories.DoctorRepository;
+import org.springframework.context.ApplicationContext;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Seeds doctors with 09:00-17:00 days of 30 minute slots straight through the repositories,
+ * one saveAll per doctor so inserts are batched.
+ */
+class DatasetSeeder {
+    static final LocalDate FIRST_DAY = LocalDate.of(2030, 1, 7);
+
+    private final DoctorRepository doctorRepository;
+    private final AppointmentRepository appointmentRepository;
+
+    DatasetSeeder(ApplicationContext context) {
+        this.doctorRepository = context.getBean(DoctorRepository.class);
+        this.appointmentRepository = context.getBean(AppointmentRepository.class);
+    }
+
+    /**
+     * @return the seeded dataset, with doctors in popularity rank order
+     */
+    Dataset seed(int doctors, int days) {
+        Dataset dataset = new Dataset(doctors, days);
+        for (int d = 0; d < doctors; d++) {
+            Doctor doctor = new Doctor();
+            doctor.setName("Doctor " + d);
+            doctor = doctorRepository.save(doctor);
+            List<Appointment> appointments = new ArrayList<>();
+            for (int day = 0; day < days; day++) {
+                LocalDateTime start = FIRST_DAY.plusDays(day).atTime(9, 0);
+                for (int slot = 0; slot < 16; slot++) {
+                    Appointment appointment = new Appointment();
+                    appointment.setDoctor(doctor);
+                    appointment.setStartTime(start.plusMinutes(30L * slot));
+                    appointment.setEndTime(start.plusMinutes(30L * (slot + 1)));
+                    appointments.add(appointment);
+                }
+            }
+            long[] slotIds = appointmentRepository.saveAll(appointments).stream()
+                    .mapToLong(Appointment::getId).toArray();
+            dataset.doctorIds[d] = doctor.getId();
+            dataset.slotIds[d] = slotIds;
+        }
+        return dataset;
+    }
+
+    static class Dataset {
+        final int days;
+        final long[] doctorIds;
+        final long[][] slotIds;
+
+        Dataset(int doctors, int days) {
+            this.days = days;
+            this.doctorIds = new long[doctors];
+            this.slotIds = new long[doctors][];
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.blubank.doctorappointment.loadtest;
+
+import com.blubank.doctorappointment.BenchmarkApplication;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.format.DateTimeFormatter;
+import java.time.format.FormatStyle;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * End-to-end HTTP load test. It boots the application on a random port, seeds the dataset
+ * through the repositories and drives a mixed open-model workload at it: requests are sent
+ * on an arrival schedule regardless of how fast responses come back, and doctors are picked
+ * with a Zipf skew toward the popular ones.
+ * <p>
+ * Run with {@code mvn -Pbenchmark -DskipTests test-compile exec:exec@load-test -Dload.args="rate=500"};
+ * see {@link LoadTestOptions} for the keys. The report is printed and written as JSON. JVM options
+ * of the booted application go in {@code -Dload.jvm.args}; comparing a run with
+ * {@code -Dload.jvm.args="-Dappointment.execution.virtual-threads=true"} on a Java 21 runtime
+ * against one without gives the platform versus virtual thread latencies.
+ * <p>
+ * With {@code api=reactive} the application runs with the {@code reactive} profile and the
+ * availability and doctor-day requests go to the R2DBC endpoints under {@code /v1/reactive}.
+ * The report includes the CPU time the process used while measuring and the throughput per
+ * CPU-second, so a run with {@code api=blocking} and one with {@code api=reactive} at the same
+ * rate compare throughput per core. The load generator shares the process and its share of the
+ * CPU is the same in both runs.
+ */
+public class LoadTest {
+    // the day views bind their date with the default short format of the server's locale
+    private static final DateTimeFormatter DATE_PARAM = DateTimeFormatter.ofLocalizedDateTime(FormatStyle.SHORT);
+
+    private final LoadTestOptions options;
+    private final DatasetSeeder.Dataset dataset;
+    private final String baseUrl;
+    private final ZipfSampler doctorSampler;
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+    private final Map<Operation, OperationStats> stats = new EnumMap<>(Operation.class);
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    LoadTest(LoadTestOptions options, DatasetSeeder.Dataset dataset, String baseUrl) {
+        this.options = options;
+        this.dataset = dataset;
+        this.baseUrl = baseUrl;
+        this.doctorSampler = new ZipfSampler(dataset.doctorIds.length, options.skew);
+        this.operations = options.mix.keySet().toArray(new Operation[0]);
+        this.cumulativeWeights = new int[operations.length];
+        int sum = 0;
+        for (int i = 0; i < operations.length; i++) {
+            sum += options.mix.get(operations[i]);
+            cumulativeWeights[i] = sum;
+        }
+        for (Operation operation : Operation.values()) {
+            stats.put(operation, new OperationStats(operation));
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = new LoadTestOptions(args);
+        String[] profile = options.reactive ? new String[]{"--spring.profiles.active=reactive"} : new String[0];
+        try (ConfigurableApplicationContext context = BenchmarkApplication.start(profile)) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            System.out.println("Seeding " + options.doctors + " doctors x " + options.days + " days");
+            DatasetSeeder.Dataset dataset = new DatasetSeeder(context).seed(options.doctors, options.days);
+            System.out.println("Running " + options);
+            Map<String, Object> report = new LoadTest(options, dataset, "http://localhost:" + port).run();
+            print(report);
+            File output = new File(options.output);
+            new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(output, report);
+            System.out.println("Report written to " + output.getAbsolutePath());
+        }
+    }
+
+    Map<String, Object> run() throws InterruptedException {
+        Semaphore inFlight = new Semaphore(options.maxInFlight);
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / options.rate);
+        long start = System.nanoTime();
+        long measureFrom = start + TimeUnit.SECONDS.toNanos(options.warmupSeconds);
+        long end = measureFrom + TimeUnit.SECONDS.toNanos(options.durationSeconds);
+        long next = start;
+        long cpuFrom = -1;
+        while (next < end) {
+            if (cpuFrom < 0 && next >= measureFrom) cpuFrom = processCpuNanos();
+            long wait = next - System.nanoTime();
+            if (wait > 0) LockSupport.parkNanos(wait);
+            Operation operation = nextOperation();
+            OperationStats target = next >= measureFrom ? stats.get(operation) : null;
+            if (!inFlight.tryAcquire()) {
+                if (target != null) target.dropped();
+            } else {
+                long intended = next;
+                client.sendAsync(request(operation), HttpResponse.BodyHandlers.discarding())
+                        .whenComplete((response, failure) -> {
+                            inFlight.release();
+                            if (target == null) return;
+                            long latency = System.nanoTime() - intended;
+                            if (failure != null) target.failed(latency);
+                            else target.record(response.statusCode(), latency);
+                        });
+            }
+            next += options.poisson
+                    ? (long) (-Math.log(1 - ThreadLocalRandom.current().nextDouble()) * intervalNanos)
+                    : intervalNanos;
+        }
+        if (!inFlight.tryAcquire(options.maxInFlight, 1, TimeUnit.MINUTES)) {
+            System.out.println("Gave up waiting for " + (options.maxInFlight - inFlight.availablePermits())
+                    + " outstanding requests");
+        }
+        if (cpuFrom < 0) cpuFrom = processCpuNanos();
+        return report((processCpuNanos() - cpuFrom) / 1e9);
+    }
+
+    private static long processCpuNanos() {
+        return ((com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean())
+                .getProcessCpuTime();
+    }
+
+    private Map<String, Object> report(double cpuSeconds) {
+        double seconds = options.durationSeconds;
+        List<Map<String, Object>> operationSummaries = new ArrayList<>();
+        long total = 0;
+        for (Operation operation : operations) {
+            Map<String, Object> summary = stats.get(operation).summary(seconds);
+            total += (long) summary.get("count");
+            operationSummaries.add(summary);
+        }
+        long bookings = operationSummaries.stream()
+                .filter(summary -> summary.get("operation").equals(Operation.BOOK.label()))
+                .mapToLong(summary -> (long) summary.get("count"))
+                .sum();
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("options", options.toString());
+        report.put("throughput", total / seconds);
+        report.put("cpuSeconds", cpuSeconds);
+        report.put("throughputPerCpuSecond", cpuSeconds == 0 ? 0.0 : total / cpuSeconds);
+        report.put("conflictRate", bookings == 0 ? 0.0 : (double) stats.get(Operation.BOOK).conflicts() / bookings);
+        report.put("operations", operationSummaries);
+        return report;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void print(Map<String, Object> report) {
+        System.out.printf("%-13s %8s %9s %7s %7s %8s %7s %7s %9s %9s %9s %9s %9s%n", "operation", "count",
+                "ops/s", "ok", "taken", "conflict", "errors", "dropped", "p50 ms", "p90 ms", "p99 ms",
+                "p99.9 ms", "max ms");
+        for (Map<String, Object> s : (List<Map<String, Object>>) report.get("operations")) {
+            System.out.printf("%-13s %8d %9.1f %7d %7d %8d %7d %7d %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                    s.get("operation"), s.get("count"), s.get("throughput"), s.get("ok"), s.get("alreadyTaken"),
+                    s.get("conflict"), s.get("errors"), s.get("dropped"), s.get("p50Ms"), s.get("p90Ms"),
+                    s.get("p99Ms"), s.get("p999Ms"), s.get("maxMs"));
+        }
+        System.out.printf("total throughput %.1f ops/s, booking conflict rate %.2f%%%n",
+                report.get("throughput"), 100 * (double) report.get("conflictRate"));
+        System.out.printf("process cpu %.1f s, %.1f ops per cpu-second%n",
+                report.get("cpuSeconds"), report.get("throughputPerCpuSecond"));
+    }
+
+    private Operation nextOperation() {
+        int pick = ThreadLocalRandom.current().nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < operations.length; i++) {
+            if (pick < cumulativeWeights[i]) return operations[i];
+        }
+        return operations[operations.length - 1];
+    }
+
+    private HttpRequest request(Operation operation) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int doctor = doctorSampler.next();
+        String date = URLEncoder.encode(DATE_PARAM.format(
+                DatasetSeeder.FIRST_DAY.plusDays(random.nextInt(dataset.days)).atStartOfDay()), StandardCharsets.UTF_8);
+        switch (operation) {
+            case AVAILABILITY:
+                return get(readPrefix() + "/patient/doctor/" + dataset.doctorIds[doctor] + "/appointments?date=" + date);
+            case DOCTOR_DAY:
+                return get(readPrefix() + "/doctor/" + dataset.doctorIds[doctor] + "/appointments?date=" + date);
+            case BOOK:
+                long[] slots = dataset.slotIds[doctor];
+                int patient = random.nextInt(options.patients);
+                String body = "{\"name\":\"Patient " + patient + "\","
+                        + "\"phone\":\"" + String.format("0912%07d", patient) + "\"}";
+                long slotId = slots[random.nextInt(slots.length)];
+                return HttpRequest.newBuilder(URI.create(baseUrl + "/v1/patient/appointments/" + slotId))
+                        .timeout(Duration.ofSeconds(30))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(body))
+                        .build();
+            default:
+                throw new IllegalArgumentException(operation.name());
+        }
+    }
+
+    private String readPrefix() {
+        return options.reactive ? "/v1/reactive" : "/v1";
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(30))
+                .GET()
+                .build();
+    }
+}
@@ -0,0 +1,85 @@
+package com.blubank.doctorappointment.loadtest;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Load test settings, given as {@code key=value} arguments. Unknown keys are rejected so a
+ * typo never silently runs the defaults.
+ */
+class LoadTestOptions {
+    final int doctors;
+    final int days;
+    final double rate;
+    final int durationSeconds;
+    final int warmupSeconds;
+    final double skew;
+    final int patients;
+    final int maxInFlight;
+    final boolean poisson;
+    final Map<Operation, Integer> mix;
+    final String output;
+    final boolean reactive;
+
+    LoadTestOptions(String... args) {
+        Map<String, String> values = new HashMap<>();
+        values.put("doctors", "50");
+        values.put("days", "14");
+        values.put("rate", "200");
+        values.put("duration", "60");
+        values.put("warmup", "10");
+        values.put("skew", "1.1");
+        values.put("patients", "10000");
+        values.put("max-in-flight", "1000");
+        values.put("arrivals", "poisson");
+        values.put("mix", "availability:70,book:20,doctor-day:10");
+        values.put("output", "target/load-test-result.json");
+        values.put("api", "blocking");
+        for (String arg : args) {
+            String[] pair = arg.replaceFirst("^--", "").split("=", 2);
+            if (pair.length != 2 || !values.containsKey(pair[0])) {
+                throw new IllegalArgumentException("Unknown load test option: " + arg);
+            }
+            values.put(pair[0], pair[1]);
+        }
+        doctors = Integer.parseInt(values.get("doctors"));
+        days = Integer.parseInt(values.get("days"));
+        rate = Double.parseDouble(values.get("rate"));
+        durationSeconds = Integer.parseInt(values.get("duration"));
+        warmupSeconds = Integer.parseInt(values.get("warmup"));
+        skew = Double.parseDouble(values.get("skew"));
+        patients = Integer.parseInt(values.get("patients"));
+        maxInFlight = Integer.parseInt(values.get("max-in-flight"));
+        poisson = values.get("arrivals").equals("poisson");
+        mix = parseMix(values.get("mix"));
+        output = values.get("output");
+        reactive = parseApi(values.get("api"));
+    }
+
+    private static boolean parseApi(String value) {
+        if (!value.equals("blocking") && !value.equals("reactive")) {
+            throw new IllegalArgumentException("api must be blocking or reactive: " + value);
+        }
+        return value.equals("reactive");
+    }
+
+    private static Map<Operation, Integer> parseMix(String value) {
+        Map<Operation, Integer> mix = new LinkedHashMap<>();
+        for (String part : value.split(",")) {
+            String[] pair = part.split(":");
+            mix.put(Operation.fromName(pair[0].trim()), Integer.parseInt(pair[1].trim()));
+        }
+        if (mix.values().stream().mapToInt(Integer::intValue).sum() <= 0) {
+            throw new IllegalArgumentException("mix needs at least one positive weight");
+        }
+        return mix;
+    }
+
+    @Override
+    public String toString() {
+        return "doctors=" + doctors + " days=" + days + " rate=" + rate + "/s duration=" + durationSeconds
+                + "s warmup=" + warmupSeconds + "s skew=" + skew + " arrivals=" + (poisson ? "poisson" : "uniform")
+                + " mix=" + mix + " api=" + (reactive ? "reactive" : "blocking");
+    }
+}
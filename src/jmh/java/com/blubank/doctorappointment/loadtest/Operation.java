@@ -0,0 +1,30 @@
+package com.blubank.doctorappointment.loadtest;
+
+/**
+ * The request types in the traffic mix.
+ */
+enum Operation {
+    /** GET /v1/patient/doctor/{doctorId}/appointments, or its /v1/reactive variant */
+    AVAILABILITY("availability"),
+    /** POST /v1/patient/appointments/{appointmentId} */
+    BOOK("book"),
+    /** GET /v1/doctor/{doctorId}/appointments, or its /v1/reactive variant */
+    DOCTOR_DAY("doctor-day");
+
+    private final String label;
+
+    Operation(String label) {
+        this.label = label;
+    }
+
+    String label() {
+        return label;
+    }
+
+    static Operation fromName(String label) {
+        for (Operation operation : values()) {
+            if (operation.label.equals(label)) return operation;
+        }
+        throw new IllegalArgumentException("Unknown operation in mix: " + label);
+    }
+}
@@ -0,0 +1,78 @@
+package com.blubank.doctorappointment.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Outcomes and latencies of one operation type. Latency runs from the intended send time, so
+ * time spent queued behind a slow server is measured instead of hidden.
+ */
+class OperationStats {
+    private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private final Operation operation;
+    private final Recorder latencies = new Recorder(MAX_LATENCY_MICROS, 3);
+    private final LongAdder ok = new LongAdder();
+    private final LongAdder alreadyTaken = new LongAdder();
+    private final LongAdder conflicts = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    OperationStats(Operation operation) {
+        this.operation = operation;
+    }
+
+    void record(int status, long latencyNanos) {
+        latencies.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(latencyNanos), MAX_LATENCY_MICROS));
+        if (status >= 200 && status < 300) {
+            ok.increment();
+        } else if (status == 409) {
+            conflicts.increment();
+        } else if (status == 400 && operation == Operation.BOOK) {
+            alreadyTaken.increment();
+        } else {
+            errors.increment();
+        }
+    }
+
+    void failed(long latencyNanos) {
+        latencies.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(latencyNanos), MAX_LATENCY_MICROS));
+        errors.increment();
+    }
+
+    void dropped() {
+        dropped.increment();
+    }
+
+    long conflicts() {
+        return conflicts.sum() + alreadyTaken.sum();
+    }
+
+    Map<String, Object> summary(double seconds) {
+        Histogram histogram = latencies.getIntervalHistogram();
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("operation", operation.label());
+        summary.put("count", histogram.getTotalCount());
+        summary.put("throughput", histogram.getTotalCount() / seconds);
+        summary.put("ok", ok.sum());
+        summary.put("alreadyTaken", alreadyTaken.sum());
+        summary.put("conflict", conflicts.sum());
+        summary.put("errors", errors.sum());
+        summary.put("dropped", dropped.sum());
+        summary.put("p50Ms", millis(histogram.getValueAtPercentile(50)));
+        summary.put("p90Ms", millis(histogram.getValueAtPercentile(90)));
+        summary.put("p99Ms", millis(histogram.getValueAtPercentile(99)));
+        summary.put("p999Ms", millis(histogram.getValueAtPercentile(99.9)));
+        summary.put("maxMs", millis(histogram.getMaxValue()));
+        return summary;
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+}
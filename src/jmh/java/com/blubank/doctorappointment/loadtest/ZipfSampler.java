@@ -0,0 +1,29 @@
+package com.blubank.doctorappointment.loadtest;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Samples ranks 0..n-1 with probability proportional to 1 / (rank + 1)^skew, so low ranks are
+ * the popular doctors. A skew of 0 is uniform.
+ */
+class ZipfSampler {
+    private final double[] cumulative;
+
+    ZipfSampler(int n, double skew) {
+        cumulative = new double[n];
+        double sum = 0;
+        for (int rank = 0; rank < n; rank++) {
+            sum += 1 / Math.pow(rank + 1, skew);
+            cumulative[rank] = sum;
+        }
+        for (int rank = 0; rank < n; rank++) {
+            cumulative[rank] /= sum;
+        }
+    }
+
+    int next() {
+        int index = Arrays.binarySearch(cumulative, ThreadLocalRandom.current().nextDouble());
+        return Math.min(index >= 0 ? index : -index - 1, cumulative.length - 1);
+    }
+}
@@ -0,0 +1,86 @@
+package com.blubank.doctorappointment.mappers;
+
+import com.blubank.doctorappointment.models.Appointment;
+import com.blubank.doctorappointment.models.Patient;
+import com.blubank.doctorappointment.payloads.responses.AppointmentRes;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Mapping a doctor's day to response DTOs, alone and followed by JSON serialization the
+ * way the controllers write it. Every other slot is booked.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AppointmentMapperBenchmark {
+
+    @Param({"48", "1000"})
+    private int appointments;
+
+    private List<Appointment> day;
+    private ObjectMapper objectMapper;
+
+    @Setup
+    public void setUp() {
+        Patient patient = new Patient();
+        patient.setId(1L);
+        patient.setName("Patient");
+        patient.setPhone("09120000000");
+        LocalDateTime start = LocalDateTime.of(2030, 1, 7, 0, 0);
+        day = new ArrayList<>(appointments);
+        for (int i = 0; i < appointments; i++) {
+            Appointment appointment = new Appointment();
+            appointment.setId((long) i);
+            appointment.setStartTime(start.plusMinutes(30L * i));
+            appointment.setEndTime(start.plusMinutes(30L * (i + 1)));
+            if (i % 2 == 0) appointment.setPatient(patient);
+            day.add(appointment);
+        }
+        objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    }
+
+    @Benchmark
+    public List<AppointmentRes> mapToPatientResponse() {
+        return day.stream().map(AppointmentMapper::mapToPatientResponse).collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<AppointmentRes> mapToDoctorResponse() {
+        return day.stream().map(AppointmentMapper::mapToDoctorResponse).collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public byte[] serializePatientResponse() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(mapToPatientResponse());
+    }
+
+    @Benchmark
+    public byte[] serializeDoctorResponse() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(mapToDoctorResponse());
+    }
+}
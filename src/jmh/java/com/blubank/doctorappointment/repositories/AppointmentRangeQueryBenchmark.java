@@ -0,0 +1,107 @@
+package com.blubank.doctorappointment.repositories;
+
+import com.blubank.doctorappointment.BenchmarkApplication;
+import com.blubank.doctorappointment.models.Appointment;
+import com.blubank.doctorappointment.models.Doctor;
+import com.blubank.doctorappointment.repositories.projections.AppointmentSlot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Indexed range reads over a seeded H2 database: 20 doctors with 60 days of slots each,
+ * every other slot booked by one of 100 patients. Each call picks a random doctor and day.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AppointmentRangeQueryBenchmark {
+    private static final int DOCTORS = 20;
+    private static final int DAYS = 60;
+    private static final int PATIENTS = 100;
+    private static final LocalDateTime FROM = BenchmarkApplication.FIRST_DAY.atStartOfDay();
+    private static final LocalDateTime TO = FROM.plusDays(DAYS);
+
+    private ConfigurableApplicationContext context;
+    private AppointmentRepository appointmentRepository;
+    private TransactionTemplate transactionTemplate;
+    private List<Doctor> doctors;
+    private long firstPatientId;
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+        context = BenchmarkApplication.start();
+        doctors = BenchmarkApplication.seed(context, DOCTORS, DAYS);
+        appointmentRepository = context.getBean(AppointmentRepository.class);
+        transactionTemplate = context.getBean(TransactionTemplate.class);
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        for (int i = 0; i < PATIENTS; i++) {
+            jdbcTemplate.update("insert into patient (name, phone) values (?, ?)",
+                    "Patient " + i, String.format("0912%07d", i));
+        }
+        firstPatientId = jdbcTemplate.queryForObject("select min(id) from patient", Long.class);
+        jdbcTemplate.update("update appointment set patient_id = ? + mod(id, ?) where mod(id, 2) = 0",
+                firstPatientId, PATIENTS);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Appointment> doctorDay() {
+        LocalDateTime day = randomDay();
+        // the day view streams its rows, which needs the transaction the export service runs in
+        return transactionTemplate.execute(status -> {
+            try (Stream<Appointment> appointments = appointmentRepository
+                    .streamDoctorAppointments(randomDoctor().getId(), day, day.plusDays(1))) {
+                return appointments.collect(Collectors.toList());
+            }
+        });
+    }
+
+    @Benchmark
+    public List<AppointmentSlot> openSlots() {
+        LocalDateTime day = randomDay();
+        return appointmentRepository.findOpenSlots(randomDoctor().getId(), day, day.plusDays(1));
+    }
+
+    @Benchmark
+    public Slice<Appointment> patientHistoryFirstPage() {
+        long patientId = firstPatientId + ThreadLocalRandom.current().nextInt(PATIENTS);
+        return appointmentRepository.findPatientHistory(patientId, FROM, TO, PageRequest.of(0, 50));
+    }
+
+    private Doctor randomDoctor() {
+        return doctors.get(ThreadLocalRandom.current().nextInt(DOCTORS));
+    }
+
+    private LocalDateTime randomDay() {
+        return FROM.plusDays(ThreadLocalRandom.current().nextInt(DAYS));
+    }
+}
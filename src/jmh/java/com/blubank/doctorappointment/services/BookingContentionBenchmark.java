@@ -0,0 +1,116 @@
+package com.blubank.doctorappointment.services;
+
+import com.blubank.doctorappointment.BenchmarkApplication;
+import com.blubank.doctorappointment.exceptions.BadRequestException;
+import com.blubank.doctorappointment.exceptions.ConflictException;
+import com.blubank.doctorappointment.payloads.requests.CreatePatientDto;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Concurrent {@link PatientService#bookAppointment} calls against the real persistence stack.
+ * Threads draw tickets from a shared cursor and {@code claimsPerSlot} consecutive tickets map
+ * to the same slot, so 1 measures uncontended booking and higher values make that many
+ * bookers race for each slot. {@code conditionalUpdate} switches between the read plus versioned
+ * write and the single conditional update. Booked, already-taken and conflict outcomes are
+ * reported as secondary results. Bookings are cleared before every iteration.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class BookingContentionBenchmark {
+    private static final int PATIENTS = 1_000;
+
+    @Param({"1", "4"})
+    private int claimsPerSlot;
+
+    @Param({"false", "true"})
+    private boolean conditionalUpdate;
+
+    private ConfigurableApplicationContext context;
+    private PatientService patientService;
+    private JdbcTemplate jdbcTemplate;
+    private long[] slotIds;
+    private CreatePatientDto[] patients;
+    private final AtomicLong tickets = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+        context = BenchmarkApplication.start("--appointment.booking.conditional-update=" + conditionalUpdate);
+        BenchmarkApplication.seed(context, 40, 30);
+        patientService = context.getBean(PatientService.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        List<Long> ids = jdbcTemplate.queryForList("select id from appointment order by id", Long.class);
+        slotIds = ids.stream().mapToLong(Long::longValue).toArray();
+        patients = new CreatePatientDto[PATIENTS];
+        for (int i = 0; i < PATIENTS; i++) {
+            CreatePatientDto dto = new CreatePatientDto();
+            dto.setName("Patient " + i);
+            dto.setPhone(String.format("0912%07d", i));
+            patients[i] = dto;
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void clearBookings() {
+        jdbcTemplate.update("update appointment set patient_id = null, version = version + 1");
+        tickets.set(0);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        context.close();
+    }
+
+    @Benchmark
+    public void bookAppointment(Outcomes outcomes) {
+        long ticket = tickets.getAndIncrement();
+        long slotId = slotIds[(int) ((ticket / claimsPerSlot) % slotIds.length)];
+        try {
+            patientService.bookAppointment(slotId, patients[(int) (ticket % PATIENTS)]);
+            outcomes.booked++;
+        } catch (BadRequestException e) {
+            outcomes.alreadyTaken++;
+        } catch (ConflictException e) {
+            outcomes.conflict++;
+        }
+    }
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Outcomes {
+        public long booked;
+        public long alreadyTaken;
+        public long conflict;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            booked = 0;
+            alreadyTaken = 0;
+            conflict = 0;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.blubank.doctorappointment.services;
+
+import com.blubank.doctorappointment.mappers.AppointmentMapper;
+import com.blubank.doctorappointment.payloads.responses.AppointmentRes;
+import com.blubank.doctorappointment.repositories.projections.AppointmentSlot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * A cached day of open slots as the former list of {@link AppointmentSlot}s against the packed
+ * {@link DaySchedule}: the serialization round trip Hazelcast performs for backups and remote
+ * reads, and mapping to the API shape. Run with {@code -prof gc} for the allocation per
+ * operation; the serialized sizes are printed at setup.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DayScheduleBenchmark {
+
+    @Param({"16", "48"})
+    private int slots;
+
+    private ArrayList<AppointmentSlot> slotList;
+    private DaySchedule schedule;
+    private byte[] serializedList;
+    private byte[] serializedSchedule;
+
+    @Setup
+    public void setUp() throws IOException {
+        LocalDate day = LocalDate.of(2030, 1, 7);
+        LocalDateTime start = day.atTime(0, 0);
+        slotList = new ArrayList<>(slots);
+        for (int i = 0; i < slots; i++) {
+            slotList.add(new AppointmentSlot(1_000L + i, start.plusMinutes(30L * i), start.plusMinutes(30L * (i + 1))));
+        }
+        schedule = DaySchedule.of(day, slotList);
+        serializedList = serialize(slotList);
+        serializedSchedule = serialize(schedule);
+        System.out.printf("%n%d slots serialized: list %d bytes, schedule %d bytes%n",
+                slots, serializedList.length, serializedSchedule.length);
+    }
+
+    @Benchmark
+    public byte[] serializeList() throws IOException {
+        return serialize(slotList);
+    }
+
+    @Benchmark
+    public byte[] serializeSchedule() throws IOException {
+        return serialize(schedule);
+    }
+
+    @Benchmark
+    public Object deserializeList() throws IOException, ClassNotFoundException {
+        return deserialize(serializedList);
+    }
+
+    @Benchmark
+    public Object deserializeSchedule() throws IOException, ClassNotFoundException {
+        return deserialize(serializedSchedule);
+    }
+
+    @Benchmark
+    public List<AppointmentRes> mapList() {
+        return slotList.stream()
+                .map(slot -> AppointmentRes.builder()
+                        .id(slot.getId())
+                        .isTaken(false)
+                        .startTime(slot.getStartTime())
+                        .endTime(slot.getEndTime())
+                        .build())
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<AppointmentRes> mapSchedule() {
+        return AppointmentMapper.mapToPatientResponses(schedule);
+    }
+
+    private static byte[] serialize(Object value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(value);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Object deserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return in.readObject();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.blubank.doctorappointment.services;
+
+import com.blubank.doctorappointment.models.Appointment;
+import com.blubank.doctorappointment.models.Doctor;
+import com.blubank.doctorappointment.models.SlotPolicy;
+import com.blubank.doctorappointment.repositories.AppointmentRepository;
+import com.blubank.doctorappointment.repositories.DoctorRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.mockito.AdditionalAnswers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Cost of expanding an appointment window into slots of the default policy, without the database:
+ * the repository hands the built list straight back.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SlotExpansionBenchmark {
+
+    @Param({"1", "8", "24"})
+    private int windowHours;
+
+    private AppointmentService appointmentService;
+    private Doctor doctor;
+    private SlotPolicy policy;
+    private LocalDateTime start;
+    private LocalDateTime end;
+
+    @Setup
+    public void setUp() {
+        // stub-only mocks keep no invocation history, so memory stays flat over millions of calls
+        AppointmentRepository repository = mock(AppointmentRepository.class, withSettings().stubOnly());
+        when(repository.saveAll(anyList())).then(AdditionalAnswers.returnsFirstArg());
+        AvailabilityCache availabilityCache = mock(AvailabilityCache.class, withSettings().stubOnly());
+        doctor = new Doctor();
+        doctor.setId(1L);
+        DoctorRepository doctorRepository = mock(DoctorRepository.class, withSettings().stubOnly());
+        when(doctorRepository.lockById(1L)).thenReturn(Optional.of(doctor));
+        appointmentService = new AppointmentService(repository, doctorRepository, availabilityCache,
+                new AppointmentMetrics(new SimpleMeterRegistry()),
+                mock(DoctorDaySummaryService.class, withSettings().stubOnly()), new SlotGenerator(1));
+        policy = SlotPolicy.defaults(1L);
+        start = LocalDateTime.of(2030, 1, 7, 0, 0);
+        end = start.plusHours(windowHours);
+    }
+
+    @Benchmark
+    public List<Appointment> addAppointments() {
+        return appointmentService.addAppointments(doctor, policy, start, end, OverlapMode.REJECT);
+    }
+}
@@ -0,0 +1,75 @@
+package com.blubank.doctorappointment.services;
+
+import com.blubank.doctorappointment.models.Appointment;
+import com.blubank.doctorappointment.models.BreakWindow;
+import com.blubank.doctorappointment.models.Doctor;
+import com.blubank.doctorappointment.models.SlotPolicy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generating one million slots, without the database: 1000 doctors with 25 days of
+ * 08:00-16:30 windows, 12 minute slots and a 12:00-12:30 break, 40 slots per window.
+ * {@code parallelism} 0 uses one thread per available processor.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class SlotGeneratorBenchmark {
+    private static final int DOCTORS = 1000;
+    private static final int DAYS = 25;
+
+    @Param({"1", "0"})
+    private int parallelism;
+
+    private SlotGenerator slotGenerator;
+    private List<SlotGenerator.Request> requests;
+
+    @Setup
+    public void setUp() {
+        slotGenerator = new SlotGenerator(parallelism);
+        LocalDate firstDay = LocalDate.of(2030, 1, 7);
+        requests = new ArrayList<>(DOCTORS * DAYS);
+        for (long id = 1; id <= DOCTORS; id++) {
+            Doctor doctor = new Doctor();
+            doctor.setId(id);
+            SlotPolicy policy = SlotPolicy.defaults(id);
+            policy.setSlotMinutes(12);
+            policy.getBreaks().add(new BreakWindow(LocalTime.of(12, 0), LocalTime.of(12, 30)));
+            for (int day = 0; day < DAYS; day++) {
+                LocalDate date = firstDay.plusDays(day);
+                requests.add(new SlotGenerator.Request(doctor, policy, date.atTime(8, 0), date.atTime(16, 30)));
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        slotGenerator.shutdown();
+    }
+
+    @Benchmark
+    public List<List<Appointment>> generateAll() {
+        return slotGenerator.generateAll(requests);
+    }
+}
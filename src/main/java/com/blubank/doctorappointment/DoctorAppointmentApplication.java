@@ -3,8 +3,10 @@ package com.blubank.doctorappointment;
 import de.codecentric.boot.admin.server.config.EnableAdminServer;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @EnableAdminServer
+@EnableScheduling
 @SpringBootApplication
 public class DoctorAppointmentApplication {
 
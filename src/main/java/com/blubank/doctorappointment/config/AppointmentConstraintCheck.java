@@ -0,0 +1,98 @@
+package com.blubank.doctorappointment.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Makes sure the unique (doctor_id, start_time) constraint of appointments exists before the
+ * application serves requests. The schema is only maintained by Hibernate's update, which skips
+ * a unique constraint quietly when existing rows violate it, so a database holding duplicate
+ * slots from before the constraint would run without it.
+ * <p>
+ * When the constraint is missing, duplicate open slots are deleted, keeping the booked row of a
+ * start time or else its oldest row, the day summaries of the affected doctors are queued for a
+ * recount and the constraint is added. Startup fails when a start time is booked more than once,
+ * when the dedup is switched off or when the constraint still cannot be created.
+ */
+@Slf4j
+@Component
+@DependsOn("entityManagerFactory")
+public class AppointmentConstraintCheck {
+    static final String CONSTRAINT = "uk_appointment_doctor_start";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean dedupOnStartup;
+
+    public AppointmentConstraintCheck(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                                      @Value("${appointment.schema.dedup-on-startup:true}") boolean dedupOnStartup) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.dedupOnStartup = dedupOnStartup;
+    }
+
+    @PostConstruct
+    public void verify() {
+        if (hasConstraint()) return;
+        if (!dedupOnStartup)
+            throw new IllegalStateException(CONSTRAINT + " is missing; set appointment.schema.dedup-on-startup=true"
+                    + " to remove duplicate open slots and add it");
+        Integer removed = transactionTemplate.execute(status -> removeDuplicates());
+        jdbcTemplate.execute("alter table appointment add constraint " + CONSTRAINT + " unique (doctor_id, start_time)");
+        if (!hasConstraint())
+            throw new IllegalStateException(CONSTRAINT + " could not be added");
+        log.warn("Removed {} duplicate open appointment slots and added {}", removed, CONSTRAINT);
+    }
+
+    private int removeDuplicates() {
+        Integer doubleBooked = jdbcTemplate.queryForObject("select count(*) from (select doctor_id, start_time" +
+                " from appointment where patient_id is not null group by doctor_id, start_time having count(*) > 1) d",
+                Integer.class);
+        if (doubleBooked != null && doubleBooked > 0)
+            throw new IllegalStateException(doubleBooked + " appointment start times are booked more than once;"
+                    + " resolve them before " + CONSTRAINT + " can be added");
+        List<Long> doctorIds = jdbcTemplate.queryForList("select distinct doctor_id from appointment" +
+                " group by doctor_id, start_time having count(*) > 1", Long.class);
+        int removed = jdbcTemplate.update("delete from appointment a where a.patient_id is null and exists" +
+                " (select 1 from appointment b where b.doctor_id = a.doctor_id and b.start_time = a.start_time" +
+                " and (b.patient_id is not null or b.id < a.id))");
+        for (Long doctorId : doctorIds) {
+            jdbcTemplate.update("update doctor_day_summary set pending_changes = pending_changes + 1 where doctor_id = ?",
+                    doctorId);
+        }
+        return removed;
+    }
+
+    private boolean hasConstraint() {
+        return Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            DatabaseMetaData metaData = connection.getMetaData();
+            String table = metaData.storesUpperCaseIdentifiers() ? "APPOINTMENT" : "appointment";
+            Map<String, Set<String>> uniqueIndexes = new HashMap<>();
+            try (ResultSet columns = metaData.getIndexInfo(connection.getCatalog(), connection.getSchema(), table,
+                    true, false)) {
+                while (columns.next()) {
+                    String index = columns.getString("INDEX_NAME");
+                    String column = columns.getString("COLUMN_NAME");
+                    if (index != null && column != null) {
+                        uniqueIndexes.computeIfAbsent(index, k -> new HashSet<>()).add(column.toLowerCase());
+                    }
+                }
+            }
+            return uniqueIndexes.containsValue(Set.of("doctor_id", "start_time"));
+        }));
+    }
+}
@@ -0,0 +1,24 @@
+package com.blubank.doctorappointment.config;
+
+import org.hibernate.dialect.H2Dialect;
+import org.hibernate.dialect.function.StandardSQLFunction;
+import org.hibernate.dialect.pagination.LimitHandler;
+import org.hibernate.dialect.pagination.SQL2008StandardLimitHandler;
+import org.hibernate.type.StandardBasicTypes;
+
+/**
+ * H2 dialect for a database running in {@code MODE=Oracle}, which rejects {@code LIMIT};
+ * paginated queries use the standard {@code OFFSET ... FETCH} clause instead. {@code bitand}
+ * is registered as Oracle's dialect has it, so queries using it run on both.
+ */
+public class H2OracleModeDialect extends H2Dialect {
+
+    public H2OracleModeDialect() {
+        registerFunction("bitand", new StandardSQLFunction("bitand", StandardBasicTypes.LONG));
+    }
+
+    @Override
+    public LimitHandler getLimitHandler() {
+        return SQL2008StandardLimitHandler.INSTANCE;
+    }
+}
@@ -1,17 +1,24 @@
 package com.blubank.doctorappointment.config;
 
+import com.blubank.doctorappointment.services.AvailabilityCache;
+import com.blubank.doctorappointment.services.HazelcastSlotClaimEngine;
 import com.hazelcast.config.*;
 import com.hazelcast.spi.merge.PutIfAbsentMergePolicy;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
-import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 @Configuration
 public class HazelcastConfig {
 
     @Bean
-    public Config hazelcast() {
+    public Config hazelcast(@Value("${appointment.availability.cache.ttl-seconds:60}") int availabilityTtlSeconds,
+                            @Value("${appointment.hazelcast.cluster-name:doctor-appointment}") String clusterName,
+                            @Value("${appointment.hazelcast.members:127.0.0.1}") List<String> members,
+                            @Value("${appointment.booking.claim-ttl-seconds:86400}") int claimTtlSeconds) {
         MapConfig eventStoreMap = new MapConfig("spring-boot-admin-event-store")
                 .setInMemoryFormat(InMemoryFormat.OBJECT)
                 .setBackupCount(1)
@@ -26,9 +33,36 @@ public class HazelcastConfig {
                         .setMaxSizePolicy(MaxSizePolicy.PER_NODE))
                 .setMergePolicyConfig(new MergePolicyConfig(PutIfAbsentMergePolicy.class.getName(), 100));
 
+        MapConfig availabilityMap = new MapConfig(AvailabilityCache.SLOTS_MAP)
+                .setInMemoryFormat(InMemoryFormat.OBJECT)
+                .setBackupCount(1)
+                .setTimeToLiveSeconds(availabilityTtlSeconds)
+                .setEvictionConfig(new EvictionConfig().setEvictionPolicy(EvictionPolicy.LRU)
+                        .setMaxSizePolicy(MaxSizePolicy.PER_NODE).setSize(100_000))
+                .setNearCacheConfig(new NearCacheConfig()
+                        .setInMemoryFormat(InMemoryFormat.OBJECT)
+                        .setInvalidateOnChange(true)
+                        .setTimeToLiveSeconds(availabilityTtlSeconds));
+
+        // versions must outlive the cached days that reference them, so they are only idle-evicted
+        MapConfig availabilityVersionMap = new MapConfig(AvailabilityCache.VERSIONS_MAP)
+                .setInMemoryFormat(InMemoryFormat.OBJECT)
+                .setBackupCount(1)
+                .setMaxIdleSeconds(AvailabilityCache.VERSION_MAX_IDLE_SECONDS);
+
+        // claims are never evicted for space, only expired; each claim sets its own ttl and this is the fallback
+        MapConfig slotClaimsMap = new MapConfig(HazelcastSlotClaimEngine.CLAIMS_MAP)
+                .setInMemoryFormat(InMemoryFormat.OBJECT)
+                .setBackupCount(1)
+                .setTimeToLiveSeconds(claimTtlSeconds);
+
         Config config = new Config();
+        config.setClusterName(clusterName);
         config.addMapConfig(eventStoreMap);
         config.addMapConfig(sentNotificationsMap);
+        config.addMapConfig(availabilityMap);
+        config.addMapConfig(availabilityVersionMap);
+        config.addMapConfig(slotClaimsMap);
         config.setProperty("hazelcast.jmx", "true");
 
         config.getNetworkConfig()
@@ -39,7 +73,7 @@ public class HazelcastConfig {
                 .getJoin()
                 .getTcpIpConfig();
         tcpIpConfig.setEnabled(true);
-        tcpIpConfig.setMembers(Collections.singletonList("127.0.0.1"));
+        tcpIpConfig.setMembers(members);
         return config;
     }
 }
\ No newline at end of file
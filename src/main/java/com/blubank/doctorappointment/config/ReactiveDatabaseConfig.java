@@ -0,0 +1,66 @@
+package com.blubank.doctorappointment.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.r2dbc.h2.H2ConnectionConfiguration;
+import io.r2dbc.h2.H2ConnectionFactory;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+import javax.sql.DataSource;
+
+/**
+ * Database access of the {@code reactive} profile: an R2DBC connection pool on the same H2
+ * database that JPA uses, for the non-blocking availability reads.
+ * <p>
+ * Boot backs off its JDBC {@link DataSource} auto-configuration as soon as a
+ * {@link ConnectionFactory} bean exists, so the profile declares the data source itself, bound to
+ * the same {@code spring.datasource} properties. Boot's own R2DBC auto-configuration is excluded
+ * in application.properties, so without the profile the data source is configured as before.
+ */
+@Profile("reactive")
+@Configuration
+@EnableConfigurationProperties(DataSourceProperties.class)
+public class ReactiveDatabaseConfig {
+    private static final String H2_URL_PREFIX = "jdbc:h2:";
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource dataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    /**
+     * Pooled H2 connections to the database of {@code spring.datasource.url}; an in-memory
+     * database is shared with the JDBC pool as long as both run in the same JVM.
+     */
+    @Bean(destroyMethod = "dispose")
+    public ConnectionPool connectionFactory(DataSourceProperties properties,
+                                            @Value("${appointment.reactive.pool-size:10}") int poolSize) {
+        String url = properties.determineUrl();
+        if (url == null || !url.startsWith(H2_URL_PREFIX))
+            throw new IllegalStateException("The reactive profile reads through the R2DBC H2 driver and needs an"
+                    + " H2 spring.datasource.url, found " + url);
+        H2ConnectionConfiguration.Builder configuration = H2ConnectionConfiguration.builder()
+                .url(url.substring(H2_URL_PREFIX.length()))
+                .username(properties.determineUsername());
+        String password = properties.determinePassword();
+        if (password != null) configuration.password(password);
+        return new ConnectionPool(ConnectionPoolConfiguration.builder(new H2ConnectionFactory(configuration.build()))
+                .maxSize(poolSize)
+                .build());
+    }
+
+    @Bean
+    public DatabaseClient databaseClient(ConnectionFactory connectionFactory) {
+        return DatabaseClient.create(connectionFactory);
+    }
+}
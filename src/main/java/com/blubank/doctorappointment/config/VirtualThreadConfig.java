@@ -0,0 +1,58 @@
+package com.blubank.doctorappointment.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Opt-in execution mode that serves every request, and therefore every service and JPA call,
+ * on its own virtual thread. Requires a Java 21+ runtime; the executor is looked up
+ * reflectively so the project keeps compiling against its Java 11 baseline, and on older
+ * runtimes startup fails instead of silently falling back to platform threads.
+ * <p>
+ * Because virtual threads make concurrency effectively unbounded, connections are handed out
+ * through a {@link PermitLimitedDataSource} sized to the connection pool.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "appointment.execution.virtual-threads", havingValue = "true")
+public class VirtualThreadConfig {
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        ExecutorService executor = newVirtualThreadPerTaskExecutor();
+        log.info("Serving requests on virtual threads");
+        return protocolHandler -> protocolHandler.setExecutor(executor);
+    }
+
+    @Bean
+    public static BeanPostProcessor permitLimitedDataSourcePostProcessor(
+            @Value("${appointment.execution.db-permits:10}") int permits,
+            @Value("${appointment.execution.db-permit-timeout-ms:30000}") long timeoutMillis) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource && !(bean instanceof PermitLimitedDataSource)) {
+                    return new PermitLimitedDataSource((DataSource) bean, permits, timeoutMillis);
+                }
+                return bean;
+            }
+        };
+    }
+
+    static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("appointment.execution.virtual-threads requires a Java 21+ runtime", e);
+        }
+    }
+}
@@ -1,28 +1,53 @@
 package com.blubank.doctorappointment.controllers;
 
-import com.blubank.doctorappointment.mappers.AppointmentMapper;
 import com.blubank.doctorappointment.mappers.DoctorMapper;
-import com.blubank.doctorappointment.models.Appointment;
+import com.blubank.doctorappointment.mappers.ScheduleMapper;
+import com.blubank.doctorappointment.mappers.SlotPolicyMapper;
 import com.blubank.doctorappointment.models.Doctor;
+import com.blubank.doctorappointment.models.ScheduleException;
 import com.blubank.doctorappointment.payloads.requests.AddAppointmentDto;
 import com.blubank.doctorappointment.payloads.requests.CreateDoctorDto;
+import com.blubank.doctorappointment.payloads.requests.ScheduleExceptionDto;
+import com.blubank.doctorappointment.payloads.requests.SlotPolicyDto;
+import com.blubank.doctorappointment.payloads.requests.WeeklyScheduleDto;
 import com.blubank.doctorappointment.payloads.responses.AppointmentRes;
+import com.blubank.doctorappointment.payloads.responses.BulkWindowRes;
 import com.blubank.doctorappointment.payloads.responses.DoctorRes;
+import com.blubank.doctorappointment.payloads.responses.ScheduleWindowRes;
+import com.blubank.doctorappointment.payloads.responses.SlotPolicyRes;
+import com.blubank.doctorappointment.services.AppointmentExportService;
+import com.blubank.doctorappointment.services.AppointmentImportService;
 import com.blubank.doctorappointment.services.DoctorService;
+import com.blubank.doctorappointment.services.OverlapMode;
+import com.blubank.doctorappointment.services.ScheduleService;
+import com.blubank.doctorappointment.services.SlotPolicyService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.time.LocalDateTime;
 import java.util.List;
@@ -37,7 +62,15 @@ public class DoctorController {
     public static final String  BASE_URL = "/v1/doctor";
     private static final String CREATED_DESC = "Entity created successfully." +
             " Returns the location of the newly created entity in the 'Location' header.";
+    private static final String BULK_DESC = "Streams (doctorId, startTime, endTime) windows, expands them into" +
+            " slots of each doctor's slot policy and returns a per-window summary; a failed window does not affect the others.";
+    private static final String OVERLAP_DESC = " With overlap=REJECT a window overlapping existing appointments" +
+            " fails with 409; with overlap=MERGE only its non-overlapping slots are added.";
     private final DoctorService doctorService;
+    private final AppointmentImportService appointmentImportService;
+    private final AppointmentExportService appointmentExportService;
+    private final ScheduleService scheduleService;
+    private final SlotPolicyService slotPolicyService;
 
     @Operation(summary = "create a doctor", description = CREATED_DESC)
     @PostMapping
@@ -52,26 +85,126 @@ public class DoctorController {
         return ResponseEntity.ok(DoctorMapper.mapToResponse(doctor));
     }
 
-    @Operation(summary = "add daily appointments for a doctor" , description = CREATED_DESC)
+    @Operation(summary = "add daily appointments for a doctor" , description = CREATED_DESC + OVERLAP_DESC)
     @PostMapping("/{doctorId}/appointments")
-    public ResponseEntity<Void> addAppointments(@PathVariable("doctorId") Long doctorId,@RequestBody @Valid AddAppointmentDto dto) {
-        doctorService.addAppointments(doctorId, dto.getStartTime(),dto.getEndTime());
+    public ResponseEntity<Void> addAppointments(@PathVariable("doctorId") Long doctorId,@RequestBody @Valid AddAppointmentDto dto,
+                                                @RequestParam(defaultValue = "REJECT") OverlapMode overlap) {
+        doctorService.addAppointments(doctorId, dto.getStartTime(),dto.getEndTime(), overlap);
         return ResponseEntity.created(URI.create(BASE_URL+ "/"+doctorId+"/appointments")).build();
     }
-    @Operation(summary = "get daily appointments for a doctor")
-    @GetMapping("/{doctorId}/appointments")
-    public ResponseEntity<List<AppointmentRes>> getDoctorAppointments(@PathVariable("doctorId") Long doctorId, @RequestParam LocalDateTime date) {
-        List<Appointment> doctorAppointments = doctorService.getDoctorAppointments(doctorId, date);
-        return ResponseEntity.ok(doctorAppointments
+
+    @Operation(summary = "set how a doctor's appointment windows are split into slots",
+            description = "Slot length, the buffer left after every slot and daily breaks. Applies to windows"
+                    + " added afterwards and to the weekly schedule; existing appointments keep their times.")
+    @PutMapping("/{doctorId}/slot-policy")
+    public ResponseEntity<SlotPolicyRes> updateSlotPolicy(@PathVariable("doctorId") Long doctorId,
+                                                          @RequestBody @Valid SlotPolicyDto dto) {
+        return ResponseEntity.ok(SlotPolicyMapper.mapToResponse(slotPolicyService.updatePolicy(doctorId, dto)));
+    }
+
+    @GetMapping("/{doctorId}/slot-policy")
+    public ResponseEntity<SlotPolicyRes> getSlotPolicy(@PathVariable("doctorId") Long doctorId) {
+        doctorService.getDoctor(doctorId);
+        return ResponseEntity.ok(SlotPolicyMapper.mapToResponse(slotPolicyService.getPolicy(doctorId)));
+    }
+
+    @Operation(summary = "replace the weekly schedule of a doctor",
+            description = "Weekly windows whose slots are offered without creating appointments;"
+                    + " an appointment is only created when a slot is booked.")
+    @PutMapping("/{doctorId}/schedule")
+    public ResponseEntity<List<ScheduleWindowRes>> replaceWeeklySchedule(@PathVariable("doctorId") Long doctorId,
+                                                                         @RequestBody @Valid WeeklyScheduleDto dto) {
+        return ResponseEntity.ok(scheduleService.replaceWeeklySchedule(doctorId, dto.getWindows())
                 .stream()
-                .map(AppointmentMapper::mapToDoctorResponse)
+                .map(ScheduleMapper::mapToResponse)
                 .collect(Collectors.toList()));
     }
 
+    @GetMapping("/{doctorId}/schedule")
+    public ResponseEntity<List<ScheduleWindowRes>> getWeeklySchedule(@PathVariable("doctorId") Long doctorId) {
+        return ResponseEntity.ok(scheduleService.getWeeklySchedule(doctorId)
+                .stream()
+                .map(ScheduleMapper::mapToResponse)
+                .collect(Collectors.toList()));
+    }
+
+    @Operation(summary = "block time of the weekly schedule on a date",
+            description = CREATED_DESC + " Without start and end times the whole date is blocked.")
+    @PostMapping("/{doctorId}/schedule/exceptions")
+    public ResponseEntity<Void> addScheduleException(@PathVariable("doctorId") Long doctorId,
+                                                     @RequestBody @Valid ScheduleExceptionDto dto) {
+        ScheduleException exception = scheduleService.addException(doctorId, dto);
+        return ResponseEntity.created(URI.create(BASE_URL + "/" + doctorId + "/schedule/exceptions/"
+                + exception.getId())).build();
+    }
+
+    @Operation(summary = "delete a schedule exception")
+    @DeleteMapping("/{doctorId}/schedule/exceptions/{exceptionId}")
+    public ResponseEntity<Void> deleteScheduleException(@PathVariable("doctorId") Long doctorId,
+                                                        @PathVariable("exceptionId") Long exceptionId) {
+        scheduleService.deleteException(doctorId, exceptionId);
+        return ResponseEntity.ok().build();
+    }
+
+    @Operation(summary = "bulk import appointment windows as a JSON array", description = BULK_DESC + OVERLAP_DESC)
+    @PostMapping(value = "/appointments/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<BulkWindowRes>> importAppointmentsJson(InputStream body,
+                                                                      @RequestParam(defaultValue = "REJECT") OverlapMode overlap) throws IOException {
+        return ResponseEntity.ok(appointmentImportService.importJson(body, overlap));
+    }
+
+    @Operation(summary = "bulk import appointment windows as CSV", description = BULK_DESC + OVERLAP_DESC)
+    @PostMapping(value = "/appointments/bulk", consumes = "text/csv")
+    public ResponseEntity<List<BulkWindowRes>> importAppointmentsCsv(InputStream body,
+                                                                     @RequestParam(defaultValue = "REJECT") OverlapMode overlap) throws IOException {
+        return ResponseEntity.ok(appointmentImportService.importCsv(body, overlap));
+    }
+
+    @Operation(summary = "get daily appointments for a doctor", description = PatientController.ETAG_DESC)
+    @ApiResponse(responseCode = "200", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+            array = @ArraySchema(schema = @Schema(implementation = AppointmentRes.class))))
+    @GetMapping("/{doctorId}/appointments")
+    public void getDoctorAppointments(@PathVariable("doctorId") Long doctorId, @RequestParam LocalDateTime date,
+                                      WebRequest request, HttpServletResponse response) throws IOException {
+        String etag = doctorService.getDoctorAppointmentsETag(doctorId, date);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().getHeaderValue());
+        // sets the ETag header and the 304 status of the response too
+        if (request.checkNotModified(etag)) {
+            return;
+        }
+        LocalDateTime startOfDay = date.toLocalDate().atStartOfDay();
+        writeAppointments(doctorId, startOfDay, startOfDay.plusDays(1), response);
+    }
+
+    @Operation(summary = "export a doctor's appointments in a date range",
+            description = "Appointments starting in [from, to), streamed in start order. The range is at most "
+                    + DoctorService.MAX_EXPORT_DAYS + " days.")
+    @ApiResponse(responseCode = "200", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+            array = @ArraySchema(schema = @Schema(implementation = AppointmentRes.class))))
+    @GetMapping("/{doctorId}/appointments/export")
+    public void exportAppointments(@PathVariable("doctorId") Long doctorId,
+                                   @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) @RequestParam LocalDateTime from,
+                                   @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) @RequestParam LocalDateTime to,
+                                   HttpServletResponse response) throws IOException {
+        writeAppointments(doctorId, from, to, response);
+    }
+
     @Operation(summary = "delete appointment")
     @DeleteMapping("/appointments/{appointmentId}")
     public ResponseEntity<Void> deleteAppointment(@PathVariable("appointmentId") Long appointmentId) {
         doctorService.deleteAppointment(appointmentId);
         return ResponseEntity.ok().build();
     }
+
+    /**
+     * Streams the appointments on the request thread rather than as an async body, so the export
+     * reuses the request's entity manager and its connection is returned when the request ends.
+     */
+    private void writeAppointments(Long doctorId, LocalDateTime from, LocalDateTime to,
+                                   HttpServletResponse response) throws IOException {
+        // validate before streaming starts, the status cannot change once the body is being written
+        doctorService.getDoctorForExport(doctorId, from, to);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        appointmentExportService.writeDoctorAppointments(doctorId, from, to, response.getOutputStream());
+    }
 }
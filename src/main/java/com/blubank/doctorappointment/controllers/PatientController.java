@@ -1,16 +1,35 @@
 package com.blubank.doctorappointment.controllers;
 
+import com.blubank.doctorappointment.exceptions.NotFoundException;
 import com.blubank.doctorappointment.mappers.AppointmentMapper;
+import com.blubank.doctorappointment.mappers.BookingTicketMapper;
+import com.blubank.doctorappointment.mappers.DoctorDaySummaryMapper;
 import com.blubank.doctorappointment.mappers.PatientMapper;
 import com.blubank.doctorappointment.models.Appointment;
 import com.blubank.doctorappointment.models.Patient;
+import com.blubank.doctorappointment.payloads.requests.AppointmentCursor;
 import com.blubank.doctorappointment.payloads.requests.CreatePatientDto;
 import com.blubank.doctorappointment.payloads.responses.AppointmentRes;
+import com.blubank.doctorappointment.payloads.responses.AvailableSlotRes;
+import com.blubank.doctorappointment.payloads.responses.BookingTicketRes;
+import com.blubank.doctorappointment.payloads.responses.DayAvailabilityRes;
 import com.blubank.doctorappointment.payloads.responses.PatientRes;
+import com.blubank.doctorappointment.services.AppointmentExportService;
+import com.blubank.doctorappointment.services.BookingTicket;
+import com.blubank.doctorappointment.services.DaySchedule;
 import com.blubank.doctorappointment.services.PatientService;
+import com.blubank.doctorappointment.services.WriteBehindBookingService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Slice;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -19,11 +38,17 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
 import java.net.URI;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Tag(name = "Patient")
@@ -32,10 +57,15 @@ import java.util.stream.Collectors;
 @RequestMapping(PatientController.BASE_URL)
 public class PatientController {
     public static final String  BASE_URL = "/v1/patient";
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
     private static final String CREATED_DESC = "Entity created successfully." +
             " Returns the location of the newly created entity in the 'Location' header.";
+    static final String ETAG_DESC = "The 'ETag' header changes whenever the day's appointments do;" +
+            " a request whose 'If-None-Match' holds the current tag gets 304 Not Modified without a body.";
 
     private final PatientService patientService;
+    private final AppointmentExportService appointmentExportService;
+    private final Optional<WriteBehindBookingService> writeBehindBookingService;
 
     @Operation(summary = "create a patient", description = CREATED_DESC)
     @PostMapping
@@ -51,28 +81,123 @@ public class PatientController {
         return ResponseEntity.ok(PatientMapper.mapToResponse(patient));
     }
 
-    @Operation(summary = "get doctor open appointments")
+    @Operation(summary = "get doctor open appointments", description = ETAG_DESC)
     @GetMapping("doctor/{doctorId}/appointments")
-    public ResponseEntity<List<AppointmentRes>> getDoctorAppointments(@PathVariable("doctorId") Long doctorId, @RequestParam LocalDateTime date) {
-        List<Appointment> doctorAppointments = patientService.getDoctorAppointments(doctorId, date);
-        return ResponseEntity.ok(doctorAppointments
+    public ResponseEntity<List<AppointmentRes>> getDoctorAppointments(@PathVariable("doctorId") Long doctorId, @RequestParam LocalDateTime date,
+                                                                      WebRequest request) {
+        String etag = patientService.getDoctorAppointmentsETag(doctorId, date);
+        // sets the ETag header of the response too
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(CacheControl.noCache()).build();
+        }
+        DaySchedule openSlots = patientService.getDoctorAppointments(doctorId, date);
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(AppointmentMapper.mapToPatientResponses(openSlots));
+    }
+
+    @Operation(summary = "get open slots of a doctor's weekly schedule",
+            description = "Slots offered by the weekly schedule on the given date. They have no id yet and are"
+                    + " booked by start time. The other availability endpoints only list them once booked.")
+    @GetMapping("doctor/{doctorId}/slots")
+    public ResponseEntity<List<AvailableSlotRes>> getScheduledSlots(@PathVariable("doctorId") Long doctorId,
+                                                                    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) @RequestParam LocalDate date) {
+        return ResponseEntity.ok(patientService.getScheduledSlots(doctorId, date)
                 .stream()
-                .map(AppointmentMapper::mapToPatientResponse)
+                .map(AppointmentMapper::mapToAvailableSlot)
+                .collect(Collectors.toList()));
+    }
+
+    @Operation(summary = "book a slot of a doctor's weekly schedule", description = CREATED_DESC)
+    @PostMapping("doctor/{doctorId}/slots")
+    public ResponseEntity<Void> bookScheduledSlot(@PathVariable("doctorId") Long doctorId,
+                                                  @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) @RequestParam LocalDateTime startTime,
+                                                  @RequestBody @Valid CreatePatientDto dto) {
+        patientService.bookScheduledSlot(doctorId, startTime, dto);
+        return ResponseEntity.created(URI.create(BASE_URL+"/appointments/"+dto.getPhone())).build();
+    }
+
+    @Operation(summary = "search open appointments across doctors",
+            description = "Earliest 'limit' open appointments in [from, to), optionally restricted to the given doctors.")
+    @GetMapping("doctors/appointments")
+    public ResponseEntity<List<AvailableSlotRes>> searchOpenAppointments(
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) @RequestParam LocalDateTime from,
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) @RequestParam LocalDateTime to,
+            @RequestParam(required = false) List<Long> doctorIds,
+            @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(patientService.searchOpenSlots(from, to, doctorIds, limit)
+                .stream()
+                .map(AppointmentMapper::mapToAvailableSlot)
                 .collect(Collectors.toList()));
     }
 
-    @Operation(summary = "book an appointment", description = CREATED_DESC)
+    @Operation(summary = "stream open appointments across doctors",
+            description = "The same search as 'doctors/appointments', written as newline-delimited JSON while the"
+                    + " slots are read, one slot per line.")
+    @ApiResponse(responseCode = "200", content = @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE,
+            schema = @Schema(implementation = AvailableSlotRes.class)))
+    @GetMapping("doctors/appointments/stream")
+    public void streamOpenAppointments(@DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) @RequestParam LocalDateTime from,
+                                       @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) @RequestParam LocalDateTime to,
+                                       @RequestParam(required = false) List<Long> doctorIds,
+                                       @RequestParam(defaultValue = "20") int limit,
+                                       HttpServletResponse response) throws IOException {
+        // validate before streaming starts, the status cannot change once the body is being written
+        Set<Long> doctors = patientService.checkSearch(from, to, doctorIds, limit);
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        appointmentExportService.writeOpenSlots(doctors, from, to, limit, response.getOutputStream());
+    }
+
+    @Operation(summary = "get days with open appointments",
+            description = "Days from today over the next 'weeks' weeks on which the doctor still has open appointments.")
+    @GetMapping("doctor/{doctorId}/availability")
+    public ResponseEntity<List<DayAvailabilityRes>> getDoctorAvailability(@PathVariable("doctorId") Long doctorId,
+                                                                          @RequestParam(defaultValue = "4") int weeks) {
+        return ResponseEntity.ok(patientService.getDoctorAvailability(doctorId, weeks)
+                .stream()
+                .map(DoctorDaySummaryMapper::mapToResponse)
+                .collect(Collectors.toList()));
+    }
+
+    @Operation(summary = "book an appointment", description = CREATED_DESC
+            + " With write-behind booking enabled the request is accepted with 202 and a ticket instead;"
+            + " the 'Location' header points at the ticket to poll.")
     @PostMapping("/appointments/{appointmentId}")
-    public ResponseEntity<Void> bookAppointment(@PathVariable Long appointmentId,@RequestBody @Valid CreatePatientDto dto) {
+    public ResponseEntity<BookingTicketRes> bookAppointment(@PathVariable Long appointmentId,@RequestBody @Valid CreatePatientDto dto) {
+        if (writeBehindBookingService.isPresent()) {
+            BookingTicket ticket = writeBehindBookingService.get().accept(appointmentId, dto);
+            return ResponseEntity.accepted()
+                    .location(URI.create(BASE_URL + "/bookings/" + ticket.getTicket()))
+                    .body(BookingTicketMapper.mapToResponse(ticket));
+        }
         patientService.bookAppointment(appointmentId, dto);
         return ResponseEntity.created(URI.create(BASE_URL+"/appointments/"+dto.getPhone())).build();
     }
 
-    @Operation(summary = "get all appointments with patient phone number")
+    @Operation(summary = "get the state of an accepted booking request")
+    @GetMapping("/bookings/{ticket}")
+    public ResponseEntity<BookingTicketRes> getBookingTicket(@PathVariable long ticket) {
+        BookingTicket state = writeBehindBookingService
+                .orElseThrow(() -> new NotFoundException("Ticket not found"))
+                .getTicket(ticket);
+        return ResponseEntity.ok(BookingTicketMapper.mapToResponse(state));
+    }
+
+    @Operation(summary = "get appointments with patient phone number",
+            description = "Keyset paginated by start time. When more appointments exist, the '" + NEXT_CURSOR_HEADER
+                    + "' header holds the cursor for the next page.")
     @GetMapping("/appointments/{patientPhone}")
-    public ResponseEntity<List<AppointmentRes>> getPatientAppointments(@PathVariable String patientPhone) {
-        List<Appointment> patientAppointments = patientService.getPatientAppointments(patientPhone);
-        return ResponseEntity.ok(patientAppointments
+    public ResponseEntity<List<AppointmentRes>> getPatientAppointments(@PathVariable String patientPhone,
+                                                                       @RequestParam(required = false) String cursor,
+                                                                       @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) @RequestParam(required = false) LocalDateTime from,
+                                                                       @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) @RequestParam(required = false) LocalDateTime to,
+                                                                       @RequestParam(defaultValue = "50") int size) {
+        AppointmentCursor after = cursor == null ? null : AppointmentCursor.decode(cursor);
+        Slice<Appointment> patientAppointments = patientService.getPatientAppointments(patientPhone, after, from, to, size);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (patientAppointments.hasNext()) {
+            List<Appointment> content = patientAppointments.getContent();
+            response.header(NEXT_CURSOR_HEADER, AppointmentCursor.of(content.get(content.size() - 1)).encode());
+        }
+        return response.body(patientAppointments
                 .stream()
                 .map(AppointmentMapper::mapToPatientResponse)
                 .collect(Collectors.toList()));
@@ -0,0 +1,65 @@
+package com.blubank.doctorappointment.controllers;
+
+import com.blubank.doctorappointment.mappers.AppointmentMapper;
+import com.blubank.doctorappointment.payloads.responses.AppointmentRes;
+import com.blubank.doctorappointment.services.ReactiveAvailabilityService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDateTime;
+
+/**
+ * Non-blocking variants of the patient and doctor day views, enabled with the {@code reactive}
+ * profile. Rows are read through R2DBC and the request thread is released while they are read;
+ * the JSON routes answer with the same {@link AppointmentRes} array as the blocking endpoints, and
+ * the {@code /stream} routes write one appointment per line as it is read.
+ */
+@Tag(name = "Reactive availability")
+@Profile("reactive")
+@RequiredArgsConstructor
+@RestController
+@RequestMapping(ReactiveAvailabilityController.BASE_URL)
+public class ReactiveAvailabilityController {
+    public static final String BASE_URL = "/v1/reactive";
+
+    private final ReactiveAvailabilityService reactiveAvailabilityService;
+
+    @Operation(summary = "get doctor open appointments")
+    @GetMapping(value = "/patient/doctor/{doctorId}/appointments", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Flux<AppointmentRes> getDoctorOpenAppointments(@PathVariable("doctorId") Long doctorId,
+                                                          @RequestParam LocalDateTime date) {
+        return reactiveAvailabilityService.getOpenSlots(doctorId, date.toLocalDate())
+                .map(AppointmentMapper::mapToPatientResponse);
+    }
+
+    @Operation(summary = "stream doctor open appointments as newline-delimited JSON")
+    @GetMapping(value = "/patient/doctor/{doctorId}/appointments/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<AppointmentRes> streamDoctorOpenAppointments(@PathVariable("doctorId") Long doctorId,
+                                                             @RequestParam LocalDateTime date) {
+        return getDoctorOpenAppointments(doctorId, date);
+    }
+
+    @Operation(summary = "get daily appointments for a doctor")
+    @GetMapping(value = "/doctor/{doctorId}/appointments", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Flux<AppointmentRes> getDoctorAppointments(@PathVariable("doctorId") Long doctorId,
+                                                      @RequestParam LocalDateTime date) {
+        return reactiveAvailabilityService.getDoctorAppointments(doctorId, date.toLocalDate())
+                .map(AppointmentMapper::mapToDoctorResponse);
+    }
+
+    @Operation(summary = "stream daily appointments for a doctor as newline-delimited JSON")
+    @GetMapping(value = "/doctor/{doctorId}/appointments/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<AppointmentRes> streamDoctorAppointments(@PathVariable("doctorId") Long doctorId,
+                                                         @RequestParam LocalDateTime date) {
+        return getDoctorAppointments(doctorId, date);
+    }
+}
@@ -0,0 +1,15 @@
+package com.blubank.doctorappointment.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * The appointment already has a patient, so it can neither be booked nor deleted.
+ */
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class AppointmentTakenException extends BadRequestException {
+
+    public AppointmentTakenException(String message) {
+        super(message);
+    }
+}
@@ -2,6 +2,13 @@ package com.blubank.doctorappointment.mappers;
 
 import com.blubank.doctorappointment.models.Appointment;
 import com.blubank.doctorappointment.payloads.responses.AppointmentRes;
+import com.blubank.doctorappointment.payloads.responses.AvailableSlotRes;
+import com.blubank.doctorappointment.repositories.projections.SlotLocation;
+import com.blubank.doctorappointment.services.DaySchedule;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
 public class AppointmentMapper {
 
@@ -14,9 +21,34 @@ public class AppointmentMapper {
                 .endTime(appointment.getEndTime())
                 .build();
     }
+    public static AppointmentRes mapToPatientResponse(DaySchedule schedule, LocalDateTime startOfDay, int index) {
+        LocalDateTime startTime = schedule.startTime(startOfDay, index);
+        return AppointmentRes.builder()
+                .id(schedule.id(index))
+                .isTaken(false)
+                .startTime(startTime)
+                .endTime(schedule.endTime(startTime, index))
+                .build();
+    }
+    public static List<AppointmentRes> mapToPatientResponses(DaySchedule schedule) {
+        LocalDateTime startOfDay = schedule.getStartOfDay();
+        List<AppointmentRes> responses = new ArrayList<>(schedule.size());
+        for (int i = 0; i < schedule.size(); i++) {
+            responses.add(mapToPatientResponse(schedule, startOfDay, i));
+        }
+        return responses;
+    }
     public static AppointmentRes mapToDoctorResponse(Appointment appointment) {
         AppointmentRes res = mapToPatientResponse(appointment);
         res.setPatient(res.getIsTaken() ? PatientMapper.mapToResponse(appointment.getPatient()) : null);
         return res;
     }
+    public static AvailableSlotRes mapToAvailableSlot(SlotLocation slot) {
+        return AvailableSlotRes.builder()
+                .id(slot.getId())
+                .doctorId(slot.getDoctorId())
+                .startTime(slot.getStartTime())
+                .endTime(slot.getEndTime())
+                .build();
+    }
 }
@@ -0,0 +1,16 @@
+package com.blubank.doctorappointment.mappers;
+
+import com.blubank.doctorappointment.payloads.responses.BookingTicketRes;
+import com.blubank.doctorappointment.services.BookingTicket;
+
+public class BookingTicketMapper {
+
+    public static BookingTicketRes mapToResponse(BookingTicket ticket) {
+        return BookingTicketRes.builder()
+                .ticket(ticket.getTicket())
+                .appointmentId(ticket.getAppointmentId())
+                .status(ticket.getStatus().name())
+                .message(ticket.getMessage())
+                .build();
+    }
+}
@@ -0,0 +1,27 @@
+package com.blubank.doctorappointment.mappers;
+
+import com.blubank.doctorappointment.models.DoctorDaySummary;
+import com.blubank.doctorappointment.payloads.responses.DayAvailabilityRes;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+public class DoctorDaySummaryMapper {
+
+    public static DayAvailabilityRes mapToResponse(DoctorDaySummary summary) {
+        List<LocalTime> openHalfHours = new ArrayList<>();
+        long mask = summary.getOpenMask();
+        while (mask != 0) {
+            int position = Long.numberOfTrailingZeros(mask);
+            openHalfHours.add(LocalTime.MIDNIGHT.plusMinutes(30L * position));
+            mask &= mask - 1;
+        }
+        return DayAvailabilityRes.builder()
+                .date(summary.getDate())
+                .totalSlots(summary.getTotalSlots())
+                .openSlots(summary.getOpenSlots())
+                .openHalfHours(openHalfHours)
+                .build();
+    }
+}
@@ -0,0 +1,15 @@
+package com.blubank.doctorappointment.mappers;
+
+import com.blubank.doctorappointment.models.ScheduleWindow;
+import com.blubank.doctorappointment.payloads.responses.ScheduleWindowRes;
+
+public class ScheduleMapper {
+
+    public static ScheduleWindowRes mapToResponse(ScheduleWindow window) {
+        return ScheduleWindowRes.builder()
+                .dayOfWeek(window.getDayOfWeek())
+                .startTime(window.getStartTime())
+                .endTime(window.getEndTime())
+                .build();
+    }
+}
@@ -0,0 +1,23 @@
+package com.blubank.doctorappointment.mappers;
+
+import com.blubank.doctorappointment.models.SlotPolicy;
+import com.blubank.doctorappointment.payloads.responses.BreakWindowRes;
+import com.blubank.doctorappointment.payloads.responses.SlotPolicyRes;
+
+import java.util.stream.Collectors;
+
+public class SlotPolicyMapper {
+
+    public static SlotPolicyRes mapToResponse(SlotPolicy policy) {
+        return SlotPolicyRes.builder()
+                .slotMinutes(policy.getSlotMinutes())
+                .bufferMinutes(policy.getBufferMinutes())
+                .breaks(policy.getBreaks().stream()
+                        .map(window -> BreakWindowRes.builder()
+                                .startTime(window.getStartTime())
+                                .endTime(window.getEndTime())
+                                .build())
+                        .collect(Collectors.toList()))
+                .build();
+    }
+}
@@ -4,12 +4,18 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
+import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
 import javax.persistence.Version;
 import java.time.LocalDateTime;
 
@@ -17,22 +23,38 @@ import java.time.LocalDateTime;
 @Getter
 @Setter
 @Entity
+@Table(uniqueConstraints = {
+        // backs up the overlap check on insert: a doctor never has two slots starting at the same time
+        @UniqueConstraint(name = "uk_appointment_doctor_start", columnNames = {"doctor_id", "start_time"})
+}, indexes = {
+        // open-slot lookups seek on (doctor, start) and filter patient_id from the same entry
+        @Index(name = "idx_appointment_doctor_start", columnList = "doctor_id, start_time, patient_id"),
+        // keyset pages of a patient's history walk (start_time, id) in index order
+        @Index(name = "idx_appointment_patient_start", columnList = "patient_id, start_time, id")
+})
 public class Appointment {
+    /**
+     * Sequence-backed id with a pooled allocation, so a day of slots is inserted
+     * as one JDBC batch instead of one round trip per row (IDENTITY disables batching).
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "appointment_seq")
+    @SequenceGenerator(name = "appointment_seq", sequenceName = "appointment_seq", allocationSize = 50)
     private Long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "doctor_id")
     private Doctor doctor;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "patient_id")
     private Patient patient;
 
     @Version
     private Long version;
 
+    @Column(name = "start_time")
     private LocalDateTime startTime;
+    @Column(name = "end_time")
     private LocalDateTime endTime;
 }
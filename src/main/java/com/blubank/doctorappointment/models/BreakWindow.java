@@ -0,0 +1,25 @@
+package com.blubank.doctorappointment.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.Column;
+import javax.persistence.Embeddable;
+import java.time.LocalTime;
+
+/**
+ * A daily break, such as lunch from 12:00 to 13:00, during which no slot is generated.
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+@Embeddable
+public class BreakWindow {
+    @Column(name = "start_time", nullable = false)
+    private LocalTime startTime;
+    @Column(name = "end_time", nullable = false)
+    private LocalTime endTime;
+}
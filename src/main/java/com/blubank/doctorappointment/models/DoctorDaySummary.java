@@ -0,0 +1,55 @@
+package com.blubank.doctorappointment.models;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+import java.time.LocalDate;
+
+/**
+ * Slot counts of one doctor's day, kept in step with the appointment rows so availability
+ * over weeks is read from one small row per day.
+ * <p>
+ * Bit {@code n} of {@link #openMask} is set while an open slot starts in the n-th half hour
+ * of the day (00:00-00:30 is bit 0, 23:30-24:00 is bit 47). Counts are kept exact by every
+ * write; a closed slot's bit stays set until the day is recounted, so while
+ * {@link #pendingChanges} is non-zero the mask may still show half hours that have no open slot.
+ */
+@NoArgsConstructor
+@Getter
+@Setter
+@Entity
+@Table(name = "doctor_day_summary",
+        uniqueConstraints = @UniqueConstraint(name = "uk_doctor_day_summary", columnNames = {"doctor_id", "summary_date"}),
+        indexes = @Index(name = "idx_doctor_day_summary_pending", columnList = "pending_changes"))
+public class DoctorDaySummary {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "doctor_id", nullable = false)
+    private Doctor doctor;
+
+    @Column(name = "summary_date", nullable = false)
+    private LocalDate date;
+
+    private int totalSlots;
+    private int openSlots;
+    private long openMask;
+
+    /** writes since the day was last recounted from its appointments; rows older than the column start at 1 */
+    @Column(name = "pending_changes", nullable = false, columnDefinition = "integer default 1")
+    private int pendingChanges;
+}
@@ -0,0 +1,50 @@
+package com.blubank.doctorappointment.models;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Time on one date that a doctor's weekly schedule does not offer, such as a holiday or an
+ * afternoon off. Without start and end times the whole date is blocked.
+ */
+@NoArgsConstructor
+@Getter
+@Setter
+@Entity
+@Table(name = "schedule_exception",
+        indexes = @Index(name = "idx_schedule_exception_doctor_date", columnList = "doctor_id, exception_date"))
+public class ScheduleException {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "doctor_id", nullable = false)
+    private Doctor doctor;
+
+    @Column(name = "exception_date", nullable = false)
+    private LocalDate date;
+
+    @Column(name = "start_time")
+    private LocalTime startTime;
+    @Column(name = "end_time")
+    private LocalTime endTime;
+
+    public boolean isWholeDay() {
+        return startTime == null;
+    }
+}
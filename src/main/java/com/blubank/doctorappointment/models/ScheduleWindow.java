@@ -0,0 +1,50 @@
+package com.blubank.doctorappointment.models;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.FetchType;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+
+/**
+ * One window of a doctor's recurring weekly schedule, such as Monday 09:00-17:00. The window
+ * is split into slots by the doctor's {@link SlotPolicy}; they are offered without appointment
+ * rows, and a row is only written when one of them is booked.
+ */
+@NoArgsConstructor
+@Getter
+@Setter
+@Entity
+@Table(name = "schedule_window",
+        indexes = @Index(name = "idx_schedule_window_doctor_day", columnList = "doctor_id, day_of_week"))
+public class ScheduleWindow {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "doctor_id", nullable = false)
+    private Doctor doctor;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "day_of_week", nullable = false, length = 9)
+    private DayOfWeek dayOfWeek;
+
+    @Column(name = "start_time", nullable = false)
+    private LocalTime startTime;
+    @Column(name = "end_time", nullable = false)
+    private LocalTime endTime;
+}
@@ -0,0 +1,54 @@
+package com.blubank.doctorappointment.models;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.CollectionTable;
+import javax.persistence.Column;
+import javax.persistence.ElementCollection;
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.OrderBy;
+import javax.persistence.Table;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * How a doctor's appointment windows are split into slots: the slot length, the gap left after
+ * every slot, and daily breaks. Doctors without a row use {@link #defaults}, 30 minute slots
+ * back to back.
+ */
+@NoArgsConstructor
+@Getter
+@Setter
+@Entity
+@Table(name = "slot_policy")
+public class SlotPolicy {
+    public static final int DEFAULT_SLOT_MINUTES = 30;
+    public static final int MIN_SLOT_MINUTES = 5;
+    public static final int MAX_SLOT_MINUTES = 8 * 60;
+    public static final int MAX_BUFFER_MINUTES = 2 * 60;
+
+    @Id
+    @Column(name = "doctor_id")
+    private Long doctorId;
+
+    @Column(name = "slot_minutes", nullable = false)
+    private int slotMinutes = DEFAULT_SLOT_MINUTES;
+    @Column(name = "buffer_minutes", nullable = false)
+    private int bufferMinutes;
+
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "slot_policy_break", joinColumns = @JoinColumn(name = "doctor_id"))
+    @OrderBy("startTime")
+    private List<BreakWindow> breaks = new ArrayList<>();
+
+    public static SlotPolicy defaults(Long doctorId) {
+        SlotPolicy policy = new SlotPolicy();
+        policy.setDoctorId(doctorId);
+        return policy;
+    }
+}
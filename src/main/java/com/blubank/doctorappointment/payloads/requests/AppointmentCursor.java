@@ -0,0 +1,43 @@
+package com.blubank.doctorappointment.payloads.requests;
+
+import com.blubank.doctorappointment.exceptions.BadRequestException;
+import com.blubank.doctorappointment.models.Appointment;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Opaque keyset position in a (startTime, id) ordered appointment list.
+ */
+@Getter
+@AllArgsConstructor
+public class AppointmentCursor {
+    private static final String SEPARATOR = "|";
+
+    private final LocalDateTime startTime;
+    private final Long id;
+
+    public static AppointmentCursor of(Appointment appointment) {
+        return new AppointmentCursor(appointment.getStartTime(), appointment.getId());
+    }
+
+    public static AppointmentCursor decode(String token) {
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = value.indexOf(SEPARATOR);
+            return new AppointmentCursor(LocalDateTime.parse(value.substring(0, separator)),
+                    Long.valueOf(value.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new BadRequestException("Invalid cursor");
+        }
+    }
+
+    public String encode() {
+        String value = startTime + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
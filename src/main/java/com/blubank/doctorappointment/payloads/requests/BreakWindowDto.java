@@ -0,0 +1,20 @@
+package com.blubank.doctorappointment.payloads.requests;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.validation.constraints.NotNull;
+import java.time.LocalTime;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class BreakWindowDto {
+    @NotNull
+    private LocalTime startTime;
+    @NotNull
+    private LocalTime endTime;
+}
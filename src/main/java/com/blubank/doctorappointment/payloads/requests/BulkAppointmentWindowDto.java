@@ -0,0 +1,18 @@
+package com.blubank.doctorappointment.payloads.requests;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class BulkAppointmentWindowDto {
+    private Long doctorId;
+    private LocalDateTime startTime;
+    private LocalDateTime endTime;
+}
@@ -0,0 +1,21 @@
+package com.blubank.doctorappointment.payloads.requests;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.validation.constraints.NotNull;
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class ScheduleExceptionDto {
+    @NotNull
+    private LocalDate date;
+    private LocalTime startTime;
+    private LocalTime endTime;
+}
@@ -0,0 +1,22 @@
+package com.blubank.doctorappointment.payloads.requests;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
+import java.util.List;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class SlotPolicyDto {
+    @NotNull
+    private Integer slotMinutes;
+    private Integer bufferMinutes;
+    @Valid
+    private List<BreakWindowDto> breaks;
+}
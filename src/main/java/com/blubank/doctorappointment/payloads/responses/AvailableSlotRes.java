@@ -0,0 +1,15 @@
+package com.blubank.doctorappointment.payloads.responses;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+public class AvailableSlotRes {
+    private Long id;
+    private Long doctorId;
+    private LocalDateTime startTime;
+    private LocalDateTime endTime;
+}
@@ -0,0 +1,13 @@
+package com.blubank.doctorappointment.payloads.responses;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class BookingTicketRes {
+    private Long ticket;
+    private Long appointmentId;
+    private String status;
+    private String message;
+}
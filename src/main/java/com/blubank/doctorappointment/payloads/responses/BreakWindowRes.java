@@ -0,0 +1,13 @@
+package com.blubank.doctorappointment.payloads.responses;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalTime;
+
+@Data
+@Builder
+public class BreakWindowRes {
+    private LocalTime startTime;
+    private LocalTime endTime;
+}
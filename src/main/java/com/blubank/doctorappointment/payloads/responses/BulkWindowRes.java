@@ -0,0 +1,22 @@
+package com.blubank.doctorappointment.payloads.responses;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+public class BulkWindowRes {
+    private Integer index;
+    private Long doctorId;
+    private LocalDateTime startTime;
+    private LocalDateTime endTime;
+    private Status status;
+    private Integer slots;
+    private String message;
+
+    public enum Status {
+        CREATED, FAILED
+    }
+}
@@ -0,0 +1,18 @@
+package com.blubank.doctorappointment.payloads.responses;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+@Data
+@Builder
+public class DayAvailabilityRes {
+    private LocalDate date;
+    private Integer totalSlots;
+    private Integer openSlots;
+    /** start of every half hour in which an open slot begins */
+    private List<LocalTime> openHalfHours;
+}
@@ -0,0 +1,15 @@
+package com.blubank.doctorappointment.payloads.responses;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+
+@Data
+@Builder
+public class ScheduleWindowRes {
+    private DayOfWeek dayOfWeek;
+    private LocalTime startTime;
+    private LocalTime endTime;
+}
@@ -0,0 +1,14 @@
+package com.blubank.doctorappointment.payloads.responses;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class SlotPolicyRes {
+    private int slotMinutes;
+    private int bufferMinutes;
+    private List<BreakWindowRes> breaks;
+}
@@ -1,13 +1,161 @@
 package com.blubank.doctorappointment.repositories;
 
 import com.blubank.doctorappointment.models.Appointment;
-import com.blubank.doctorappointment.models.Doctor;
+import com.blubank.doctorappointment.models.Patient;
+import com.blubank.doctorappointment.repositories.projections.AppointmentSlot;
+import com.blubank.doctorappointment.repositories.projections.SlotLocation;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.QueryHint;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface AppointmentRepository extends JpaRepository<Appointment,Long> {
-    List<Appointment> findByDoctorAndStartTimeBetween(Doctor doctor, LocalDateTime start, LocalDateTime end);
-    List<Appointment> findByDoctor_IdAndPatientIsNullAndStartTimeBetween(Long doctorId, LocalDateTime start, LocalDateTime end);
+    @Query("select new com.blubank.doctorappointment.repositories.projections.AppointmentSlot(a.id, a.startTime, a.endTime)" +
+            " from Appointment a where a.doctor.id = :doctorId and a.patient is null" +
+            " and a.startTime >= :start and a.startTime < :end order by a.startTime")
+    List<AppointmentSlot> findOpenSlots(@Param("doctorId") Long doctorId,
+                                        @Param("start") LocalDateTime start,
+                                        @Param("end") LocalDateTime end);
+
+    /**
+     * Earliest open slots of all doctors in {@code [start, end)}; open slots carry a null
+     * patient, so the range is read in start order from the patient index.
+     */
+    @Query("select new com.blubank.doctorappointment.repositories.projections.SlotLocation(" +
+            "a.doctor.id, a.id, a.startTime, a.endTime) from Appointment a where a.patient is null" +
+            " and a.startTime >= :start and a.startTime < :end order by a.startTime, a.id")
+    List<SlotLocation> findEarliestOpenSlots(@Param("start") LocalDateTime start,
+                                             @Param("end") LocalDateTime end,
+                                             Pageable pageable);
+
+    /**
+     * Earliest open slots of the given doctors in {@code [start, end)}, read from the
+     * (doctor, start) index.
+     */
+    @Query("select new com.blubank.doctorappointment.repositories.projections.SlotLocation(" +
+            "a.doctor.id, a.id, a.startTime, a.endTime) from Appointment a where a.doctor.id in :doctorIds" +
+            " and a.patient is null and a.startTime >= :start and a.startTime < :end order by a.startTime, a.id")
+    List<SlotLocation> findEarliestOpenSlots(@Param("doctorIds") Collection<Long> doctorIds,
+                                             @Param("start") LocalDateTime start,
+                                             @Param("end") LocalDateTime end,
+                                             Pageable pageable);
+
+    /**
+     * {@link #findEarliestOpenSlots(LocalDateTime, LocalDateTime, Pageable)} read row by row; the
+     * stream must be consumed and closed inside a transaction.
+     */
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "20"))
+    @Query("select new com.blubank.doctorappointment.repositories.projections.SlotLocation(" +
+            "a.doctor.id, a.id, a.startTime, a.endTime) from Appointment a where a.patient is null" +
+            " and a.startTime >= :start and a.startTime < :end order by a.startTime, a.id")
+    Stream<SlotLocation> streamEarliestOpenSlots(@Param("start") LocalDateTime start,
+                                                 @Param("end") LocalDateTime end,
+                                                 Pageable pageable);
+
+    /**
+     * {@link #findEarliestOpenSlots(Collection, LocalDateTime, LocalDateTime, Pageable)} read row
+     * by row; the stream must be consumed and closed inside a transaction.
+     */
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "20"))
+    @Query("select new com.blubank.doctorappointment.repositories.projections.SlotLocation(" +
+            "a.doctor.id, a.id, a.startTime, a.endTime) from Appointment a where a.doctor.id in :doctorIds" +
+            " and a.patient is null and a.startTime >= :start and a.startTime < :end order by a.startTime, a.id")
+    Stream<SlotLocation> streamEarliestOpenSlots(@Param("doctorIds") Collection<Long> doctorIds,
+                                                 @Param("start") LocalDateTime start,
+                                                 @Param("end") LocalDateTime end,
+                                                 Pageable pageable);
+
+    /**
+     * Books the appointment in a single statement if it is still open. Pending changes are
+     * flushed first and the persistence context is cleared after, so a later read of the
+     * appointment sees the booking.
+     *
+     * @return 1 when the appointment was booked, 0 when it does not exist or is already taken
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Transactional
+    @Query("update Appointment a set a.patient = :patient, a.version = a.version + 1" +
+            " where a.id = :id and a.patient is null")
+    int bookIfOpen(@Param("id") Long id, @Param("patient") Patient patient);
+
+    @Query("select count(a) from Appointment a" +
+            " where a.doctor.id = :doctorId and a.startTime >= :start and a.startTime < :end")
+    long countSlots(@Param("doctorId") Long doctorId,
+                    @Param("start") LocalDateTime start,
+                    @Param("end") LocalDateTime end);
+
+    @Query("select a.startTime from Appointment a where a.doctor.id = :doctorId")
+    List<LocalDateTime> findStartTimes(@Param("doctorId") Long doctorId);
+
+    /**
+     * Doctors that have appointments but no day summaries, such as doctors whose slots were
+     * written before summaries were kept.
+     */
+    @Query("select d.id from Doctor d where exists (select a.id from Appointment a where a.doctor = d)" +
+            " and not exists (select s.id from DoctorDaySummary s where s.doctor = d)")
+    List<Long> findDoctorsWithoutDaySummaries();
+
+    /**
+     * Slots of a doctor, open or booked, that overlap {@code [start, end)}. Only slots starting
+     * after {@code earliestStart} are read, which keeps the (doctor, start) index range short.
+     */
+    @Query("select new com.blubank.doctorappointment.repositories.projections.AppointmentSlot(a.id, a.startTime, a.endTime)" +
+            " from Appointment a where a.doctor.id = :doctorId and a.startTime > :earliestStart" +
+            " and a.startTime < :end and a.endTime > :start order by a.startTime")
+    List<AppointmentSlot> findOverlappingSlots(@Param("doctorId") Long doctorId,
+                                               @Param("earliestStart") LocalDateTime earliestStart,
+                                               @Param("start") LocalDateTime start,
+                                               @Param("end") LocalDateTime end);
+
+    @Query("select a.id from Appointment a where a.patient is not null and a.startTime >= :from")
+    List<Long> findBookedIdsFrom(@Param("from") LocalDateTime from);
+
+    /**
+     * Ids from {@code fromId} up, in id order, of appointments that have not started by
+     * {@code now}. The scan walks the primary key from {@code fromId}, so a caller that moves
+     * {@code fromId} forward only reads the rows that started since its last call.
+     */
+    @Query("select a.id from Appointment a where a.id >= :fromId and a.startTime >= :now order by a.id")
+    List<Long> findUnstartedIdsFrom(@Param("fromId") Long fromId,
+                                    @Param("now") LocalDateTime now,
+                                    Pageable pageable);
+
+    /**
+     * A doctor's appointments in {@code [start, end)} with their patients, read row by row; the
+     * stream must be consumed and closed inside a transaction.
+     */
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "100"))
+    @Query("select a from Appointment a left join fetch a.patient where a.doctor.id = :doctorId" +
+            " and a.startTime >= :start and a.startTime < :end order by a.startTime, a.id")
+    Stream<Appointment> streamDoctorAppointments(@Param("doctorId") Long doctorId,
+                                                 @Param("start") LocalDateTime start,
+                                                 @Param("end") LocalDateTime end);
+
+    @Query("select a from Appointment a where a.patient.id = :patientId" +
+            " and a.startTime >= :from and a.startTime < :to order by a.startTime, a.id")
+    Slice<Appointment> findPatientHistory(@Param("patientId") Long patientId,
+                                          @Param("from") LocalDateTime from,
+                                          @Param("to") LocalDateTime to,
+                                          Pageable pageable);
+
+    @Query("select a from Appointment a where a.patient.id = :patientId" +
+            " and a.startTime >= :from and a.startTime < :to" +
+            " and (a.startTime > :afterStart or (a.startTime = :afterStart and a.id > :afterId))" +
+            " order by a.startTime, a.id")
+    Slice<Appointment> findPatientHistoryAfter(@Param("patientId") Long patientId,
+                                               @Param("from") LocalDateTime from,
+                                               @Param("to") LocalDateTime to,
+                                               @Param("afterStart") LocalDateTime afterStart,
+                                               @Param("afterId") Long afterId,
+                                               Pageable pageable);
 }
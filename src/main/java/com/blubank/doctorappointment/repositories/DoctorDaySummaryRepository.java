@@ -0,0 +1,66 @@
+package com.blubank.doctorappointment.repositories;
+
+import com.blubank.doctorappointment.models.DoctorDaySummary;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface DoctorDaySummaryRepository extends JpaRepository<DoctorDaySummary, Long> {
+    @Query("select s.date from DoctorDaySummary s where s.doctor.id = :doctorId")
+    List<LocalDate> findDates(@Param("doctorId") Long doctorId);
+
+    @Query("select s from DoctorDaySummary s where s.doctor.id = :doctorId" +
+            " and s.date >= :from and s.date < :to and s.openSlots > 0 order by s.date")
+    List<DoctorDaySummary> findAvailableDays(@Param("doctorId") Long doctorId,
+                                             @Param("from") LocalDate from,
+                                             @Param("to") LocalDate to);
+
+    @Query("select s from DoctorDaySummary s where s.pendingChanges > 0 order by s.id")
+    List<DoctorDaySummary> findPendingRecount(Pageable pageable);
+
+    /**
+     * Adds open slots to a day in one statement; {@code a + b - (a & b)} is the bitwise or of
+     * the masks. The cast gives H2 the parameter's type inside {@code bitand}.
+     *
+     * @return 1 when the day has a summary, 0 when it has none yet
+     */
+    @Modifying
+    @Query("update DoctorDaySummary s set s.totalSlots = s.totalSlots + :count, s.openSlots = s.openSlots + :count," +
+            " s.openMask = s.openMask + :bits - bitand(s.openMask, cast(:bits as long))," +
+            " s.pendingChanges = s.pendingChanges + 1" +
+            " where s.doctor.id = :doctorId and s.date = :date")
+    int addSlots(@Param("doctorId") Long doctorId, @Param("date") LocalDate date,
+                 @Param("count") int count, @Param("bits") long bits);
+
+    /**
+     * Takes one open slot out of a day in one statement. The mask is left for the recount,
+     * since clearing a bit needs to know whether another open slot starts in the same half hour.
+     * A day whose open count is already at zero is still marked pending, so the recount repairs it.
+     *
+     * @return 1 when the day has a summary, 0 when it has none
+     */
+    @Modifying
+    @Query("update DoctorDaySummary s set s.totalSlots = s.totalSlots + :totalDelta," +
+            " s.openSlots = case when s.openSlots > 0 then (s.openSlots - 1) else 0 end," +
+            " s.pendingChanges = s.pendingChanges + 1" +
+            " where s.doctor.id = :doctorId and s.date = :date")
+    int closeSlot(@Param("doctorId") Long doctorId, @Param("date") LocalDate date, @Param("totalDelta") int totalDelta);
+
+    /**
+     * Stores a day's recounted slots unless the day changed since its pending changes were read.
+     *
+     * @return 1 when stored, 0 when a newer change is pending
+     */
+    @Modifying
+    @Transactional
+    @Query("update DoctorDaySummary s set s.totalSlots = :totalSlots, s.openSlots = :openSlots, s.openMask = :openMask," +
+            " s.pendingChanges = 0 where s.id = :id and s.pendingChanges = :seen")
+    int storeRecount(@Param("id") Long id, @Param("seen") int seen, @Param("totalSlots") int totalSlots,
+                     @Param("openSlots") int openSlots, @Param("openMask") long openMask);
+}
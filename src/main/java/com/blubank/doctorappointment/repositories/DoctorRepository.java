@@ -2,6 +2,18 @@ package com.blubank.doctorappointment.repositories;
 
 import com.blubank.doctorappointment.models.Doctor;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import javax.persistence.LockModeType;
+import java.util.Optional;
 
 public interface DoctorRepository extends JpaRepository<Doctor, Long> {
+    /**
+     * Loads the doctor under a row lock, serializing writers that change the doctor's schedule.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select d from Doctor d where d.id = :id")
+    Optional<Doctor> lockById(@Param("id") Long id);
 }
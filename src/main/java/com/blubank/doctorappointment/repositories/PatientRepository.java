@@ -2,9 +2,24 @@ package com.blubank.doctorappointment.repositories;
 
 import com.blubank.doctorappointment.models.Patient;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 
 public interface PatientRepository extends JpaRepository<Patient, Long> {
     Optional<Patient> findByPhone(String phone);
+
+    /**
+     * Inserts the patient unless one with the same phone exists; safe under concurrent calls.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "MERGE INTO patient p" +
+            " USING (SELECT CAST(:phone AS VARCHAR(16)) AS phone, CAST(:name AS VARCHAR(64)) AS name FROM dual) s" +
+            " ON (p.phone = s.phone)" +
+            " WHEN NOT MATCHED THEN INSERT (name, phone) VALUES (s.name, s.phone)", nativeQuery = true)
+    int insertIfAbsent(@Param("phone") String phone, @Param("name") String name);
 }
@@ -0,0 +1,81 @@
+package com.blubank.doctorappointment.repositories;
+
+import com.blubank.doctorappointment.models.Appointment;
+import com.blubank.doctorappointment.models.Patient;
+import io.r2dbc.spi.Row;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+
+/**
+ * Availability reads of the {@code reactive} profile, through R2DBC. Rows become detached
+ * {@link Appointment}s, so they map to the same responses as the JPA reads; the queries use the
+ * same indexes as {@link AppointmentRepository#findOpenSlots} and
+ * {@link AppointmentRepository#streamDoctorAppointments}.
+ */
+@Profile("reactive")
+@Repository
+@RequiredArgsConstructor
+public class ReactiveAppointmentRepository {
+    private final DatabaseClient databaseClient;
+
+    public Mono<Boolean> existsDoctor(Long doctorId) {
+        return databaseClient.sql("select count(*) from doctor where id = :doctorId")
+                .bind("doctorId", doctorId)
+                .map(row -> row.get(0, Long.class))
+                .one()
+                .map(count -> count > 0);
+    }
+
+    /**
+     * A doctor's open slots in {@code [start, end)}, in start order.
+     */
+    public Flux<Appointment> findOpenSlots(Long doctorId, LocalDateTime start, LocalDateTime end) {
+        return databaseClient.sql("select id, start_time, end_time from appointment where doctor_id = :doctorId"
+                        + " and patient_id is null and start_time >= :start and start_time < :end order by start_time")
+                .bind("doctorId", doctorId)
+                .bind("start", start)
+                .bind("end", end)
+                .map(row -> appointment(row, null))
+                .all();
+    }
+
+    /**
+     * A doctor's appointments in {@code [start, end)} with their patients, in start order.
+     */
+    public Flux<Appointment> findDoctorAppointments(Long doctorId, LocalDateTime start, LocalDateTime end) {
+        return databaseClient.sql("select a.id, a.start_time, a.end_time, p.id as patient_id, p.name as patient_name,"
+                        + " p.phone as patient_phone from appointment a left join patient p on p.id = a.patient_id"
+                        + " where a.doctor_id = :doctorId and a.start_time >= :start and a.start_time < :end"
+                        + " order by a.start_time, a.id")
+                .bind("doctorId", doctorId)
+                .bind("start", start)
+                .bind("end", end)
+                .map(row -> appointment(row, patient(row)))
+                .all();
+    }
+
+    private static Appointment appointment(Row row, Patient patient) {
+        Appointment appointment = new Appointment();
+        appointment.setId(row.get("id", Long.class));
+        appointment.setStartTime(row.get("start_time", LocalDateTime.class));
+        appointment.setEndTime(row.get("end_time", LocalDateTime.class));
+        appointment.setPatient(patient);
+        return appointment;
+    }
+
+    private static Patient patient(Row row) {
+        Long id = row.get("patient_id", Long.class);
+        if (id == null) return null;
+        Patient patient = new Patient();
+        patient.setId(id);
+        patient.setName(row.get("patient_name", String.class));
+        patient.setPhone(row.get("patient_phone", String.class));
+        return patient;
+    }
+}
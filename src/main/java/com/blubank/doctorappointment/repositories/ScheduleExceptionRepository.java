@@ -0,0 +1,13 @@
+package com.blubank.doctorappointment.repositories;
+
+import com.blubank.doctorappointment.models.ScheduleException;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface ScheduleExceptionRepository extends JpaRepository<ScheduleException, Long> {
+    List<ScheduleException> findByDoctorIdAndDate(Long doctorId, LocalDate date);
+
+    List<ScheduleException> findByDoctorIdAndDateGreaterThanEqualOrderByDate(Long doctorId, LocalDate from);
+}
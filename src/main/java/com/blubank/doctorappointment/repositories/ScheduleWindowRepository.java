@@ -0,0 +1,20 @@
+package com.blubank.doctorappointment.repositories;
+
+import com.blubank.doctorappointment.models.ScheduleWindow;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.DayOfWeek;
+import java.util.List;
+
+public interface ScheduleWindowRepository extends JpaRepository<ScheduleWindow, Long> {
+    List<ScheduleWindow> findByDoctorIdOrderByDayOfWeekAscStartTimeAsc(Long doctorId);
+
+    List<ScheduleWindow> findByDoctorIdAndDayOfWeekOrderByStartTime(Long doctorId, DayOfWeek dayOfWeek);
+
+    @Modifying
+    @Query("delete from ScheduleWindow w where w.doctor.id = :doctorId")
+    int deleteByDoctorId(@Param("doctorId") Long doctorId);
+}
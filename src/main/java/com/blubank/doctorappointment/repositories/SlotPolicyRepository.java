@@ -0,0 +1,7 @@
+package com.blubank.doctorappointment.repositories;
+
+import com.blubank.doctorappointment.models.SlotPolicy;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface SlotPolicyRepository extends JpaRepository<SlotPolicy, Long> {
+}
@@ -0,0 +1,19 @@
+package com.blubank.doctorappointment.repositories.projections;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Read-only view of an open appointment slot, selected straight from the appointment
+ * columns without hydrating the doctor or patient associations.
+ */
+@Getter
+@AllArgsConstructor
+public class AppointmentSlot implements Serializable {
+    private final Long id;
+    private final LocalDateTime startTime;
+    private final LocalDateTime endTime;
+}
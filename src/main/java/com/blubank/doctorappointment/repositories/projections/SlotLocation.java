@@ -0,0 +1,20 @@
+package com.blubank.doctorappointment.repositories.projections;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * An appointment slot together with the doctor it belongs to; enough to rebuild a booked
+ * appointment and to find its cached availability day.
+ */
+@Getter
+@AllArgsConstructor
+public class SlotLocation implements Serializable {
+    private final Long doctorId;
+    private final Long id;
+    private final LocalDateTime startTime;
+    private final LocalDateTime endTime;
+}
@@ -0,0 +1,86 @@
+package com.blubank.doctorappointment.services;
+
+import com.blubank.doctorappointment.mappers.AppointmentMapper;
+import com.blubank.doctorappointment.models.Appointment;
+import com.blubank.doctorappointment.repositories.AppointmentRepository;
+import com.blubank.doctorappointment.repositories.projections.SlotLocation;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Writes appointment lists straight from a database cursor. Each row is mapped, written with the
+ * streaming generator and detached before the next one is read, so memory stays flat however
+ * many appointments the range holds.
+ */
+@Service
+@RequiredArgsConstructor
+public class AppointmentExportService {
+    private final AppointmentRepository appointmentRepository;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Writes a doctor's appointments in {@code [from, to)}, with their patients, in start order.
+     */
+    @Transactional(readOnly = true)
+    public void writeDoctorAppointments(Long doctorId, LocalDateTime from, LocalDateTime to, OutputStream out)
+            throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+             Stream<Appointment> appointments = appointmentRepository.streamDoctorAppointments(doctorId, from, to)) {
+            generator.writeStartArray();
+            appointments.forEach(appointment -> {
+                try {
+                    generator.writeObject(AppointmentMapper.mapToDoctorResponse(appointment));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                if (appointment.getPatient() != null) entityManager.detach(appointment.getPatient());
+                entityManager.detach(appointment);
+            });
+            generator.writeEndArray();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Writes the earliest {@code limit} open slots in {@code [from, to)}, of the given doctors or
+     * of all doctors when none are given, as newline-delimited JSON. Each slot is flushed as soon
+     * as it is read, so clients can act on the first slots before the last ones are found.
+     */
+    @Transactional(readOnly = true)
+    public void writeOpenSlots(Set<Long> doctorIds, LocalDateTime from, LocalDateTime to, int limit, OutputStream out)
+            throws IOException {
+        PageRequest page = PageRequest.of(0, limit);
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+             Stream<SlotLocation> slots = doctorIds.isEmpty()
+                     ? appointmentRepository.streamEarliestOpenSlots(from, to, page)
+                     : appointmentRepository.streamEarliestOpenSlots(doctorIds, from, to, page)) {
+            // one value per line instead of the generator's space between root values
+            generator.setRootValueSeparator(null);
+            slots.forEach(slot -> {
+                try {
+                    generator.writeObject(AppointmentMapper.mapToAvailableSlot(slot));
+                    generator.writeRaw('\n');
+                    generator.flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.blubank.doctorappointment.services;
+
+import com.blubank.doctorappointment.exceptions.BadRequestException;
+import com.blubank.doctorappointment.models.Appointment;
+import com.blubank.doctorappointment.models.Doctor;
+import com.blubank.doctorappointment.models.SlotPolicy;
+import com.blubank.doctorappointment.payloads.requests.BulkAppointmentWindowDto;
+import com.blubank.doctorappointment.payloads.responses.BulkWindowRes;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Imports appointment windows for many doctors from a streamed JSON array or CSV body.
+ * Windows are read one at a time, validated, and written in chunked transactions; the slots of
+ * a chunk are generated in parallel before its transaction starts. A window that fails never
+ * rolls back the others, its error is reported in the per-window summary. An element that is not
+ * a window is reported as a failed entry; a syntax error ends the import with one failed entry,
+ * and the windows read before it are still imported and summarized.
+ * <p>
+ * A chunk is written in ascending doctor id order. Saving slots locks their doctor row, so
+ * concurrent imports always take the locks in the same order and cannot deadlock.
+ */
+@Service
+@RequiredArgsConstructor
+public class AppointmentImportService {
+    private static final String CSV_HEADER = "doctorId";
+
+    private final DoctorService doctorService;
+    private final AppointmentService appointmentService;
+    private final SlotPolicyService slotPolicyService;
+    private final SlotGenerator slotGenerator;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Value("${appointment.import.chunk-windows:20}")
+    private int chunkWindows = 20;
+
+    public List<BulkWindowRes> importJson(InputStream body, OverlapMode overlapMode) throws IOException {
+        Import anImport = new Import(overlapMode);
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new BadRequestException("Expected a JSON array of appointment windows");
+            }
+            try {
+                JsonToken token;
+                while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                    if (token == null) {
+                        anImport.reject(null, "Malformed JSON: unexpected end of input, the array is not closed");
+                        break;
+                    }
+                    if (token != JsonToken.START_OBJECT) {
+                        parser.skipChildren();
+                        anImport.reject(null, "Malformed window: expected a JSON object, found " + token);
+                        continue;
+                    }
+                    JsonNode node = parser.readValueAsTree();
+                    try {
+                        anImport.add(objectMapper.treeToValue(node, BulkAppointmentWindowDto.class));
+                    } catch (JsonProcessingException e) {
+                        anImport.reject(null, "Malformed window: " + e.getOriginalMessage());
+                    }
+                }
+            } catch (JsonParseException e) {
+                // the rest of the body cannot be read; the windows before the error are still imported
+                anImport.reject(null, "Malformed JSON at line " + e.getLocation().getLineNr() + ", column "
+                        + e.getLocation().getColumnNr() + ": " + e.getOriginalMessage());
+            }
+        }
+        return anImport.finish();
+    }
+
+    public List<BulkWindowRes> importCsv(InputStream body, OverlapMode overlapMode) throws IOException {
+        Import anImport = new Import(overlapMode);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank() || line.startsWith(CSV_HEADER)) continue;
+            String[] fields = line.split(",");
+            try {
+                if (fields.length != 3) throw new IllegalArgumentException("expected doctorId,startTime,endTime");
+                anImport.add(new BulkAppointmentWindowDto(Long.valueOf(fields[0].trim()),
+                        LocalDateTime.parse(fields[1].trim()), LocalDateTime.parse(fields[2].trim())));
+            } catch (RuntimeException e) {
+                anImport.reject(null, "Malformed window: " + e.getMessage());
+            }
+        }
+        return anImport.finish();
+    }
+
+    /**
+     * State of one import request: the summary built so far, the windows waiting for the
+     * current chunk, and the doctors and slot policies already looked up.
+     */
+    private class Import {
+        private final List<BulkWindowRes> results = new ArrayList<>();
+        private final List<PendingWindow> chunk = new ArrayList<>();
+        private final Map<Long, Doctor> doctors = new HashMap<>();
+        private final Map<Long, SlotPolicy> policies = new HashMap<>();
+        private final OverlapMode overlapMode;
+
+        Import(OverlapMode overlapMode) {
+            this.overlapMode = overlapMode;
+        }
+
+        void add(BulkAppointmentWindowDto dto) {
+            if (dto.getDoctorId() == null || dto.getStartTime() == null || dto.getEndTime() == null) {
+                reject(dto, "doctorId, startTime and endTime required.");
+                return;
+            }
+            BulkWindowRes result = result(dto);
+            try {
+                Doctor doctor = doctors.computeIfAbsent(dto.getDoctorId(), doctorService::getDoctor);
+                SlotPolicy policy = policies.computeIfAbsent(dto.getDoctorId(), slotPolicyService::getPolicy);
+                if (!doctorService.hasSlots(policy, dto.getStartTime(), dto.getEndTime())) {
+                    created(result, 0);
+                    return;
+                }
+                chunk.add(new PendingWindow(new SlotGenerator.Request(doctor, policy, dto.getStartTime(),
+                        dto.getEndTime()), result));
+            } catch (RuntimeException e) {
+                failed(result, e.getMessage());
+                return;
+            }
+            if (chunk.size() >= chunkWindows) flush();
+        }
+
+        void reject(BulkAppointmentWindowDto dto, String message) {
+            failed(result(dto), message);
+        }
+
+        List<BulkWindowRes> finish() {
+            flush();
+            return results;
+        }
+
+        private BulkWindowRes result(BulkAppointmentWindowDto dto) {
+            BulkWindowRes result = BulkWindowRes.builder().index(results.size()).build();
+            if (dto != null) {
+                result.setDoctorId(dto.getDoctorId());
+                result.setStartTime(dto.getStartTime());
+                result.setEndTime(dto.getEndTime());
+            }
+            results.add(result);
+            return result;
+        }
+
+        private void flush() {
+            if (chunk.isEmpty()) return;
+            // stable, so the windows of one doctor keep their input order
+            chunk.sort(Comparator.comparing(window -> window.request.getDoctor().getId()));
+            try {
+                List<List<Appointment>> generated = slotGenerator.generateAll(chunk.stream()
+                        .map(window -> window.request)
+                        .collect(Collectors.toList()));
+                List<Integer> slots = transactionTemplate.execute(status -> {
+                    List<Integer> counts = new ArrayList<>();
+                    for (int i = 0; i < chunk.size(); i++) {
+                        counts.add(appointmentService.saveSlots(chunk.get(i).request.getDoctor(), generated.get(i),
+                                overlapMode).size());
+                    }
+                    return counts;
+                });
+                for (int i = 0; i < chunk.size(); i++) {
+                    created(chunk.get(i).result, slots.get(i));
+                }
+            } catch (RuntimeException chunkFailure) {
+                // isolate the offending window(s) by retrying each one on its own, with fresh slots
+                // since the failed transaction may have assigned ids to the generated ones
+                for (PendingWindow window : chunk) {
+                    try {
+                        created(window.result, transactionTemplate.execute(status -> window.write(overlapMode)));
+                    } catch (RuntimeException e) {
+                        failed(window.result, e.getMessage());
+                    }
+                }
+            }
+            chunk.clear();
+        }
+
+        private void created(BulkWindowRes result, int slots) {
+            result.setStatus(BulkWindowRes.Status.CREATED);
+            result.setSlots(slots);
+        }
+
+        private void failed(BulkWindowRes result, String message) {
+            result.setStatus(BulkWindowRes.Status.FAILED);
+            result.setSlots(0);
+            result.setMessage(message);
+        }
+    }
+
+    private class PendingWindow {
+        private final SlotGenerator.Request request;
+        private final BulkWindowRes result;
+
+        PendingWindow(SlotGenerator.Request request, BulkWindowRes result) {
+            this.request = request;
+            this.result = result;
+        }
+
+        int write(OverlapMode overlapMode) {
+            return appointmentService.addAppointments(request.getDoctor(), request.getPolicy(),
+                    request.getStartTime(), request.getEndTime(), overlapMode).size();
+        }
+    }
+}
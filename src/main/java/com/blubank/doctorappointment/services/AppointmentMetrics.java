@@ -0,0 +1,119 @@
+package com.blubank.doctorappointment.services;
+
+import com.blubank.doctorappointment.exceptions.AppointmentTakenException;
+import com.blubank.doctorappointment.exceptions.BadRequestException;
+import com.blubank.doctorappointment.exceptions.ConflictException;
+import com.blubank.doctorappointment.exceptions.NotFoundException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Supplier;
+
+/**
+ * Micrometer meters for the booking and availability hot paths, published through the
+ * actuator metrics endpoint and so visible in Spring Boot Admin.
+ * <p>
+ * Every call is timed under {@value #OPERATION_TIMER} with an {@code operation} tag and an
+ * {@code outcome} tag derived from how it ended; the timer's count is the per-outcome counter.
+ */
+@Component
+public class AppointmentMetrics {
+    public static final String OPERATION_TIMER = "appointment.operation";
+    public static final String SLOTS_GENERATED = "appointment.slots.generated";
+    public static final String OPTIMISTIC_LOCK_RETRIES = "appointment.optimistic-lock.retries";
+    public static final String OPTIMISTIC_LOCK_GIVE_UPS = "appointment.optimistic-lock.give-ups";
+
+    public static final String ADD_APPOINTMENTS = "add-appointments";
+    public static final String BOOK = "book";
+    public static final String AVAILABILITY = "availability";
+    public static final String SEARCH = "search";
+    public static final String DELETE = "delete";
+
+    public static final String SUCCESS = "success";
+    public static final String CONFLICT = "conflict";
+    public static final String NOT_FOUND = "not-found";
+    public static final String ALREADY_TAKEN = "already-taken";
+    public static final String INVALID = "invalid";
+    public static final String ERROR = "error";
+
+    private final MeterRegistry meterRegistry;
+    private final DistributionSummary slotsGenerated;
+
+    public AppointmentMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.slotsGenerated = DistributionSummary.builder(SLOTS_GENERATED)
+                .description("Appointment slots generated per request")
+                .baseUnit("slots")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+    }
+
+    public <T> T record(String operation, Supplier<T> action) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = SUCCESS;
+        try {
+            return action.get();
+        } catch (RuntimeException e) {
+            outcome = outcome(e);
+            throw e;
+        } finally {
+            sample.stop(timer(operation, outcome));
+        }
+    }
+
+    public void record(String operation, Runnable action) {
+        record(operation, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    public void slotsGenerated(int slots) {
+        slotsGenerated.record(slots);
+    }
+
+    /**
+     * Records how many times an operation was retried after an optimistic-lock failure,
+     * zero when the first attempt went through.
+     */
+    public void optimisticLockRetries(String operation, int retries) {
+        DistributionSummary.builder(OPTIMISTIC_LOCK_RETRIES)
+                .description("Optimistic-lock retries per operation")
+                .tag("operation", operation)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry)
+                .record(retries);
+    }
+
+    /**
+     * Counts operations that still lost the optimistic-lock race after their last attempt.
+     */
+    public void optimisticLockGiveUp(String operation) {
+        Counter.builder(OPTIMISTIC_LOCK_GIVE_UPS)
+                .description("Operations that exhausted their optimistic-lock retries")
+                .tag("operation", operation)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private Timer timer(String operation, String outcome) {
+        return Timer.builder(OPERATION_TIMER)
+                .description("Latency of appointment operations by outcome")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+    }
+
+    static String outcome(RuntimeException e) {
+        if (e instanceof AppointmentTakenException) return ALREADY_TAKEN;
+        if (e instanceof ConflictException || e instanceof OptimisticLockingFailureException) return CONFLICT;
+        if (e instanceof NotFoundException) return NOT_FOUND;
+        if (e instanceof BadRequestException) return INVALID;
+        return ERROR;
+    }
+}
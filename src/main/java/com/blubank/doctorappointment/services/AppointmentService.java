@@ -1,63 +1,185 @@
 package com.blubank.doctorappointment.services;
 
-import com.blubank.doctorappointment.exceptions.BadRequestException;
+import com.blubank.doctorappointment.exceptions.AppointmentTakenException;
+import com.blubank.doctorappointment.exceptions.ConflictException;
 import com.blubank.doctorappointment.exceptions.NotFoundException;
 import com.blubank.doctorappointment.models.Appointment;
 import com.blubank.doctorappointment.models.Doctor;
 import com.blubank.doctorappointment.models.Patient;
+import com.blubank.doctorappointment.models.SlotPolicy;
+import com.blubank.doctorappointment.payloads.requests.AppointmentCursor;
 import com.blubank.doctorappointment.repositories.AppointmentRepository;
+import com.blubank.doctorappointment.repositories.DoctorRepository;
+import com.blubank.doctorappointment.repositories.projections.AppointmentSlot;
+import com.blubank.doctorappointment.repositories.projections.SlotLocation;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
 public class AppointmentService {
     private final AppointmentRepository appointmentRepository;
+    private final DoctorRepository doctorRepository;
+    private final AvailabilityCache availabilityCache;
+    private final AppointmentMetrics appointmentMetrics;
+    private final DoctorDaySummaryService doctorDaySummaryService;
+    private final SlotGenerator slotGenerator;
 
-    protected List<Appointment> addAppointments(Doctor doctor, LocalDateTime startTime, LocalDateTime endTime) {
-        List<Appointment> appointments = new ArrayList<>();
-        while (startTime.plusMinutes(30).isBefore(endTime) || startTime.plusMinutes(30).equals(endTime)) {
-            Appointment appointment = new Appointment();
-            appointment.setDoctor(doctor);
-            appointment.setStartTime(startTime);
-            appointment.setEndTime(startTime.plusMinutes(30));
-            appointments.add(appointment);
-            startTime = startTime.plusMinutes(30);
-        }
-        return appointmentRepository.saveAll(appointments);
+    @Value("${appointment.booking.conditional-update:false}")
+    private boolean conditionalUpdate = false;
+
+    @Transactional
+    public List<Appointment> addAppointments(Doctor doctor, SlotPolicy policy, LocalDateTime startTime,
+                                             LocalDateTime endTime, OverlapMode overlapMode) {
+        return saveSlots(doctor, slotGenerator.generate(doctor, policy, startTime, endTime), overlapMode);
+    }
+
+    /**
+     * Persists slots built by the {@link SlotGenerator} for one doctor and updates the day
+     * summaries and cached availability of their days. Slots that overlap the doctor's existing
+     * appointments are handled as the overlap mode says.
+     *
+     * @throws ConflictException when a slot overlaps an existing appointment in {@link OverlapMode#REJECT} mode
+     */
+    @Transactional
+    public List<Appointment> saveSlots(Doctor doctor, List<Appointment> generated, OverlapMode overlapMode) {
+        List<Appointment> appointments = withoutOverlaps(doctor, generated, overlapMode);
+        appointmentMetrics.slotsGenerated(appointments.size());
+        List<Appointment> saved = appointmentRepository.saveAll(appointments);
+        doctorDaySummaryService.slotsAdded(doctor, saved);
+        appointments.stream()
+                .map(appointment -> appointment.getStartTime().toLocalDate())
+                .distinct()
+                .forEach(date -> availabilityCache.invalidate(doctor.getId(), date));
+        return saved;
     }
 
     @Transactional(propagation = Propagation.REQUIRES_NEW)
-    protected Appointment bookAppointment(Long appointmentId, Patient patient) {
+    public Appointment bookAppointment(Long appointmentId, Patient patient) {
+        if (conditionalUpdate) {
+            return bookIfOpen(appointmentId, patient);
+        }
         Appointment appointment = getAppointment(appointmentId);
         if (appointment.getPatient() != null) {
-            throw new BadRequestException("Appointment is already taken");
+            throw new AppointmentTakenException("Appointment is already taken");
         }
         appointment.setPatient(patient);
-        return appointmentRepository.save(appointment);
+        Appointment booked = appointmentRepository.save(appointment);
+        doctorDaySummaryService.slotBooked(appointment.getDoctor().getId(), appointment.getStartTime());
+        invalidateAvailability(appointment);
+        return booked;
+    }
+
+    /**
+     * Books with one conditional update instead of a read followed by a versioned write; the
+     * row count tells whether the slot was still open. The booked row is then read back, so the
+     * day summary, the cached day and the caller all see the committed doctor and times. The
+     * failure path spends one more query to tell a missing appointment from a taken one.
+     */
+    protected Appointment bookIfOpen(Long appointmentId, Patient patient) {
+        if (appointmentRepository.bookIfOpen(appointmentId, patient) == 0) {
+            if (!appointmentRepository.existsById(appointmentId)) {
+                throw new NotFoundException("Appointment not found");
+            }
+            throw new AppointmentTakenException("Appointment is already taken");
+        }
+        Appointment booked = getAppointment(appointmentId);
+        doctorDaySummaryService.slotBooked(booked.getDoctor().getId(), booked.getStartTime());
+        invalidateAvailability(booked);
+        return booked;
     }
 
     @Transactional(propagation = Propagation.REQUIRES_NEW)
-    protected void deleteAppointment(Long appointmentId) {
+    public void deleteAppointment(Long appointmentId) {
         Appointment appointment = getAppointment(appointmentId);
         if (appointment.getPatient() != null) {
-            throw new BadRequestException("Cannot delete taken appointment");
+            throw new AppointmentTakenException("Cannot delete taken appointment");
         }
         appointmentRepository.delete(appointment);
+        doctorDaySummaryService.slotDeleted(appointment.getDoctor().getId(), appointment.getStartTime());
+        invalidateAvailability(appointment);
+    }
+
+    protected DaySchedule getDoctorAppointmentsForPatient(Long doctorId, LocalDate date) {
+        LocalDateTime startOfDay = date.atStartOfDay();
+        return appointmentMetrics.record(AppointmentMetrics.AVAILABILITY, () -> availabilityCache.get(doctorId, date,
+                () -> appointmentRepository.findOpenSlots(doctorId, startOfDay, startOfDay.plusDays(1))));
+    }
+
+    /**
+     * Entity tag of a doctor's day, read from the availability cache without touching the database.
+     */
+    protected String getDayETag(Long doctorId, LocalDate date) {
+        return availabilityCache.etag(doctorId, date);
+    }
+
+    protected List<SlotLocation> getEarliestOpenSlots(Set<Long> doctorIds, LocalDateTime from,
+                                                      LocalDateTime to, int limit) {
+        PageRequest page = PageRequest.of(0, limit);
+        return appointmentMetrics.record(AppointmentMetrics.SEARCH, () -> doctorIds.isEmpty()
+                ? appointmentRepository.findEarliestOpenSlots(from, to, page)
+                : appointmentRepository.findEarliestOpenSlots(doctorIds, from, to, page));
     }
 
-    protected List<Appointment> getDoctorAppointments(Doctor doctor, LocalDateTime startDate, LocalDateTime endDate) {
-        return appointmentRepository.findByDoctorAndStartTimeBetween(doctor, startDate, endDate);
+    protected Slice<Appointment> getPatientAppointments(Long patientId, AppointmentCursor after,
+                                                        LocalDateTime from, LocalDateTime to, int size) {
+        PageRequest page = PageRequest.of(0, size);
+        if (after == null) {
+            return appointmentRepository.findPatientHistory(patientId, from, to, page);
+        }
+        return appointmentRepository.findPatientHistoryAfter(patientId, from, to,
+                after.getStartTime(), after.getId(), page);
+    }
+
+    /**
+     * Checks slots in start order against the doctor's appointments with one range query on the
+     * (doctor, start) index, so the cost grows with the window and not with the doctor's history.
+     * The doctor row lock keeps other writers from adding a slot between the check and the insert;
+     * the unique (doctor, start) constraint backs it up.
+     */
+    private List<Appointment> withoutOverlaps(Doctor doctor, List<Appointment> slots, OverlapMode overlapMode) {
+        if (slots.isEmpty()) return slots;
+        doctorRepository.lockById(doctor.getId()).orElseThrow(() -> new NotFoundException("Doctor not found"));
+        LocalDateTime start = slots.get(0).getStartTime();
+        List<AppointmentSlot> existing = appointmentRepository.findOverlappingSlots(doctor.getId(),
+                start.minusMinutes(SlotPolicy.MAX_SLOT_MINUTES), start, slots.get(slots.size() - 1).getEndTime());
+        if (existing.isEmpty()) return slots;
+        List<Appointment> free = new ArrayList<>(slots.size());
+        int first = 0;
+        for (Appointment slot : slots) {
+            // an appointment that ends before this slot starts ends before every later slot too
+            while (first < existing.size() && !existing.get(first).getEndTime().isAfter(slot.getStartTime())) {
+                first++;
+            }
+            boolean overlaps = false;
+            for (int i = first; i < existing.size() && existing.get(i).getStartTime().isBefore(slot.getEndTime()); i++) {
+                if (existing.get(i).getEndTime().isAfter(slot.getStartTime())) {
+                    overlaps = true;
+                    break;
+                }
+            }
+            if (!overlaps) {
+                free.add(slot);
+            } else if (overlapMode == OverlapMode.REJECT) {
+                throw new ConflictException("Appointment window overlaps existing appointments");
+            }
+        }
+        return free;
     }
 
-    protected List<Appointment> getDoctorAppointmentsForPatient(Long doctorId, LocalDateTime startDate, LocalDateTime endDate) {
-        return appointmentRepository.findByDoctor_IdAndPatientIsNullAndStartTimeBetween(doctorId, startDate, endDate);
+    private void invalidateAvailability(Appointment appointment) {
+        availabilityCache.invalidate(appointment.getDoctor().getId(), appointment.getStartTime().toLocalDate());
     }
 
     protected Appointment getAppointment(Long appointmentId) {
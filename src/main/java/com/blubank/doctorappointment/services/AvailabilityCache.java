@@ -0,0 +1,144 @@
+package com.blubank.doctorappointment.services;
+
+import com.blubank.doctorappointment.repositories.projections.AppointmentSlot;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.map.EntryProcessor;
+import com.hazelcast.map.IMap;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Read-through cache of a doctor's open slots per day, kept in Hazelcast.
+ * <p>
+ * Every (doctor, date) key has a version counter that writers bump through {@link #invalidate}.
+ * A cached day is only served while its version matches the counter, so a reader that loaded
+ * the slots concurrently with a booking can never publish a stale day.
+ * <p>
+ * The version also tags the HTTP representations of a day, so clients that poll a day can be
+ * answered with 304 Not Modified without a query.
+ */
+@Component
+public class AvailabilityCache {
+    public static final String SLOTS_MAP = "appointment-availability";
+    public static final String VERSIONS_MAP = "appointment-availability-version";
+    /** a version counter nobody reads or bumps for this long is evicted */
+    public static final int VERSION_MAX_IDLE_SECONDS = (int) TimeUnit.DAYS.toSeconds(1);
+
+    private final IMap<String, CachedDay> slots;
+    private final IMap<String, Long> versions;
+    private final Counter hits;
+    private final Counter misses;
+
+    public AvailabilityCache(HazelcastInstance hazelcastInstance, MeterRegistry meterRegistry) {
+        this.slots = hazelcastInstance.getMap(SLOTS_MAP);
+        this.versions = hazelcastInstance.getMap(VERSIONS_MAP);
+        this.hits = Counter.builder("appointment.availability.cache")
+                .description("Open-slot availability lookups served from the cache")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("appointment.availability.cache")
+                .description("Open-slot availability lookups loaded from the database")
+                .tag("result", "miss")
+                .register(meterRegistry);
+    }
+
+    public DaySchedule get(Long doctorId, LocalDate date, Supplier<List<AppointmentSlot>> loader) {
+        String key = key(doctorId, date);
+        long version = version(key);
+        CachedDay cached = slots.get(key);
+        if (cached != null && cached.version == version) {
+            hits.increment();
+            return cached.schedule;
+        }
+        misses.increment();
+        DaySchedule loaded = DaySchedule.of(date, loader.get());
+        // a write that raced the load has bumped the version, so the stale day is never served
+        slots.set(key, new CachedDay(version, loaded));
+        return loaded;
+    }
+
+    /**
+     * Returns the current version of a doctor's day; it changes whenever the day's slots change.
+     */
+    public long version(Long doctorId, LocalDate date) {
+        return version(key(doctorId, date));
+    }
+
+    /**
+     * Returns a strong entity tag for a doctor's day that changes whenever the day's slots or
+     * bookings change. Only {@link #invalidate} stores counters, so polling unknown doctors or
+     * dates never grows the versions map.
+     * <p>
+     * A day without a counter is tagged with the current max-idle period instead. A counter is
+     * only missing after it sat idle for a whole period, so a day that changed after such a tag
+     * was handed out is tagged with a later period, or with its counter, and never reuses it.
+     */
+    public String etag(Long doctorId, LocalDate date) {
+        Long version = versions.get(key(doctorId, date));
+        if (version == null) {
+            return "idle-" + System.currentTimeMillis() / TimeUnit.SECONDS.toMillis(VERSION_MAX_IDLE_SECONDS);
+        }
+        return Long.toString(version);
+    }
+
+    /**
+     * Marks a doctor's day as changed. Inside a transaction the version is bumped again after
+     * commit, so readers that loaded uncommitted state in between are invalidated too.
+     */
+    public void invalidate(Long doctorId, LocalDate date) {
+        String key = key(doctorId, date);
+        bump(key);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    bump(key);
+                }
+            });
+        }
+    }
+
+    private long version(String key) {
+        Long version = versions.get(key);
+        return version == null ? 0 : version;
+    }
+
+    private void bump(String key) {
+        versions.executeOnKey(key, new IncrementVersion());
+        slots.delete(key);
+    }
+
+    private static String key(Long doctorId, LocalDate date) {
+        return doctorId + ":" + date;
+    }
+
+    private static class CachedDay implements Serializable {
+        private final long version;
+        private final DaySchedule schedule;
+
+        CachedDay(long version, DaySchedule schedule) {
+            this.version = version;
+            this.schedule = schedule;
+        }
+    }
+
+    private static class IncrementVersion implements EntryProcessor<String, Long, Long> {
+        @Override
+        public Long process(Map.Entry<String, Long> entry) {
+            // counters start from the clock so they keep growing across evictions
+            long next = entry.getValue() == null ? System.currentTimeMillis() : entry.getValue() + 1;
+            entry.setValue(next);
+            return next;
+        }
+    }
+}
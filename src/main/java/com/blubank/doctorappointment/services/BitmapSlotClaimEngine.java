@@ -0,0 +1,104 @@
+package com.blubank.doctorappointment.services;
+
+import com.blubank.doctorappointment.repositories.AppointmentRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free claim engine backed by a bitmap of appointment ids. Appointment ids come from a
+ * pooled sequence and are dense, so one bit per id in chunks of {@value #CHUNK_BITS} ids keeps
+ * the footprint small; claiming is a single compare-and-set on the chunk word.
+ * <p>
+ * Claims of appointments that are already booked and still ahead are restored from the
+ * database on startup. Chunks whose appointments have all started are evicted periodically, so
+ * memory follows the appointments that can still be booked rather than every id ever claimed.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "appointment.booking.engine", havingValue = "bitmap")
+public class BitmapSlotClaimEngine implements SlotClaimEngine {
+    static final int CHUNK_BITS = 4096;
+    private static final int CHUNK_WORDS = CHUNK_BITS / Long.SIZE;
+
+    private final AppointmentRepository appointmentRepository;
+    private final ConcurrentMap<Long, AtomicLongArray> chunks = new ConcurrentHashMap<>();
+    /** lowest id that may belong to an appointment that has not started; only the sweep moves it */
+    private long unstartedFrom = 0;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void recover() {
+        List<Long> bookedIds = appointmentRepository.findBookedIdsFrom(LocalDateTime.now());
+        bookedIds.forEach(this::tryClaim);
+        log.info("Restored {} booked slot claims", bookedIds.size());
+    }
+
+    /**
+     * Evicts the chunks whose ids all lie below the lowest id of an appointment that has not
+     * started yet. A claim that races the eviction, or a claim for a slot in the past, only
+     * means that one more request reaches the database, which stays the source of truth.
+     */
+    @Scheduled(fixedDelayString = "${appointment.booking.bitmap.sweep-interval-ms:600000}",
+            initialDelayString = "${appointment.booking.bitmap.sweep-interval-ms:600000}")
+    public void evictStartedChunks() {
+        List<Long> unstarted = appointmentRepository.findUnstartedIdsFrom(unstartedFrom, LocalDateTime.now(),
+                PageRequest.of(0, 1));
+        long firstLiveChunk = unstarted.isEmpty() ? Long.MAX_VALUE : unstarted.get(0) / CHUNK_BITS;
+        if (!unstarted.isEmpty()) {
+            unstartedFrom = unstarted.get(0);
+        }
+        int before = chunks.size();
+        chunks.keySet().removeIf(chunk -> chunk < firstLiveChunk);
+        log.debug("Evicted {} slot claim chunks of started appointments", before - chunks.size());
+    }
+
+    int chunkCount() {
+        return chunks.size();
+    }
+
+    @Override
+    public boolean tryClaim(Long appointmentId) {
+        AtomicLongArray chunk = chunks.computeIfAbsent(appointmentId / CHUNK_BITS, k -> new AtomicLongArray(CHUNK_WORDS));
+        int word = word(appointmentId);
+        long bit = bit(appointmentId);
+        long current;
+        do {
+            current = chunk.get(word);
+            if ((current & bit) != 0) return false;
+        } while (!chunk.compareAndSet(word, current, current | bit));
+        return true;
+    }
+
+    @Override
+    public void release(Long appointmentId) {
+        AtomicLongArray chunk = chunks.get(appointmentId / CHUNK_BITS);
+        if (chunk == null) return;
+        int word = word(appointmentId);
+        long bit = bit(appointmentId);
+        long current;
+        do {
+            current = chunk.get(word);
+            if ((current & bit) == 0) return;
+        } while (!chunk.compareAndSet(word, current, current & ~bit));
+    }
+
+    private static int word(long appointmentId) {
+        return (int) (appointmentId % CHUNK_BITS) / Long.SIZE;
+    }
+
+    private static long bit(long appointmentId) {
+        return 1L << (appointmentId % Long.SIZE);
+    }
+}
@@ -0,0 +1,210 @@
+package com.blubank.doctorappointment.services;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only local journal of accepted booking requests, written to memory-mapped segment
+ * files. Every request gets a ticket from a gap-free sequence that also orders the journal.
+ * <p>
+ * A record is {@code [length][crc32][ticket][appointmentId][name][phone]}; a zero length marks
+ * the end of a segment, and a record whose checksum does not match (a write torn by a crash)
+ * ends the journal. The checkpoint file holds the highest ticket that has been applied, so
+ * {@link #pending()} returns exactly the requests that still have to be applied after a
+ * restart. Segments whose records are all applied are deleted when the checkpoint moves.
+ * <p>
+ * Not thread-safe for appends; callers serialize them.
+ */
+public class BookingJournal implements Closeable {
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final String CHECKPOINT = "checkpoint";
+    private static final int HEADER_BYTES = Integer.BYTES * 2;
+    private static final int MAX_FIELD_BYTES = Short.MAX_VALUE;
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final boolean fsync;
+    private final List<Entry> pending = new ArrayList<>();
+    /** first tickets of the segments on disk, oldest first; the last one is active */
+    private final List<Long> segments = new ArrayList<>();
+
+    private long checkpoint;
+    private long nextTicket;
+    private FileChannel activeChannel;
+    private MappedByteBuffer active;
+
+    public BookingJournal(Path directory, int segmentBytes, boolean fsync) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.fsync = fsync;
+        Files.createDirectories(directory);
+        Path checkpointFile = directory.resolve(CHECKPOINT);
+        checkpoint = Files.exists(checkpointFile) ? Long.parseLong(Files.readString(checkpointFile).trim()) : 0;
+        nextTicket = checkpoint + 1;
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path segment : files.filter(f -> f.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted().collect(Collectors.toList())) {
+                segments.add(firstTicket(segment));
+                open(segment);
+                recover();
+            }
+        }
+        if (active == null) {
+            roll();
+        }
+    }
+
+    /**
+     * Requests journaled after the checkpoint, in ticket order.
+     */
+    public List<Entry> pending() {
+        return new ArrayList<>(pending);
+    }
+
+    public Entry append(Long appointmentId, String name, String phone) throws IOException {
+        byte[] nameBytes = field(name);
+        byte[] phoneBytes = field(phone);
+        int length = Long.BYTES * 2 + Short.BYTES * 2 + nameBytes.length + phoneBytes.length;
+        if (HEADER_BYTES + length + Integer.BYTES > segmentBytes)
+            throw new IllegalArgumentException("Booking request does not fit in a journal segment");
+        // a segment always keeps room for the zero length that ends it
+        if (active.remaining() < HEADER_BYTES + length + Integer.BYTES) {
+            roll();
+        }
+        long ticket = nextTicket;
+        ByteBuffer payload = ByteBuffer.allocate(length)
+                .putLong(ticket)
+                .putLong(appointmentId)
+                .putShort((short) nameBytes.length).put(nameBytes)
+                .putShort((short) phoneBytes.length).put(phoneBytes);
+        CRC32 crc = new CRC32();
+        crc.update(payload.array());
+        int start = active.position();
+        // the length is written last, so a record is invisible until it is complete
+        active.position(start + Integer.BYTES);
+        active.putInt((int) crc.getValue()).put(payload.array());
+        active.putInt(active.position(), 0);
+        active.putInt(start, length);
+        if (fsync) active.force();
+        nextTicket++;
+        return new Entry(ticket, appointmentId, name, phone);
+    }
+
+    /**
+     * Records that every ticket up to and including {@code ticket} has been applied.
+     */
+    public void checkpoint(long ticket) throws IOException {
+        if (ticket <= checkpoint) return;
+        Path temporary = directory.resolve(CHECKPOINT + ".tmp");
+        Files.writeString(temporary, Long.toString(ticket), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE, StandardOpenOption.SYNC);
+        Files.move(temporary, directory.resolve(CHECKPOINT), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        checkpoint = ticket;
+        // a segment is applied once the segment after it starts at or before the next ticket to apply
+        while (segments.size() > 1 && segments.get(1) <= checkpoint + 1) {
+            Files.deleteIfExists(segment(segments.remove(0)));
+        }
+    }
+
+    public long getCheckpoint() {
+        return checkpoint;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (active != null) active.force();
+        if (activeChannel != null) activeChannel.close();
+    }
+
+    private void recover() {
+        while (active.remaining() >= HEADER_BYTES) {
+            int start = active.position();
+            int length = active.getInt();
+            if (length <= 0 || length > active.remaining() - Integer.BYTES) {
+                active.position(start);
+                return;
+            }
+            int checksum = active.getInt();
+            byte[] payload = new byte[length];
+            active.get(payload);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if ((int) crc.getValue() != checksum) {
+                // torn write: drop it and everything after, appends continue from here
+                active.position(start);
+                active.putInt(start, 0);
+                return;
+            }
+            Entry entry = read(ByteBuffer.wrap(payload));
+            if (entry.getTicket() > checkpoint) {
+                pending.add(entry);
+            }
+            nextTicket = Math.max(nextTicket, entry.getTicket() + 1);
+        }
+    }
+
+    private void roll() throws IOException {
+        if (active != null && fsync) active.force();
+        segments.add(nextTicket);
+        open(segment(nextTicket));
+    }
+
+    private void open(Path segment) throws IOException {
+        if (activeChannel != null) activeChannel.close();
+        activeChannel = FileChannel.open(segment, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        active = activeChannel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+    }
+
+    private Path segment(long firstTicket) {
+        return directory.resolve(String.format("%020d%s", firstTicket, SEGMENT_SUFFIX));
+    }
+
+    private static long firstTicket(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static byte[] field(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_FIELD_BYTES) throw new IllegalArgumentException("Booking request field too long");
+        return bytes;
+    }
+
+    private static Entry read(ByteBuffer payload) {
+        long ticket = payload.getLong();
+        long appointmentId = payload.getLong();
+        byte[] name = new byte[payload.getShort()];
+        payload.get(name);
+        byte[] phone = new byte[payload.getShort()];
+        payload.get(phone);
+        return new Entry(ticket, appointmentId, new String(name, StandardCharsets.UTF_8),
+                new String(phone, StandardCharsets.UTF_8));
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Entry {
+        private final long ticket;
+        private final Long appointmentId;
+        private final String name;
+        private final String phone;
+    }
+}
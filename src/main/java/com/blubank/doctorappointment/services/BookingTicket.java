@@ -0,0 +1,28 @@
+package com.blubank.doctorappointment.services;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * State of a booking request accepted into the write-behind journal.
+ */
+@Getter
+@AllArgsConstructor
+public class BookingTicket {
+    public enum Status {
+        PENDING, BOOKED, REJECTED, FAILED
+    }
+
+    private final long ticket;
+    private final Long appointmentId;
+    private final Status status;
+    private final String message;
+
+    static BookingTicket pending(BookingJournal.Entry entry) {
+        return new BookingTicket(entry.getTicket(), entry.getAppointmentId(), Status.PENDING, null);
+    }
+
+    BookingTicket complete(Status status, String message) {
+        return new BookingTicket(ticket, appointmentId, status, message);
+    }
+}
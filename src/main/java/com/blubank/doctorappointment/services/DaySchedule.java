@@ -0,0 +1,90 @@
+package com.blubank.doctorappointment.services;
+
+import com.blubank.doctorappointment.repositories.projections.AppointmentSlot;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+/**
+ * Open slots of one doctor's day in two primitive arrays, the form availability is cached in.
+ * A slot is its id plus one int packing its start as minute of the day (high 16 bits) and its
+ * length in minutes (low 16 bits), twelve bytes per slot instead of an object holding two
+ * {@link LocalDateTime}s. Times are only materialized when a slot is mapped to the API shape.
+ * Slots are only added in windows of whole minutes, so no slot start carries seconds.
+ */
+public final class DaySchedule implements Serializable {
+    private static final int MAX_MINUTES = 0xFFFF;
+
+    private final long epochDay;
+    private final long[] ids;
+    private final int[] slots;
+
+    private DaySchedule(long epochDay, long[] ids, int[] slots) {
+        this.epochDay = epochDay;
+        this.ids = ids;
+        this.slots = slots;
+    }
+
+    /**
+     * @param open slots starting on {@code date}, in start order
+     */
+    public static DaySchedule of(LocalDate date, List<AppointmentSlot> open) {
+        LocalDateTime startOfDay = date.atStartOfDay();
+        long[] ids = new long[open.size()];
+        int[] slots = new int[open.size()];
+        for (int i = 0; i < slots.length; i++) {
+            AppointmentSlot slot = open.get(i);
+            ids[i] = slot.getId();
+            slots[i] = pack((int) ChronoUnit.MINUTES.between(startOfDay, slot.getStartTime()),
+                    (int) ChronoUnit.MINUTES.between(slot.getStartTime(), slot.getEndTime()));
+        }
+        return new DaySchedule(date.toEpochDay(), ids, slots);
+    }
+
+    public static int pack(int startMinute, int lengthMinutes) {
+        if (startMinute < 0 || startMinute > MAX_MINUTES || lengthMinutes < 0 || lengthMinutes > MAX_MINUTES)
+            throw new IllegalArgumentException("Slot does not fit the packed form");
+        return startMinute << 16 | lengthMinutes;
+    }
+
+    public LocalDate getDate() {
+        return LocalDate.ofEpochDay(epochDay);
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    public long id(int index) {
+        return ids[index];
+    }
+
+    public int startMinute(int index) {
+        return slots[index] >>> 16;
+    }
+
+    public int lengthMinutes(int index) {
+        return slots[index] & MAX_MINUTES;
+    }
+
+    public LocalDateTime getStartOfDay() {
+        return getDate().atStartOfDay();
+    }
+
+    /**
+     * @param startOfDay this day's {@link #getStartOfDay()}, computed once per mapping
+     */
+    public LocalDateTime startTime(LocalDateTime startOfDay, int index) {
+        return startOfDay.plusMinutes(startMinute(index));
+    }
+
+    /**
+     * @param startTime the slot's {@link #startTime(LocalDateTime, int)}
+     */
+    public LocalDateTime endTime(LocalDateTime startTime, int index) {
+        return startTime.plusMinutes(lengthMinutes(index));
+    }
+}
@@ -0,0 +1,188 @@
+package com.blubank.doctorappointment.services;
+
+import com.blubank.doctorappointment.exceptions.BadRequestException;
+import com.blubank.doctorappointment.exceptions.NotFoundException;
+import com.blubank.doctorappointment.models.Appointment;
+import com.blubank.doctorappointment.models.Doctor;
+import com.blubank.doctorappointment.models.DoctorDaySummary;
+import com.blubank.doctorappointment.repositories.AppointmentRepository;
+import com.blubank.doctorappointment.repositories.DoctorDaySummaryRepository;
+import com.blubank.doctorappointment.repositories.DoctorRepository;
+import com.blubank.doctorappointment.repositories.projections.AppointmentSlot;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Maintains {@link DoctorDaySummary} rows. The update methods must run inside the transaction
+ * that changed the appointments, so a summary always commits or rolls back with its slots.
+ * Counts change through single conditional updates, so a booking neither reads nor locks the
+ * summary row before writing it. New rows are only created while the doctor row is locked, so
+ * concurrent writers never race to insert the same day.
+ * <p>
+ * Every write marks its day pending, and a periodic recount rebuilds pending days from their
+ * appointments; that is when the half-hour bits of closed slots are cleared.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DoctorDaySummaryService {
+    public static final int MAX_WEEKS = 26;
+    static final int RECOUNT_BATCH = 500;
+
+    private final DoctorDaySummaryRepository summaryRepository;
+    private final DoctorRepository doctorRepository;
+    private final AppointmentRepository appointmentRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${appointment.day-summary.backfill-on-startup:true}")
+    private boolean backfillOnStartup = true;
+
+    public void slotsAdded(Doctor doctor, List<Appointment> appointments) {
+        if (appointments.isEmpty()) return;
+        Doctor locked = doctorRepository.lockById(doctor.getId())
+                .orElseThrow(() -> new NotFoundException("Doctor not found"));
+        // days in order, so writers covering several days lock them in the same order
+        Map<LocalDate, List<Appointment>> byDate = appointments.stream()
+                .collect(Collectors.groupingBy(appointment -> appointment.getStartTime().toLocalDate(),
+                        TreeMap::new, Collectors.toList()));
+        byDate.forEach((date, slots) -> {
+            long bits = 0;
+            for (Appointment slot : slots) {
+                bits |= bit(slot.getStartTime());
+            }
+            if (summaryRepository.addSlots(locked.getId(), date, slots.size(), bits) == 0) {
+                summaryRepository.save(newSummary(locked, date, slots.size(), bits));
+            }
+        });
+    }
+
+    public void slotBooked(Long doctorId, LocalDateTime startTime) {
+        slotClosed(doctorId, startTime, 0);
+    }
+
+    public void slotDeleted(Long doctorId, LocalDateTime startTime) {
+        slotClosed(doctorId, startTime, -1);
+    }
+
+    /**
+     * Days from {@code from} on, over the given number of weeks, that still have open slots.
+     */
+    public List<DoctorDaySummary> getAvailableDays(Long doctorId, LocalDate from, int weeks) {
+        if (weeks < 1 || weeks > MAX_WEEKS)
+            throw new BadRequestException("weeks must be between 1 and " + MAX_WEEKS);
+        if (!doctorRepository.existsById(doctorId))
+            throw new NotFoundException("Doctor not found");
+        return summaryRepository.findAvailableDays(doctorId, from, from.plusWeeks(weeks));
+    }
+
+    /**
+     * Rebuilds the counts and mask of pending days from their appointments. A day written again
+     * while it is recounted stays pending and is picked up by the next run.
+     */
+    @Scheduled(fixedDelayString = "${appointment.day-summary.recount-interval-ms:5000}",
+            initialDelayString = "${appointment.day-summary.recount-interval-ms:5000}")
+    public void recountPendingDays() {
+        List<DoctorDaySummary> pending;
+        int stored;
+        do {
+            pending = summaryRepository.findPendingRecount(PageRequest.of(0, RECOUNT_BATCH));
+            stored = 0;
+            for (DoctorDaySummary summary : pending) {
+                stored += recount(summary);
+            }
+        } while (pending.size() == RECOUNT_BATCH && stored > 0);
+    }
+
+    /**
+     * Creates the day summaries of doctors whose appointments were written before summaries
+     * were kept. The rows start empty and pending, so the recount fills them in, including any
+     * booking that raced the backfill.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillOnStartup() {
+        if (!backfillOnStartup) return;
+        List<Long> doctorIds = appointmentRepository.findDoctorsWithoutDaySummaries();
+        for (Long doctorId : doctorIds) {
+            transactionTemplate.executeWithoutResult(status -> backfill(doctorId));
+        }
+        if (!doctorIds.isEmpty()) {
+            log.info("Backfilled the day summaries of {} doctors", doctorIds.size());
+        }
+    }
+
+    public static long bit(LocalDateTime startTime) {
+        return 1L << ((startTime.getHour() * 60 + startTime.getMinute()) / 30);
+    }
+
+    void backfill(Long doctorId) {
+        Doctor locked = doctorRepository.lockById(doctorId)
+                .orElseThrow(() -> new NotFoundException("Doctor not found"));
+        Set<LocalDate> summarized = new HashSet<>(summaryRepository.findDates(doctorId));
+        appointmentRepository.findStartTimes(doctorId).stream()
+                .map(LocalDateTime::toLocalDate)
+                .distinct()
+                .filter(date -> !summarized.contains(date))
+                .forEach(date -> {
+                    DoctorDaySummary summary = newSummary(locked, date, 0, 0);
+                    summary.setPendingChanges(1);
+                    summaryRepository.save(summary);
+                });
+    }
+
+    int recount(DoctorDaySummary summary) {
+        Long doctorId = summary.getDoctor().getId();
+        LocalDateTime start = summary.getDate().atStartOfDay();
+        // read after the pending count, so a write the reads miss has always bumped it
+        List<AppointmentSlot> open = appointmentRepository.findOpenSlots(doctorId, start, start.plusDays(1));
+        long total = appointmentRepository.countSlots(doctorId, start, start.plusDays(1));
+        long mask = 0;
+        for (AppointmentSlot slot : open) {
+            mask |= bit(slot.getStartTime());
+        }
+        return summaryRepository.storeRecount(summary.getId(), summary.getPendingChanges(),
+                (int) total, open.size(), mask);
+    }
+
+    /**
+     * Takes an open slot out of its day. Its half-hour bit is cleared by the recount, once it
+     * knows whether another open slot starts in the same half hour. A day without a summary gets
+     * an empty pending one, which the recount fills in from its appointments.
+     */
+    private void slotClosed(Long doctorId, LocalDateTime startTime, int totalDelta) {
+        LocalDate date = startTime.toLocalDate();
+        if (summaryRepository.closeSlot(doctorId, date, totalDelta) > 0) return;
+        Doctor locked = doctorRepository.lockById(doctorId)
+                .orElseThrow(() -> new NotFoundException("Doctor not found"));
+        // another writer may have created the day while we waited for the lock
+        if (summaryRepository.closeSlot(doctorId, date, totalDelta) > 0) return;
+        DoctorDaySummary summary = newSummary(locked, date, 0, 0);
+        summary.setPendingChanges(1);
+        summaryRepository.save(summary);
+    }
+
+    private DoctorDaySummary newSummary(Doctor doctor, LocalDate date, int slots, long mask) {
+        DoctorDaySummary summary = new DoctorDaySummary();
+        summary.setDoctor(doctor);
+        summary.setDate(date);
+        summary.setTotalSlots(slots);
+        summary.setOpenSlots(slots);
+        summary.setOpenMask(mask);
+        return summary;
+    }
+}
@@ -5,15 +5,17 @@ import com.blubank.doctorappointment.exceptions.ConflictException;
 import com.blubank.doctorappointment.exceptions.NotFoundException;
 import com.blubank.doctorappointment.models.Appointment;
 import com.blubank.doctorappointment.models.Doctor;
+import com.blubank.doctorappointment.models.SlotPolicy;
 import com.blubank.doctorappointment.payloads.requests.CreateDoctorDto;
 import com.blubank.doctorappointment.repositories.DoctorRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -21,8 +23,16 @@ import java.util.List;
 @Service
 @RequiredArgsConstructor
 public class DoctorService {
+    public static final int MAX_EXPORT_DAYS = 31;
+
     private final DoctorRepository doctorRepository;
     private final AppointmentService appointmentService;
+    private final AppointmentMetrics appointmentMetrics;
+    private final OptimisticLockRetry optimisticLockRetry;
+    private final SlotPolicyService slotPolicyService;
+
+    @Value("${appointment.slots.max-window-hours:24}")
+    private int maxWindowHours = 24;
 
     public Doctor create(CreateDoctorDto dto) {
         Doctor doctor = new Doctor();
@@ -30,35 +40,75 @@ public class DoctorService {
         return doctorRepository.save(doctor);
     }
 
-    public List<Appointment> addAppointments(Long doctorId, LocalDateTime startTime, LocalDateTime endTime) {
-        Doctor doctor = getDoctor(doctorId);
+    public List<Appointment> addAppointments(Long doctorId, LocalDateTime startTime, LocalDateTime endTime,
+                                             OverlapMode overlapMode) {
+        return appointmentMetrics.record(AppointmentMetrics.ADD_APPOINTMENTS, () -> {
+            Doctor doctor = getDoctor(doctorId);
+            SlotPolicy policy = slotPolicyService.getPolicy(doctorId);
+            if (!hasSlots(policy, startTime, endTime)) return new ArrayList<>();
+            return appointmentService.addAppointments(doctor, policy, startTime, endTime, overlapMode);
+        });
+    }
+
+    /**
+     * Validates an appointment window and tells whether it is long enough to hold a slot of
+     * the doctor's policy.
+     *
+     * @throws BadRequestException when the window is reversed, longer than the configured maximum
+     *                             or not in whole minutes
+     */
+    protected boolean hasSlots(SlotPolicy policy, LocalDateTime startTime, LocalDateTime endTime) {
         boolean isNotValidTimeRange = endTime.isBefore(startTime)
-                || Duration.between(startTime, endTime).toHours() > 24;
+                || Duration.between(startTime, endTime).toHours() > maxWindowHours;
         if (isNotValidTimeRange) {
             throw new BadRequestException("Invalid time range");
         }
-        if(Duration.between(startTime, endTime).toMinutes() < 30) return new ArrayList<>();
-        return appointmentService.addAppointments(doctor, startTime, endTime);
+        // slot starts are cached as minutes of the day, see DaySchedule
+        if (!startTime.truncatedTo(ChronoUnit.MINUTES).equals(startTime)
+                || !endTime.truncatedTo(ChronoUnit.MINUTES).equals(endTime)) {
+            throw new BadRequestException("startTime and endTime must be whole minutes");
+        }
+        return Duration.between(startTime, endTime).toMinutes() >= policy.getSlotMinutes();
     }
 
-    public List<Appointment> getDoctorAppointments(Long doctorId, LocalDateTime date) {
-        Doctor doctor = getDoctor(doctorId);
-        LocalDateTime startOfDay = date.toLocalDate().atStartOfDay();
-        LocalDateTime endOfDay = startOfDay.plusDays(1);
-        return appointmentService.getDoctorAppointments(doctor, startOfDay, endOfDay);
+    /**
+     * Tag of the doctor's appointments on a date; it changes whenever they do.
+     */
+    public String getDoctorAppointmentsETag(Long doctorId, LocalDateTime date) {
+        return appointmentService.getDayETag(doctorId, date.toLocalDate());
+    }
+
+    /**
+     * Validates a doctor's appointment export range; the export itself is streamed.
+     *
+     * @throws BadRequestException when the range is empty, reversed or longer than {@value #MAX_EXPORT_DAYS} days
+     */
+    public Doctor getDoctorForExport(Long doctorId, LocalDateTime from, LocalDateTime to) {
+        if (!from.isBefore(to)) {
+            throw new BadRequestException("from must be before to");
+        }
+        if (from.plusDays(MAX_EXPORT_DAYS).isBefore(to)) {
+            throw new BadRequestException("range must not exceed " + MAX_EXPORT_DAYS + " days");
+        }
+        return getDoctor(doctorId);
     }
 
     public Doctor getDoctor(Long doctorId) {
         return doctorRepository.findById(doctorId).orElseThrow(() -> new NotFoundException("Doctor not found"));
     }
 
-    @Transactional(readOnly = true)
+    /**
+     * Deletes an open appointment. Every attempt runs in its own transaction, so a lost
+     * optimistic-lock race is retried against a fresh read before it becomes a conflict.
+     */
     public void deleteAppointment(Long appointmentId) {
-        try {
-            appointmentService.deleteAppointment(appointmentId);
-        }catch (ObjectOptimisticLockingFailureException e){
-            throw new ConflictException("Appointment is being modified by another transaction");
-        }
-
+        appointmentMetrics.record(AppointmentMetrics.DELETE, () -> {
+            try {
+                optimisticLockRetry.execute(AppointmentMetrics.DELETE,
+                        () -> appointmentService.deleteAppointment(appointmentId));
+            }catch (ObjectOptimisticLockingFailureException e){
+                throw new ConflictException("Appointment is being modified by another transaction");
+            }
+        });
     }
 }
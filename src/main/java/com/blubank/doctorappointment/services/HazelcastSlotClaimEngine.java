@@ -0,0 +1,140 @@
+package com.blubank.doctorappointment.services;
+
+import com.blubank.doctorappointment.repositories.AppointmentRepository;
+import com.hazelcast.cluster.MembershipEvent;
+import com.hazelcast.cluster.MembershipListener;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.map.EntryProcessor;
+import com.hazelcast.map.ExtendedMapEntry;
+import com.hazelcast.map.IMap;
+import com.hazelcast.query.Predicates;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cluster-wide claim engine: claims live in a partitioned Hazelcast map keyed by appointment id,
+ * so every node sees the same claims and a slot can only be claimed once across the cluster.
+ * Claim, commit and release run as entry processors on the partition owner, which makes each
+ * of them a single atomic step without locks.
+ * <p>
+ * An in-flight claim holds the uuid of the member that took it and expires after the claim
+ * timeout; when that member leaves the cluster its in-flight claims are dropped at once. A
+ * committed claim is backed by a booked row and lives for the long claim ttl. Claims of booked
+ * appointments that are still ahead are restored as committed on startup, which is idempotent
+ * when the cluster already holds them. The optimistic lock still rejects a late duplicate.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "appointment.booking.engine", havingValue = "hazelcast")
+public class HazelcastSlotClaimEngine implements SlotClaimEngine, MembershipListener {
+    public static final String CLAIMS_MAP = "appointment-slot-claims";
+    static final String COMMITTED = "committed";
+
+    private final AppointmentRepository appointmentRepository;
+    private final IMap<Long, String> claims;
+    private final String localMember;
+    private final long claimTimeoutSeconds;
+    private final long claimTtlSeconds;
+
+    public HazelcastSlotClaimEngine(AppointmentRepository appointmentRepository, HazelcastInstance hazelcastInstance,
+                                    @Value("${appointment.booking.claim-timeout-seconds:60}") long claimTimeoutSeconds,
+                                    @Value("${appointment.booking.claim-ttl-seconds:86400}") long claimTtlSeconds) {
+        this.appointmentRepository = appointmentRepository;
+        this.claims = hazelcastInstance.getMap(CLAIMS_MAP);
+        this.localMember = hazelcastInstance.getCluster().getLocalMember().getUuid().toString();
+        this.claimTimeoutSeconds = claimTimeoutSeconds;
+        this.claimTtlSeconds = claimTtlSeconds;
+        hazelcastInstance.getCluster().addMembershipListener(this);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void recover() {
+        List<Long> bookedIds = appointmentRepository.findBookedIdsFrom(LocalDateTime.now());
+        if (!bookedIds.isEmpty()) {
+            claims.executeOnKeys(new HashSet<>(bookedIds), new Commit(claimTtlSeconds));
+        }
+        log.info("Restored {} booked slot claims", bookedIds.size());
+    }
+
+    @Override
+    public boolean tryClaim(Long appointmentId) {
+        return claims.executeOnKey(appointmentId, new Claim(localMember, claimTimeoutSeconds));
+    }
+
+    @Override
+    public void release(Long appointmentId) {
+        claims.executeOnKey(appointmentId, new Release());
+    }
+
+    @Override
+    public void commit(Long appointmentId) {
+        claims.executeOnKey(appointmentId, new Commit(claimTtlSeconds));
+    }
+
+    @Override
+    public void memberAdded(MembershipEvent event) {
+    }
+
+    /**
+     * Every remaining member runs this; removing the same claims twice is harmless.
+     */
+    @Override
+    public void memberRemoved(MembershipEvent event) {
+        UUID member = event.getMember().getUuid();
+        claims.removeAll(Predicates.equal("this", member.toString()));
+        log.info("Released the in-flight slot claims of departed member {}", member);
+    }
+
+    private static class Claim implements EntryProcessor<Long, String, Boolean> {
+        private final String member;
+        private final long timeoutSeconds;
+
+        Claim(String member, long timeoutSeconds) {
+            this.member = member;
+            this.timeoutSeconds = timeoutSeconds;
+        }
+
+        @Override
+        public Boolean process(Map.Entry<Long, String> entry) {
+            if (entry.getValue() != null) return false;
+            ((ExtendedMapEntry<Long, String>) entry).setValue(member, timeoutSeconds, TimeUnit.SECONDS);
+            return true;
+        }
+    }
+
+    private static class Commit implements EntryProcessor<Long, String, Boolean> {
+        private final long ttlSeconds;
+
+        Commit(long ttlSeconds) {
+            this.ttlSeconds = ttlSeconds;
+        }
+
+        @Override
+        public Boolean process(Map.Entry<Long, String> entry) {
+            if (COMMITTED.equals(entry.getValue())) return false;
+            ((ExtendedMapEntry<Long, String>) entry).setValue(COMMITTED, ttlSeconds, TimeUnit.SECONDS);
+            return true;
+        }
+    }
+
+    private static class Release implements EntryProcessor<Long, String, Boolean> {
+        @Override
+        public Boolean process(Map.Entry<Long, String> entry) {
+            boolean claimed = entry.getValue() != null;
+            // a null value removes the entry
+            entry.setValue(null);
+            return claimed;
+        }
+    }
+}
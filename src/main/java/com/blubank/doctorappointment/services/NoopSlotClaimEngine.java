@@ -0,0 +1,21 @@
+package com.blubank.doctorappointment.services;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Default engine: every claim is granted and the optimistic lock alone settles races.
+ */
+@Component
+@ConditionalOnProperty(name = "appointment.booking.engine", havingValue = "none", matchIfMissing = true)
+public class NoopSlotClaimEngine implements SlotClaimEngine {
+
+    @Override
+    public boolean tryClaim(Long appointmentId) {
+        return true;
+    }
+
+    @Override
+    public void release(Long appointmentId) {
+    }
+}
@@ -0,0 +1,90 @@
+package com.blubank.doctorappointment.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Retries an operation that lost an optimistic-lock race, with a bounded number of attempts and
+ * full-jitter exponential backoff configured per operation.
+ * <p>
+ * Each attempt must run in its own transaction and re-read the entity it changes, so business
+ * checks such as "the slot has no patient yet" are made again against the committed state; a
+ * retry can therefore never double-book. Any other exception ends the call at once.
+ */
+@Component
+public class OptimisticLockRetry {
+    private final AppointmentMetrics appointmentMetrics;
+    private final Map<String, Policy> policies;
+
+    public OptimisticLockRetry(AppointmentMetrics appointmentMetrics,
+                               @Value("${appointment.retry.book.max-attempts:3}") int bookMaxAttempts,
+                               @Value("${appointment.retry.book.initial-backoff-ms:10}") long bookInitialBackoffMs,
+                               @Value("${appointment.retry.book.max-backoff-ms:100}") long bookMaxBackoffMs,
+                               @Value("${appointment.retry.delete.max-attempts:3}") int deleteMaxAttempts,
+                               @Value("${appointment.retry.delete.initial-backoff-ms:10}") long deleteInitialBackoffMs,
+                               @Value("${appointment.retry.delete.max-backoff-ms:100}") long deleteMaxBackoffMs) {
+        this.appointmentMetrics = appointmentMetrics;
+        this.policies = Map.of(
+                AppointmentMetrics.BOOK, new Policy(bookMaxAttempts, bookInitialBackoffMs, bookMaxBackoffMs),
+                AppointmentMetrics.DELETE, new Policy(deleteMaxAttempts, deleteInitialBackoffMs, deleteMaxBackoffMs));
+    }
+
+    public <T> T execute(String operation, Supplier<T> attempt) {
+        Policy policy = policies.get(operation);
+        if (policy == null) {
+            throw new IllegalArgumentException("No retry policy for " + operation);
+        }
+        int retries = 0;
+        try {
+            while (true) {
+                try {
+                    return attempt.get();
+                } catch (OptimisticLockingFailureException e) {
+                    if (retries + 1 >= policy.maxAttempts) {
+                        appointmentMetrics.optimisticLockGiveUp(operation);
+                        throw e;
+                    }
+                    retries++;
+                    backoff(policy, retries, e);
+                }
+            }
+        } finally {
+            appointmentMetrics.optimisticLockRetries(operation, retries);
+        }
+    }
+
+    public void execute(String operation, Runnable attempt) {
+        execute(operation, () -> {
+            attempt.run();
+            return null;
+        });
+    }
+
+    private static void backoff(Policy policy, int retry, OptimisticLockingFailureException cause) {
+        long ceiling = Math.min(policy.maxBackoffMs, policy.initialBackoffMs << Math.min(retry - 1, 20));
+        if (ceiling <= 0) return;
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw cause;
+        }
+    }
+
+    private static class Policy {
+        private final int maxAttempts;
+        private final long initialBackoffMs;
+        private final long maxBackoffMs;
+
+        Policy(int maxAttempts, long initialBackoffMs, long maxBackoffMs) {
+            this.maxAttempts = Math.max(1, maxAttempts);
+            this.initialBackoffMs = initialBackoffMs;
+            this.maxBackoffMs = maxBackoffMs;
+        }
+    }
+}
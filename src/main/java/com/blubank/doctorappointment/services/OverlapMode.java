@@ -0,0 +1,12 @@
+package com.blubank.doctorappointment.services;
+
+/**
+ * What adding an appointment window does with slots that overlap appointments the doctor
+ * already has.
+ */
+public enum OverlapMode {
+    /** the whole window is refused */
+    REJECT,
+    /** only the slots that overlap nothing are added */
+    MERGE
+}
@@ -1,58 +1,194 @@
 package com.blubank.doctorappointment.services;
 
+import com.blubank.doctorappointment.exceptions.AppointmentTakenException;
 import com.blubank.doctorappointment.exceptions.BadRequestException;
 import com.blubank.doctorappointment.exceptions.ConflictException;
 import com.blubank.doctorappointment.exceptions.NotFoundException;
 import com.blubank.doctorappointment.models.Appointment;
+import com.blubank.doctorappointment.models.DoctorDaySummary;
 import com.blubank.doctorappointment.models.Patient;
+import com.blubank.doctorappointment.payloads.requests.AppointmentCursor;
 import com.blubank.doctorappointment.payloads.requests.CreatePatientDto;
 import com.blubank.doctorappointment.repositories.PatientRepository;
+import com.blubank.doctorappointment.repositories.projections.SlotLocation;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Slice;
 import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 
-
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 @Service
 @RequiredArgsConstructor
 public class PatientService {
+    public static final int MAX_PAGE_SIZE = 200;
+    public static final int MAX_SEARCH_RESULTS = 100;
+    public static final int MAX_SEARCH_DOCTORS = 50;
+    public static final int MAX_SEARCH_DAYS = 31;
+    private static final LocalDateTime EARLIEST = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime LATEST = LocalDateTime.of(9999, 12, 31, 0, 0);
 
     private final PatientRepository patientRepository;
     private final AppointmentService appointmentService;
+    private final SlotClaimEngine slotClaimEngine;
+    private final AppointmentMetrics appointmentMetrics;
+    private final OptimisticLockRetry optimisticLockRetry;
+    private final DoctorDaySummaryService doctorDaySummaryService;
+    private final ScheduleService scheduleService;
+    /** phone -> patient id of returning patients; patients are never deleted, so entries never go stale */
+    private final ConcurrentMap<String, Long> patientIdsByPhone = new ConcurrentHashMap<>();
+
+    @Value("${appointment.patient-cache.max-size:100000}")
+    private int patientCacheMaxSize = 100_000;
 
     public Patient create(CreatePatientDto dto) {
         Patient patient = new Patient();
         patient.setName(dto.getName());
         patient.setPhone(dto.getPhone());
-        return patientRepository.save(patient);
+        try {
+            return patientRepository.save(patient);
+        } catch (DataIntegrityViolationException e) {
+            throw new ConflictException("Patient with this phone already exists");
+        }
     }
 
 
-    public List<Appointment> getPatientAppointments(String patientPhone) {
+    /**
+     * Returns one keyset page of a patient's appointments ordered by (startTime, id),
+     * optionally restricted to {@code [from, to)}.
+     */
+    public Slice<Appointment> getPatientAppointments(String patientPhone, AppointmentCursor after,
+                                                     LocalDateTime from, LocalDateTime to, int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE)
+            throw new BadRequestException("size must be between 1 and " + MAX_PAGE_SIZE);
         Patient patient = getPatientByPhone(patientPhone)
                 .orElseThrow(() -> new NotFoundException("Patient not found"));
-        return patient.getAppointments();
+        return appointmentService.getPatientAppointments(patient.getId(), after,
+                from == null ? EARLIEST : from, to == null ? LATEST : to, size);
     }
 
     public Appointment bookAppointment(Long appointmentId,CreatePatientDto dto) {
+        return appointmentMetrics.record(AppointmentMetrics.BOOK, () -> book(appointmentId, dto));
+    }
+
+    private Appointment book(Long appointmentId, CreatePatientDto dto) {
         if(dto.getPhone() == null || dto.getName() == null)
             throw new BadRequestException("name and phone required.");
-        Patient patient = getPatientByPhone(dto.getPhone())
-                .orElse(create(dto));
+        if (!slotClaimEngine.tryClaim(appointmentId))
+            throw new AppointmentTakenException("Appointment is already taken");
         try {
-            return appointmentService.bookAppointment(appointmentId, patient);
+            Patient patient = getOrCreatePatient(dto);
+            Appointment booked = optimisticLockRetry.execute(AppointmentMetrics.BOOK,
+                    () -> appointmentService.bookAppointment(appointmentId, patient));
+            slotClaimEngine.commit(appointmentId);
+            return booked;
+        } catch (BadRequestException e) {
+            // the slot is taken in the database, so the claim stays
+            slotClaimEngine.commit(appointmentId);
+            throw e;
         } catch (ObjectOptimisticLockingFailureException e) {
+            slotClaimEngine.release(appointmentId);
             throw new ConflictException("Appointment is being modified by another transaction");
+        } catch (RuntimeException e) {
+            slotClaimEngine.release(appointmentId);
+            throw e;
         }
     }
 
-    public List<Appointment> getDoctorAppointments(Long doctorId, LocalDateTime date) {
-        LocalDateTime startOfDay = date.toLocalDate().atStartOfDay();
-        LocalDateTime endOfDay = startOfDay.plusDays(1);
-        return appointmentService.getDoctorAppointmentsForPatient(doctorId, startOfDay, endOfDay);
+    /**
+     * Books a slot offered by the doctor's weekly schedule; its appointment row is written now.
+     */
+    public Appointment bookScheduledSlot(Long doctorId, LocalDateTime startTime, CreatePatientDto dto) {
+        return appointmentMetrics.record(AppointmentMetrics.BOOK, () -> {
+            if (dto.getPhone() == null || dto.getName() == null)
+                throw new BadRequestException("name and phone required.");
+            Patient patient = getOrCreatePatient(dto);
+            return scheduleService.bookSlot(doctorId, startTime, patient);
+        });
+    }
+
+    public List<SlotLocation> getScheduledSlots(Long doctorId, LocalDate date) {
+        return scheduleService.getOpenSlots(doctorId, date);
+    }
+
+    public DaySchedule getDoctorAppointments(Long doctorId, LocalDateTime date) {
+        return appointmentService.getDoctorAppointmentsForPatient(doctorId, date.toLocalDate());
+    }
+
+    /**
+     * Tag of the doctor's open appointments on a date; it changes whenever they do.
+     */
+    public String getDoctorAppointmentsETag(Long doctorId, LocalDateTime date) {
+        return appointmentService.getDayETag(doctorId, date.toLocalDate());
+    }
+
+    /**
+     * Returns the earliest {@code limit} open slots in {@code [from, to)} across the given
+     * doctors, or across all doctors when none are given, ordered by start time. The range,
+     * doctor list and limit are bounded so a search never scans more than a month of slots.
+     */
+    public List<SlotLocation> searchOpenSlots(LocalDateTime from, LocalDateTime to, List<Long> doctorIds, int limit) {
+        return appointmentService.getEarliestOpenSlots(checkSearch(from, to, doctorIds, limit), from, to, limit);
+    }
+
+    /**
+     * Validates an open slot search.
+     *
+     * @return the doctors to search, empty to search all doctors
+     */
+    public Set<Long> checkSearch(LocalDateTime from, LocalDateTime to, List<Long> doctorIds, int limit) {
+        if (from == null || to == null || !from.isBefore(to))
+            throw new BadRequestException("from must be before to");
+        if (from.plusDays(MAX_SEARCH_DAYS).isBefore(to))
+            throw new BadRequestException("range must not exceed " + MAX_SEARCH_DAYS + " days");
+        if (limit < 1 || limit > MAX_SEARCH_RESULTS)
+            throw new BadRequestException("limit must be between 1 and " + MAX_SEARCH_RESULTS);
+        Set<Long> doctors = doctorIds == null ? Set.of() : new HashSet<>(doctorIds);
+        if (doctors.size() > MAX_SEARCH_DOCTORS)
+            throw new BadRequestException("at most " + MAX_SEARCH_DOCTORS + " doctors can be searched");
+        return doctors;
+    }
+
+    /**
+     * Days from today on, over the given number of weeks, on which the doctor has open slots.
+     */
+    public List<DoctorDaySummary> getDoctorAvailability(Long doctorId, int weeks) {
+        return doctorDaySummaryService.getAvailableDays(doctorId, LocalDate.now(), weeks);
+    }
+
+    /**
+     * Resolves the booking patient by phone. Returning patients are served from an in-process
+     * phone to id map as a reference without any query; new ones are inserted with a single
+     * conditional merge, so concurrent first bookings never create duplicates. The merge of the
+     * losing booking can still hit the unique phone, in which case the winner's row is read.
+     */
+    protected Patient getOrCreatePatient(CreatePatientDto dto) {
+        Long patientId = patientIdsByPhone.get(dto.getPhone());
+        if (patientId != null) {
+            return patientRepository.getReferenceById(patientId);
+        }
+        Patient patient = getPatientByPhone(dto.getPhone()).orElseGet(() -> {
+            try {
+                patientRepository.insertIfAbsent(dto.getPhone(), dto.getName());
+            } catch (DataIntegrityViolationException e) {
+                // a concurrent first booking inserted the phone between the merge's check and its insert
+            }
+            return getPatientByPhone(dto.getPhone())
+                    .orElseThrow(() -> new NotFoundException("Patient not found"));
+        });
+        if (patient.getId() != null && patientIdsByPhone.size() < patientCacheMaxSize) {
+            patientIdsByPhone.put(dto.getPhone(), patient.getId());
+        }
+        return patient;
     }
 
     protected Optional<Patient> getPatientByPhone(String patientPhone) {
@@ -0,0 +1,45 @@
+package com.blubank.doctorappointment.services;
+
+import com.blubank.doctorappointment.exceptions.NotFoundException;
+import com.blubank.doctorappointment.models.Appointment;
+import com.blubank.doctorappointment.repositories.ReactiveAppointmentRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Non-blocking counterparts of the patient and doctor day views, enabled with the
+ * {@code reactive} profile. They read the database on every request; the availability cache
+ * and its version counters are only kept by the blocking reads and the writers.
+ */
+@Profile("reactive")
+@Service
+@RequiredArgsConstructor
+public class ReactiveAvailabilityService {
+    private final ReactiveAppointmentRepository reactiveAppointmentRepository;
+
+    /**
+     * A doctor's open slots on a date; an unknown doctor has none, as in the blocking view.
+     */
+    public Flux<Appointment> getOpenSlots(Long doctorId, LocalDate date) {
+        LocalDateTime startOfDay = date.atStartOfDay();
+        return reactiveAppointmentRepository.findOpenSlots(doctorId, startOfDay, startOfDay.plusDays(1));
+    }
+
+    /**
+     * All of a doctor's appointments on a date with their patients.
+     *
+     * @throws NotFoundException through the returned flux when the doctor does not exist
+     */
+    public Flux<Appointment> getDoctorAppointments(Long doctorId, LocalDate date) {
+        LocalDateTime startOfDay = date.atStartOfDay();
+        return reactiveAppointmentRepository.existsDoctor(doctorId)
+                .flatMapMany(exists -> exists
+                        ? reactiveAppointmentRepository.findDoctorAppointments(doctorId, startOfDay, startOfDay.plusDays(1))
+                        : Flux.error(new NotFoundException("Doctor not found")));
+    }
+}
@@ -0,0 +1,220 @@
+package com.blubank.doctorappointment.services;
+
+import com.blubank.doctorappointment.exceptions.AppointmentTakenException;
+import com.blubank.doctorappointment.exceptions.BadRequestException;
+import com.blubank.doctorappointment.exceptions.NotFoundException;
+import com.blubank.doctorappointment.models.Appointment;
+import com.blubank.doctorappointment.models.Doctor;
+import com.blubank.doctorappointment.models.Patient;
+import com.blubank.doctorappointment.models.ScheduleException;
+import com.blubank.doctorappointment.models.ScheduleWindow;
+import com.blubank.doctorappointment.models.SlotPolicy;
+import com.blubank.doctorappointment.payloads.requests.ScheduleExceptionDto;
+import com.blubank.doctorappointment.payloads.requests.ScheduleWindowDto;
+import com.blubank.doctorappointment.repositories.AppointmentRepository;
+import com.blubank.doctorappointment.repositories.DoctorRepository;
+import com.blubank.doctorappointment.repositories.ScheduleExceptionRepository;
+import com.blubank.doctorappointment.repositories.ScheduleWindowRepository;
+import com.blubank.doctorappointment.repositories.projections.AppointmentSlot;
+import com.blubank.doctorappointment.repositories.projections.SlotLocation;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Recurring weekly schedules. A doctor's weekly windows, split by the doctor's {@link SlotPolicy}
+ * and minus the exceptions on a date, give the slots offered on that date; they are computed on
+ * every read and only become appointment rows when booked. A slot that overlaps any appointment
+ * row of the doctor, open or booked, is not offered, so explicitly added appointments take
+ * precedence over the schedule.
+ * <p>
+ * Booking and changing the weekly windows lock the doctor row, so a slot is materialized at
+ * most once and never against a schedule that is being replaced.
+ * <p>
+ * Offered slots are only listed by {@link #getOpenSlots}. The availability endpoint, the open
+ * slot search and the patient day view read appointment rows and day summaries, so they do not
+ * show a slot until it is booked.
+ */
+@Service
+@RequiredArgsConstructor
+public class ScheduleService {
+    private final ScheduleWindowRepository windowRepository;
+    private final ScheduleExceptionRepository exceptionRepository;
+    private final DoctorRepository doctorRepository;
+    private final AppointmentRepository appointmentRepository;
+    private final SlotPolicyService slotPolicyService;
+    private final SlotGenerator slotGenerator;
+    private final AvailabilityCache availabilityCache;
+    private final DoctorDaySummaryService doctorDaySummaryService;
+
+    /**
+     * Replaces all weekly windows of a doctor. Appointments already booked from the previous
+     * schedule are kept.
+     *
+     * @throws BadRequestException when a window is incomplete, empty, not in whole minutes or overlaps
+     *                             another on the same day
+     */
+    @Transactional
+    public List<ScheduleWindow> replaceWeeklySchedule(Long doctorId, List<ScheduleWindowDto> windows) {
+        if (windows == null || windows.stream().anyMatch(window -> window == null || window.getDayOfWeek() == null
+                || window.getStartTime() == null || window.getEndTime() == null))
+            throw new BadRequestException("dayOfWeek, startTime and endTime required.");
+        List<ScheduleWindowDto> sorted = windows.stream()
+                .sorted(Comparator.comparing(ScheduleWindowDto::getDayOfWeek)
+                        .thenComparing(ScheduleWindowDto::getStartTime))
+                .collect(Collectors.toList());
+        for (int i = 0; i < sorted.size(); i++) {
+            ScheduleWindowDto window = sorted.get(i);
+            if (!window.getStartTime().isBefore(window.getEndTime()))
+                throw new BadRequestException("Invalid time range");
+            if (!window.getStartTime().truncatedTo(ChronoUnit.MINUTES).equals(window.getStartTime())
+                    || !window.getEndTime().truncatedTo(ChronoUnit.MINUTES).equals(window.getEndTime()))
+                throw new BadRequestException("startTime and endTime must be whole minutes");
+            ScheduleWindowDto previous = i == 0 ? null : sorted.get(i - 1);
+            if (previous != null && previous.getDayOfWeek() == window.getDayOfWeek()
+                    && previous.getEndTime().isAfter(window.getStartTime()))
+                throw new BadRequestException("Schedule windows must not overlap");
+        }
+        Doctor doctor = lockDoctor(doctorId);
+        windowRepository.deleteByDoctorId(doctorId);
+        List<ScheduleWindow> replacement = new ArrayList<>();
+        for (ScheduleWindowDto dto : sorted) {
+            ScheduleWindow window = new ScheduleWindow();
+            window.setDoctor(doctor);
+            window.setDayOfWeek(dto.getDayOfWeek());
+            window.setStartTime(dto.getStartTime());
+            window.setEndTime(dto.getEndTime());
+            replacement.add(window);
+        }
+        return windowRepository.saveAll(replacement);
+    }
+
+    public List<ScheduleWindow> getWeeklySchedule(Long doctorId) {
+        requireDoctor(doctorId);
+        return windowRepository.findByDoctorIdOrderByDayOfWeekAscStartTimeAsc(doctorId);
+    }
+
+    /**
+     * @throws BadRequestException when the date is missing, only one of the times is given or they are reversed
+     */
+    @Transactional
+    public ScheduleException addException(Long doctorId, ScheduleExceptionDto dto) {
+        if (dto.getDate() == null)
+            throw new BadRequestException("date required.");
+        boolean wholeDay = dto.getStartTime() == null && dto.getEndTime() == null;
+        if (!wholeDay && (dto.getStartTime() == null || dto.getEndTime() == null
+                || !dto.getStartTime().isBefore(dto.getEndTime())))
+            throw new BadRequestException("Invalid time range");
+        requireDoctor(doctorId);
+        ScheduleException exception = new ScheduleException();
+        exception.setDoctor(doctorRepository.getReferenceById(doctorId));
+        exception.setDate(dto.getDate());
+        exception.setStartTime(dto.getStartTime());
+        exception.setEndTime(dto.getEndTime());
+        return exceptionRepository.save(exception);
+    }
+
+    @Transactional
+    public void deleteException(Long doctorId, Long exceptionId) {
+        ScheduleException exception = exceptionRepository.findById(exceptionId)
+                .filter(found -> found.getDoctor().getId().equals(doctorId))
+                .orElseThrow(() -> new NotFoundException("Schedule exception not found"));
+        exceptionRepository.delete(exception);
+    }
+
+    /**
+     * Slots the weekly schedule offers on a date that are neither blocked by an exception nor
+     * overlapped by an appointment row. Offered slots have no id; they are booked by start time.
+     */
+    @Transactional(readOnly = true)
+    public List<SlotLocation> getOpenSlots(Long doctorId, LocalDate date) {
+        requireDoctor(doctorId);
+        List<Appointment> offered = offeredSlots(doctorId, date);
+        if (offered.isEmpty()) return List.of();
+        LocalDateTime startOfDay = date.atStartOfDay();
+        List<AppointmentSlot> rows = overlappingRows(doctorId, startOfDay, startOfDay.plusDays(1));
+        List<SlotLocation> open = new ArrayList<>(offered.size());
+        for (Appointment slot : offered) {
+            boolean overlapped = rows.stream().anyMatch(row -> row.getStartTime().isBefore(slot.getEndTime())
+                    && row.getEndTime().isAfter(slot.getStartTime()));
+            if (!overlapped) {
+                open.add(new SlotLocation(doctorId, null, slot.getStartTime(), slot.getEndTime()));
+            }
+        }
+        return open;
+    }
+
+    /**
+     * Writes the appointment row of an offered slot, booked by the patient.
+     *
+     * @throws NotFoundException         when the schedule does not offer a slot at this time
+     * @throws AppointmentTakenException when an appointment row already overlaps the slot
+     */
+    @Transactional
+    public Appointment bookSlot(Long doctorId, LocalDateTime startTime, Patient patient) {
+        Doctor doctor = lockDoctor(doctorId);
+        Appointment appointment = offeredSlots(doctorId, startTime.toLocalDate()).stream()
+                .filter(slot -> slot.getStartTime().equals(startTime))
+                .findFirst()
+                .orElseThrow(() -> new NotFoundException("Appointment not found"));
+        if (!overlappingRows(doctorId, startTime, appointment.getEndTime()).isEmpty())
+            throw new AppointmentTakenException("Appointment is already taken");
+        appointment.setDoctor(doctor);
+        appointment.setPatient(patient);
+        Appointment booked = appointmentRepository.save(appointment);
+        // the row counts as a slot of its day that is taken at once
+        doctorDaySummaryService.slotsAdded(doctor, List.of(booked));
+        doctorDaySummaryService.slotBooked(doctorId, startTime);
+        // the booked row shows up in the doctor's day view
+        availabilityCache.invalidate(doctorId, startTime.toLocalDate());
+        return booked;
+    }
+
+    /**
+     * Slots of the weekly windows on a date, not bound to a doctor, that no exception blocks.
+     */
+    private List<Appointment> offeredSlots(Long doctorId, LocalDate date) {
+        List<ScheduleWindow> windows = windowRepository.findByDoctorIdAndDayOfWeekOrderByStartTime(doctorId,
+                date.getDayOfWeek());
+        if (windows.isEmpty()) return List.of();
+        List<ScheduleException> exceptions = exceptionRepository.findByDoctorIdAndDate(doctorId, date);
+        if (exceptions.stream().anyMatch(ScheduleException::isWholeDay)) return List.of();
+        SlotPolicy policy = slotPolicyService.getPolicy(doctorId);
+        List<Appointment> slots = new ArrayList<>();
+        for (ScheduleWindow window : windows) {
+            for (Appointment slot : slotGenerator.generate(null, policy, date.atTime(window.getStartTime()),
+                    date.atTime(window.getEndTime()))) {
+                boolean blocked = exceptions.stream().anyMatch(exception ->
+                        date.atTime(exception.getStartTime()).isBefore(slot.getEndTime())
+                                && date.atTime(exception.getEndTime()).isAfter(slot.getStartTime()));
+                if (!blocked) {
+                    slots.add(slot);
+                }
+            }
+        }
+        return slots;
+    }
+
+    private List<AppointmentSlot> overlappingRows(Long doctorId, LocalDateTime start, LocalDateTime end) {
+        // no slot is longer than the longest slot a policy allows
+        return appointmentRepository.findOverlappingSlots(doctorId,
+                start.minusMinutes(SlotPolicy.MAX_SLOT_MINUTES), start, end);
+    }
+
+    private Doctor lockDoctor(Long doctorId) {
+        return doctorRepository.lockById(doctorId).orElseThrow(() -> new NotFoundException("Doctor not found"));
+    }
+
+    private void requireDoctor(Long doctorId) {
+        if (!doctorRepository.existsById(doctorId))
+            throw new NotFoundException("Doctor not found");
+    }
+}
@@ -0,0 +1,26 @@
+package com.blubank.doctorappointment.services;
+
+/**
+ * In-memory gate in front of the booking transaction. A slot must be claimed before it is
+ * written, so concurrent requests for the same appointment are rejected without touching
+ * the database. The database stays the source of truth: a granted claim is only a permission
+ * to try the durable booking.
+ */
+public interface SlotClaimEngine {
+
+    /**
+     * @return {@code false} when the appointment is already claimed and the booking must be rejected
+     */
+    boolean tryClaim(Long appointmentId);
+
+    /**
+     * Gives a claim back after the durable booking did not happen.
+     */
+    void release(Long appointmentId);
+
+    /**
+     * Marks a claim as backed by a durable booking, so it is kept after the claiming node is gone.
+     */
+    default void commit(Long appointmentId) {
+    }
+}
@@ -0,0 +1,124 @@
+package com.blubank.doctorappointment.services;
+
+import com.blubank.doctorappointment.models.Appointment;
+import com.blubank.doctorappointment.models.BreakWindow;
+import com.blubank.doctorappointment.models.Doctor;
+import com.blubank.doctorappointment.models.SlotPolicy;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+/**
+ * Splits appointment windows into slots following a doctor's {@link SlotPolicy}. Slots are
+ * built in memory only; persisting them is up to the caller. Many windows, typically of many
+ * doctors, are generated in parallel on a dedicated fork-join pool, so large imports neither
+ * wait on one core nor compete with the common pool.
+ */
+@Component
+public class SlotGenerator {
+    private static final int SECONDS_PER_DAY = 24 * 60 * 60;
+    // a day of 5 minute slots; longer windows grow the list instead of over-allocating up front
+    private static final int MAX_PRESIZE = 288;
+
+    private final ForkJoinPool pool;
+
+    public SlotGenerator(@Value("${appointment.slot-generation.parallelism:0}") int parallelism) {
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Slots of {@code [startTime, endTime)}: each one {@code slotMinutes} long and followed by
+     * {@code bufferMinutes}. A slot that would overlap a break starts when the break ends.
+     */
+    public List<Appointment> generate(Doctor doctor, SlotPolicy policy, LocalDateTime startTime, LocalDateTime endTime) {
+        long duration = policy.getSlotMinutes();
+        long buffer = policy.getBufferMinutes();
+        int[] breaks = breakSeconds(policy.getBreaks());
+        long expected = Duration.between(startTime, endTime).toMinutes() / (duration + buffer) + 1;
+        List<Appointment> slots = new ArrayList<>((int) Math.max(0, Math.min(MAX_PRESIZE, expected)));
+        LocalDateTime slotStart = startTime;
+        LocalDateTime slotEnd = slotStart.plusMinutes(duration);
+        while (!slotEnd.isAfter(endTime)) {
+            long untilBreakEnd = breaks.length == 0 ? 0 : secondsUntilBreakEnd(breaks, slotStart, duration);
+            if (untilBreakEnd > 0) {
+                slotStart = slotStart.plusSeconds(untilBreakEnd);
+            } else {
+                Appointment appointment = new Appointment();
+                appointment.setDoctor(doctor);
+                appointment.setStartTime(slotStart);
+                appointment.setEndTime(slotEnd);
+                slots.add(appointment);
+                // LocalDateTime is immutable, so without a buffer a slot's end is shared as the next slot's start
+                slotStart = buffer == 0 ? slotEnd : slotEnd.plusMinutes(buffer);
+            }
+            slotEnd = slotStart.plusMinutes(duration);
+        }
+        return slots;
+    }
+
+    public List<Appointment> generate(Request request) {
+        return generate(request.getDoctor(), request.getPolicy(), request.getStartTime(), request.getEndTime());
+    }
+
+    /**
+     * Generates every request, in parallel when there is more than one; the result lists are in
+     * request order.
+     */
+    public List<List<Appointment>> generateAll(List<Request> requests) {
+        if (requests.size() < 2) {
+            return requests.stream().map(this::generate).collect(Collectors.toList());
+        }
+        return pool.submit(() -> requests.parallelStream().map(this::generate).collect(Collectors.toList())).join();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Breaks as {@code [start, end]} second-of-day pairs.
+     */
+    private static int[] breakSeconds(List<BreakWindow> breaks) {
+        int[] seconds = new int[breaks.size() * 2];
+        for (int i = 0; i < breaks.size(); i++) {
+            seconds[2 * i] = breaks.get(i).getStartTime().toSecondOfDay();
+            seconds[2 * i + 1] = breaks.get(i).getEndTime().toSecondOfDay();
+        }
+        return seconds;
+    }
+
+    /**
+     * Seconds from the slot start to the end of a break the slot would overlap, or 0 when it
+     * overlaps none.
+     */
+    private static long secondsUntilBreakEnd(int[] breaks, LocalDateTime slotStart, long duration) {
+        int start = slotStart.toLocalTime().toSecondOfDay();
+        long end = start + duration * 60;
+        for (int i = 0; i < breaks.length; i += 2) {
+            // the break on the slot's own day, then on the next day for slots that run past midnight
+            for (int day = 0; day <= SECONDS_PER_DAY && breaks[i] + day < end; day += SECONDS_PER_DAY) {
+                if (breaks[i + 1] + day > start) return breaks[i + 1] + day - start;
+            }
+        }
+        return 0;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Request {
+        private final Doctor doctor;
+        private final SlotPolicy policy;
+        private final LocalDateTime startTime;
+        private final LocalDateTime endTime;
+    }
+}
@@ -0,0 +1,72 @@
+package com.blubank.doctorappointment.services;
+
+import com.blubank.doctorappointment.exceptions.BadRequestException;
+import com.blubank.doctorappointment.exceptions.NotFoundException;
+import com.blubank.doctorappointment.models.BreakWindow;
+import com.blubank.doctorappointment.models.SlotPolicy;
+import com.blubank.doctorappointment.payloads.requests.BreakWindowDto;
+import com.blubank.doctorappointment.payloads.requests.SlotPolicyDto;
+import com.blubank.doctorappointment.repositories.DoctorRepository;
+import com.blubank.doctorappointment.repositories.SlotPolicyRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+public class SlotPolicyService {
+    private final SlotPolicyRepository slotPolicyRepository;
+    private final DoctorRepository doctorRepository;
+
+    public SlotPolicy getPolicy(Long doctorId) {
+        return slotPolicyRepository.findById(doctorId).orElseGet(() -> SlotPolicy.defaults(doctorId));
+    }
+
+    /**
+     * Sets how the doctor's future appointment windows and weekly schedule are split into
+     * slots; appointments that already exist keep their times.
+     *
+     * @throws BadRequestException when a length is out of range or a break is incomplete, reversed
+     *                             or not on whole minutes
+     */
+    @Transactional
+    public SlotPolicy updatePolicy(Long doctorId, SlotPolicyDto dto) {
+        int slotMinutes = dto.getSlotMinutes() == null ? SlotPolicy.DEFAULT_SLOT_MINUTES : dto.getSlotMinutes();
+        int bufferMinutes = dto.getBufferMinutes() == null ? 0 : dto.getBufferMinutes();
+        if (slotMinutes < SlotPolicy.MIN_SLOT_MINUTES || slotMinutes > SlotPolicy.MAX_SLOT_MINUTES)
+            throw new BadRequestException("slotMinutes must be between " + SlotPolicy.MIN_SLOT_MINUTES
+                    + " and " + SlotPolicy.MAX_SLOT_MINUTES);
+        if (bufferMinutes < 0 || bufferMinutes > SlotPolicy.MAX_BUFFER_MINUTES)
+            throw new BadRequestException("bufferMinutes must be between 0 and " + SlotPolicy.MAX_BUFFER_MINUTES);
+        List<BreakWindow> breaks = new ArrayList<>();
+        if (dto.getBreaks() != null) {
+            for (BreakWindowDto window : dto.getBreaks()) {
+                if (window == null || window.getStartTime() == null || window.getEndTime() == null
+                        || !window.getStartTime().isBefore(window.getEndTime()))
+                    throw new BadRequestException("Invalid break");
+                if (!isWholeMinute(window.getStartTime()) || !isWholeMinute(window.getEndTime()))
+                    throw new BadRequestException("Break times must be whole minutes");
+                breaks.add(new BreakWindow(window.getStartTime(), window.getEndTime()));
+            }
+        }
+        breaks.sort(Comparator.comparing(BreakWindow::getStartTime));
+        if (!doctorRepository.existsById(doctorId))
+            throw new NotFoundException("Doctor not found");
+        SlotPolicy policy = getPolicy(doctorId);
+        policy.setSlotMinutes(slotMinutes);
+        policy.setBufferMinutes(bufferMinutes);
+        policy.getBreaks().clear();
+        policy.getBreaks().addAll(breaks);
+        return slotPolicyRepository.save(policy);
+    }
+
+    private static boolean isWholeMinute(LocalTime time) {
+        return time.equals(time.truncatedTo(ChronoUnit.MINUTES));
+    }
+}
@@ -0,0 +1,303 @@
+package com.blubank.doctorappointment.services;
+
+import com.blubank.doctorappointment.exceptions.AppointmentTakenException;
+import com.blubank.doctorappointment.exceptions.BadRequestException;
+import com.blubank.doctorappointment.exceptions.NotFoundException;
+import com.blubank.doctorappointment.models.Appointment;
+import com.blubank.doctorappointment.models.Patient;
+import com.blubank.doctorappointment.payloads.requests.CreatePatientDto;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Optional booking mode that answers a booking request as soon as it is durable in the local
+ * {@link BookingJournal} and applies it to the database later. A single applier thread takes
+ * accepted requests in ticket order, so requests for the same appointment are applied in the
+ * order they were accepted, and books each batch in one transaction with the conditional
+ * update. Clients poll the ticket for the outcome.
+ * <p>
+ * After a crash the requests journaled after the last checkpoint are applied again on startup.
+ * A request whose booking committed just before the crash finds its slot taken by the same
+ * phone and is reported as booked. A batch that hits a transient failure, such as a lost
+ * connection, is neither completed nor checkpointed; the applier backs off and applies it again,
+ * and the same replay settles the requests that committed before the failure. A batch that fails
+ * any other way, or is still failing after the configured number of attempts, is marked failed:
+ * its claims are released and the journal is checkpointed past it.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "appointment.booking.write-behind.enabled", havingValue = "true")
+public class WriteBehindBookingService {
+    private static final long INITIAL_BACKOFF_MS = 100;
+    private static final long MAX_BACKOFF_MS = 10_000;
+
+    private final PatientService patientService;
+    private final AppointmentService appointmentService;
+    private final SlotClaimEngine slotClaimEngine;
+    private final TransactionTemplate transactionTemplate;
+    private final BookingJournal journal;
+    private final int batchSize;
+    private final int maxTickets;
+    private final int maxAttempts;
+
+    private final BlockingQueue<BookingJournal.Entry> queue = new LinkedBlockingQueue<>();
+    /** ticket -> latest state; the oldest tickets are forgotten beyond the configured size */
+    private final ConcurrentNavigableMap<Long, BookingTicket> tickets = new ConcurrentSkipListMap<>();
+    /** size of {@link #tickets}, which the skip list can only count by walking it */
+    private final AtomicInteger ticketCount = new AtomicInteger();
+    private final Thread applier = new Thread(this::applyLoop, "booking-journal-applier");
+    private volatile boolean running = true;
+
+    public WriteBehindBookingService(PatientService patientService,
+                                     AppointmentService appointmentService,
+                                     SlotClaimEngine slotClaimEngine,
+                                     TransactionTemplate transactionTemplate,
+                                     @Value("${appointment.booking.write-behind.dir:}") String dir,
+                                     @Value("${appointment.booking.write-behind.segment-bytes:16777216}") int segmentBytes,
+                                     @Value("${appointment.booking.write-behind.fsync:true}") boolean fsync,
+                                     @Value("${appointment.booking.write-behind.batch-size:100}") int batchSize,
+                                     @Value("${appointment.booking.write-behind.max-tickets:100000}") int maxTickets,
+                                     @Value("${appointment.booking.write-behind.max-attempts:10}") int maxAttempts) throws IOException {
+        this.patientService = patientService;
+        this.appointmentService = appointmentService;
+        this.slotClaimEngine = slotClaimEngine;
+        this.transactionTemplate = transactionTemplate;
+        if (dir.isBlank())
+            throw new IllegalStateException("appointment.booking.write-behind.dir must be set to a durable directory"
+                    + " when write-behind booking is enabled");
+        this.journal = new BookingJournal(Path.of(dir), segmentBytes, fsync);
+        this.batchSize = batchSize;
+        this.maxTickets = maxTickets;
+        this.maxAttempts = maxAttempts;
+    }
+
+    @PostConstruct
+    public void start() {
+        List<BookingJournal.Entry> pending = journal.pending();
+        for (BookingJournal.Entry entry : pending) {
+            slotClaimEngine.tryClaim(entry.getAppointmentId());
+            track(BookingTicket.pending(entry));
+            queue.add(entry);
+        }
+        log.info("Replaying {} journaled booking requests after ticket {}", pending.size(), journal.getCheckpoint());
+        applier.setDaemon(true);
+        applier.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException, IOException {
+        running = false;
+        applier.join(TimeUnit.SECONDS.toMillis(30));
+        synchronized (queue) {
+            journal.close();
+        }
+    }
+
+    /**
+     * Journals a booking request and returns its pending ticket. A slot that is already claimed
+     * is rejected right away, without being journaled.
+     */
+    public BookingTicket accept(Long appointmentId, CreatePatientDto dto) {
+        if (dto.getPhone() == null || dto.getName() == null)
+            throw new BadRequestException("name and phone required.");
+        if (!slotClaimEngine.tryClaim(appointmentId))
+            throw new AppointmentTakenException("Appointment is already taken");
+        try {
+            // journal order and queue order must match, so the applier sees tickets in sequence
+            synchronized (queue) {
+                BookingJournal.Entry entry = journal.append(appointmentId, dto.getName(), dto.getPhone());
+                BookingTicket ticket = BookingTicket.pending(entry);
+                track(ticket);
+                queue.add(entry);
+                return ticket;
+            }
+        } catch (IOException e) {
+            slotClaimEngine.release(appointmentId);
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public BookingTicket getTicket(long ticket) {
+        BookingTicket state = tickets.get(ticket);
+        if (state == null) throw new NotFoundException("Ticket not found");
+        return state;
+    }
+
+    private void applyLoop() {
+        List<BookingJournal.Entry> batch = new ArrayList<>(batchSize);
+        long backoff = 0;
+        int attempts = 0;
+        while (running || !queue.isEmpty()) {
+            try {
+                if (batch.isEmpty()) {
+                    BookingJournal.Entry first = queue.poll(100, TimeUnit.MILLISECONDS);
+                    if (first == null) continue;
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                }
+                apply(batch);
+                batch.clear();
+                backoff = 0;
+                attempts = 0;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                if (!isTransient(e) || ++attempts >= maxAttempts) {
+                    log.error("Could not apply {} journaled booking requests, failing them", batch.size(), e);
+                    fail(batch, e);
+                    batch.clear();
+                    backoff = 0;
+                    attempts = 0;
+                    continue;
+                }
+                // unapplied requests stay after the checkpoint and are replayed on the next start
+                if (!running) return;
+                backoff = Math.min(Math.max(backoff * 2, INITIAL_BACKOFF_MS), MAX_BACKOFF_MS);
+                log.warn("Could not apply {} journaled booking requests, retrying in {} ms", batch.size(), backoff, e);
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Only failures that may clear up on their own are retried; anything else would fail the same
+     * way again and hold up every request behind it.
+     */
+    static boolean isTransient(RuntimeException e) {
+        return e instanceof TransientDataAccessException
+                || e instanceof RecoverableDataAccessException
+                || e instanceof CannotCreateTransactionException;
+    }
+
+    /**
+     * Applies one batch in a single transaction. When the batch fails as a whole, each request is
+     * retried in its own transaction so one bad request never fails the others. A transient
+     * failure is thrown before any ticket is completed or the journal is checkpointed.
+     */
+    void apply(List<BookingJournal.Entry> batch) {
+        // patients are resolved outside the batch so a rollback never leaves a cached unsaved id
+        List<Patient> patients = new ArrayList<>(batch.size());
+        for (BookingJournal.Entry entry : batch) {
+            patients.add(resolvePatient(entry));
+        }
+        List<BookingTicket> results;
+        try {
+            results = transactionTemplate.execute(status -> {
+                List<BookingTicket> booked = new ArrayList<>(batch.size());
+                for (int i = 0; i < batch.size(); i++) {
+                    booked.add(book(batch.get(i), patients.get(i)));
+                }
+                return booked;
+            });
+        } catch (RuntimeException batchFailure) {
+            if (isTransient(batchFailure)) throw batchFailure;
+            results = new ArrayList<>(batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                BookingJournal.Entry entry = batch.get(i);
+                Patient patient = patients.get(i);
+                try {
+                    results.add(transactionTemplate.execute(status -> book(entry, patient)));
+                } catch (RuntimeException e) {
+                    if (isTransient(e)) throw e;
+                    results.add(BookingTicket.pending(entry).complete(BookingTicket.Status.FAILED, e.getMessage()));
+                }
+            }
+        }
+        results.forEach(this::complete);
+        checkpoint(batch);
+    }
+
+    /**
+     * Gives up on a batch: its tickets fail, their claims are released and the journal moves past
+     * it, so the requests behind it are applied and it is not replayed after a restart.
+     */
+    void fail(List<BookingJournal.Entry> batch, RuntimeException cause) {
+        for (BookingJournal.Entry entry : batch) {
+            complete(BookingTicket.pending(entry).complete(BookingTicket.Status.FAILED, cause.getMessage()));
+        }
+        checkpoint(batch);
+    }
+
+    private void checkpoint(List<BookingJournal.Entry> batch) {
+        try {
+            journal.checkpoint(batch.get(batch.size() - 1).getTicket());
+        } catch (IOException e) {
+            // the batch is applied again after a restart and resolves as booked or rejected
+            log.error("Could not checkpoint the booking journal", e);
+        }
+    }
+
+    private Patient resolvePatient(BookingJournal.Entry entry) {
+        CreatePatientDto dto = new CreatePatientDto();
+        dto.setName(entry.getName());
+        dto.setPhone(entry.getPhone());
+        try {
+            return patientService.getOrCreatePatient(dto);
+        } catch (RuntimeException e) {
+            if (isTransient(e)) throw e;
+            return null;
+        }
+    }
+
+    private BookingTicket book(BookingJournal.Entry entry, Patient patient) {
+        BookingTicket ticket = BookingTicket.pending(entry);
+        if (patient == null) {
+            return ticket.complete(BookingTicket.Status.FAILED, "Patient could not be saved");
+        }
+        try {
+            appointmentService.bookIfOpen(entry.getAppointmentId(), patient);
+            slotClaimEngine.commit(entry.getAppointmentId());
+            return ticket.complete(BookingTicket.Status.BOOKED, null);
+        } catch (AppointmentTakenException e) {
+            slotClaimEngine.commit(entry.getAppointmentId());
+            Appointment appointment = appointmentService.getAppointment(entry.getAppointmentId());
+            if (entry.getPhone().equals(appointment.getPatient().getPhone())) {
+                return ticket.complete(BookingTicket.Status.BOOKED, null);
+            }
+            return ticket.complete(BookingTicket.Status.REJECTED, e.getMessage());
+        } catch (NotFoundException e) {
+            slotClaimEngine.release(entry.getAppointmentId());
+            return ticket.complete(BookingTicket.Status.REJECTED, e.getMessage());
+        }
+    }
+
+    private void complete(BookingTicket ticket) {
+        if (ticket.getStatus() == BookingTicket.Status.FAILED) {
+            slotClaimEngine.release(ticket.getAppointmentId());
+        }
+        track(ticket);
+    }
+
+    private void track(BookingTicket ticket) {
+        if (tickets.put(ticket.getTicket(), ticket) != null) return;
+        if (ticketCount.incrementAndGet() > maxTickets && tickets.pollFirstEntry() != null) {
+            ticketCount.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.blubank.doctorappointment.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * A database from before the constraint: the constraint is dropped and duplicate slots are
+ * written with plain SQL, each statement in its own transaction.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class AppointmentConstraintCheckTest {
+    private static final LocalDateTime NINE = LocalDateTime.of(2023, 6, 20, 9, 0);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private long doctorId;
+    private long patientId;
+    private long nextId;
+
+    @DynamicPropertySource
+    static void databaseProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> "jdbc:h2:mem:appointment_constraint;MODE=Oracle");
+        registry.add("spring.datasource.username", () -> "sa");
+        registry.add("spring.datasource.password", () -> "");
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "create-drop");
+    }
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("delete from doctor_day_summary");
+        jdbcTemplate.update("delete from appointment");
+        jdbcTemplate.update("delete from patient");
+        jdbcTemplate.update("delete from doctor");
+        jdbcTemplate.execute("alter table appointment drop constraint if exists " + AppointmentConstraintCheck.CONSTRAINT);
+        jdbcTemplate.update("insert into doctor (name) values ('Jane Smith')");
+        doctorId = jdbcTemplate.queryForObject("select max(id) from doctor", Long.class);
+        jdbcTemplate.update("insert into patient (name, phone) values ('John Doe', '1234567890')");
+        patientId = jdbcTemplate.queryForObject("select max(id) from patient", Long.class);
+        jdbcTemplate.update("insert into doctor_day_summary (doctor_id, summary_date, total_slots, open_slots, open_mask,"
+                + " pending_changes) values (?, ?, 5, 4, 0, 0)", doctorId, NINE.toLocalDate());
+    }
+
+    @Test
+    void givenDuplicateSlots_whenVerify_thenOpenDuplicatesAreRemovedAndConstraintAdded() {
+        long oldestOpen = slot(NINE, null);
+        slot(NINE, null);
+        slot(NINE.plusMinutes(30), null);
+        long booked = slot(NINE.plusMinutes(30), patientId);
+        long single = slot(NINE.plusHours(1), null);
+
+        check(true).verify();
+
+        assertEquals(List.of(oldestOpen, booked, single),
+                jdbcTemplate.queryForList("select id from appointment order by start_time", Long.class));
+        assertEquals(1, jdbcTemplate.queryForObject("select pending_changes from doctor_day_summary", Integer.class));
+        assertThrows(DataIntegrityViolationException.class, () -> slot(NINE, null));
+        check(false).verify();
+    }
+
+    @Test
+    void givenStartTimeBookedTwice_whenVerify_thenFailWithoutDeleting() {
+        slot(NINE, patientId);
+        slot(NINE, patientId);
+        slot(NINE.plusMinutes(30), null);
+        slot(NINE.plusMinutes(30), null);
+
+        assertThrows(IllegalStateException.class, () -> check(true).verify());
+        assertEquals(4, jdbcTemplate.queryForObject("select count(*) from appointment", Integer.class));
+    }
+
+    @Test
+    void givenDedupSwitchedOff_whenConstraintMissing_thenFail() {
+        assertThrows(IllegalStateException.class, () -> check(false).verify());
+    }
+
+    private AppointmentConstraintCheck check(boolean dedupOnStartup) {
+        return new AppointmentConstraintCheck(jdbcTemplate, new TransactionTemplate(transactionManager), dedupOnStartup);
+    }
+
+    private long slot(LocalDateTime startTime, Long patient) {
+        long id = ++nextId;
+        jdbcTemplate.update("insert into appointment (id, doctor_id, patient_id, version, start_time, end_time)"
+                + " values (?, ?, ?, 0, ?, ?)", id, doctorId, patient, startTime, startTime.plusMinutes(30));
+        return id;
+    }
+}
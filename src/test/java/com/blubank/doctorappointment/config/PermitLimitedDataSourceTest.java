@@ -0,0 +1,65 @@
+package com.blubank.doctorappointment.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PermitLimitedDataSourceTest {
+
+    @Mock
+    private DataSource target;
+    @Mock
+    private Connection connection;
+
+    private PermitLimitedDataSource dataSource;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new PermitLimitedDataSource(target, 2, 50);
+    }
+
+    @Test
+    void givenAllPermitsTaken_whenGetConnection_thenTimeOut() throws SQLException {
+        when(target.getConnection()).thenReturn(connection);
+        dataSource.getConnection();
+        dataSource.getConnection();
+
+        assertThrows(SQLTransientConnectionException.class, () -> dataSource.getConnection());
+        assertEquals(0, dataSource.availablePermits());
+    }
+
+    @Test
+    void givenConnectionClosedTwice_whenClose_thenPermitReleasedOnce() throws SQLException {
+        when(target.getConnection()).thenReturn(connection);
+        Connection first = dataSource.getConnection();
+        dataSource.getConnection();
+
+        first.close();
+        first.close();
+
+        assertEquals(1, dataSource.availablePermits());
+        verify(connection, times(2)).close();
+    }
+
+    @Test
+    void givenTargetFailure_whenGetConnection_thenPermitReturned() throws SQLException {
+        when(target.getConnection()).thenThrow(new SQLException("pool exhausted"));
+
+        assertThrows(SQLException.class, () -> dataSource.getConnection());
+        assertEquals(2, dataSource.availablePermits());
+    }
+}
@@ -0,0 +1,87 @@
+package com.blubank.doctorappointment.config;
+
+import com.blubank.doctorappointment.models.Doctor;
+import com.blubank.doctorappointment.payloads.requests.CreateDoctorDto;
+import com.blubank.doctorappointment.payloads.responses.AppointmentRes;
+import com.blubank.doctorappointment.services.DoctorService;
+import com.blubank.doctorappointment.services.OverlapMode;
+import com.zaxxer.hikari.HikariDataSource;
+import io.r2dbc.spi.ConnectionFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.FormatStyle;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Boots the application with the {@code reactive} profile: the JDBC data source is still the
+ * Hikari pool JPA uses, and the R2DBC reads answer like the blocking endpoints.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.profiles.active=reactive",
+        "appointment.hazelcast.cluster-name=reactive-availability",
+        "spring.datasource.url=jdbc:h2:mem:reactive_availability;MODE=Oracle",
+        "spring.boot.admin.client.enabled=false"
+})
+class ReactiveDatabaseConfigTest {
+    private static final LocalDateTime DAY = LocalDateTime.of(2030, 1, 2, 0, 0);
+
+    @Autowired
+    private DataSource dataSource;
+    @Autowired
+    private ConnectionFactory connectionFactory;
+    @Autowired
+    private DoctorService doctorService;
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Test
+    void givenReactiveProfile_whenBooted_thenJpaKeepsTheHikariDataSource() {
+        assertInstanceOf(HikariDataSource.class, dataSource);
+        assertNotNull(connectionFactory);
+    }
+
+    @Test
+    void givenDoctorWithSlots_whenReadReactively_thenSameResponsesAsBlockingReads() {
+        CreateDoctorDto dto = new CreateDoctorDto();
+        dto.setName("Reactive doctor");
+        Doctor doctor = doctorService.create(dto);
+        doctorService.addAppointments(doctor.getId(), DAY.plusHours(9), DAY.plusHours(12), OverlapMode.REJECT);
+
+        for (String path : new String[]{"/patient/doctor/{id}/appointments?date={date}", "/doctor/{id}/appointments?date={date}"}) {
+            AppointmentRes[] blocking = get("/v1" + path, doctor.getId()).getBody();
+            AppointmentRes[] reactive = get("/v1/reactive" + path, doctor.getId()).getBody();
+
+            assertNotNull(blocking);
+            assertEquals(6, blocking.length);
+            assertArrayEquals(blocking, reactive);
+        }
+    }
+
+    @Test
+    void givenUnknownDoctor_whenReadDoctorDayReactively_thenNotFound() {
+        ResponseEntity<String> missing = restTemplate.getForEntity("/v1/reactive/doctor/{id}/appointments?date={date}",
+                String.class, 999L, date());
+
+        assertEquals(HttpStatus.NOT_FOUND, missing.getStatusCode());
+    }
+
+    private ResponseEntity<AppointmentRes[]> get(String path, Long doctorId) {
+        return restTemplate.getForEntity(path, AppointmentRes[].class, doctorId, date());
+    }
+
+    private static String date() {
+        return DateTimeFormatter.ofLocalizedDateTime(FormatStyle.SHORT).format(DAY);
+    }
+}
@@ -0,0 +1,114 @@
+package com.blubank.doctorappointment.config;
+
+import com.blubank.doctorappointment.payloads.responses.DoctorRes;
+import org.apache.coyote.ProtocolHandler;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import javax.sql.DataSource;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * The virtual-thread mode needs a Java 21+ runtime. On older runtimes only the fail-fast check
+ * and the connection permits are tested; the executor and the booted application are tested
+ * when the suite runs on Java 21 or later.
+ */
+class VirtualThreadConfigTest {
+
+    static boolean virtualThreadsAvailable() {
+        return Runtime.version().feature() >= 21;
+    }
+
+    @Test
+    void givenRuntimeBeforeJava21_whenCreateExecutor_thenFailFast() {
+        assumeTrue(!virtualThreadsAvailable());
+
+        IllegalStateException exception = assertThrows(IllegalStateException.class,
+                VirtualThreadConfig::newVirtualThreadPerTaskExecutor);
+        assertTrue(exception.getMessage().contains("Java 21+"));
+    }
+
+    @Test
+    void givenDataSource_whenPostProcessed_thenConnectionsArePermitLimited() {
+        DataSource dataSource = mock(DataSource.class);
+
+        Object processed = VirtualThreadConfig.permitLimitedDataSourcePostProcessor(5, 100)
+                .postProcessAfterInitialization(dataSource, "dataSource");
+
+        assertInstanceOf(PermitLimitedDataSource.class, processed);
+        assertSame(processed, VirtualThreadConfig.permitLimitedDataSourcePostProcessor(5, 100)
+                .postProcessAfterInitialization(processed, "dataSource"));
+    }
+
+    @Test
+    @EnabledIf("virtualThreadsAvailable")
+    void givenJava21_whenRunTask_thenItRunsOnAVirtualThread() throws Exception {
+        ExecutorService executor = VirtualThreadConfig.newVirtualThreadPerTaskExecutor();
+        try {
+            Thread thread = executor.submit(Thread::currentThread).get();
+
+            assertEquals(true, Thread.class.getMethod("isVirtual").invoke(thread));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    @EnabledIf("virtualThreadsAvailable")
+    @SuppressWarnings("unchecked")
+    void givenJava21_whenCustomizeTomcat_thenProtocolHandlerGetsTheVirtualThreadExecutor() {
+        ProtocolHandler protocolHandler = mock(ProtocolHandler.class);
+
+        ((TomcatProtocolHandlerCustomizer<ProtocolHandler>) new VirtualThreadConfig().virtualThreadProtocolHandlerCustomizer()).customize(protocolHandler);
+
+        verify(protocolHandler).setExecutor(any(Executor.class));
+    }
+
+    @Nested
+    @EnabledIf("com.blubank.doctorappointment.config.VirtualThreadConfigTest#virtualThreadsAvailable")
+    @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+            "appointment.execution.virtual-threads=true",
+            "appointment.hazelcast.cluster-name=virtual-thread-execution",
+            "spring.datasource.url=jdbc:h2:mem:virtual_thread_execution;MODE=Oracle",
+            "spring.boot.admin.client.enabled=false"
+    })
+    class WhenBootedOnJava21 {
+        @Autowired
+        private ServletWebServerApplicationContext context;
+        @Autowired
+        private DataSource dataSource;
+        @Autowired
+        private TestRestTemplate restTemplate;
+
+        @Test
+        void thenRequestsAreServedOnVirtualThreadsWithPermitLimitedConnections() {
+            Executor executor = ((TomcatWebServer) context.getWebServer()).getTomcat().getConnector()
+                    .getProtocolHandler().getExecutor();
+            ResponseEntity<DoctorRes> missing = restTemplate.getForEntity("/v1/doctor/999", DoctorRes.class);
+
+            assertTrue(executor.getClass().getName().contains("ThreadPerTaskExecutor"), executor.getClass().getName());
+            assertInstanceOf(PermitLimitedDataSource.class, dataSource);
+            assertEquals(HttpStatus.NOT_FOUND, missing.getStatusCode());
+        }
+    }
+}
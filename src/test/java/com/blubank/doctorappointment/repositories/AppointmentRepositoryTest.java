@@ -0,0 +1,350 @@
+package com.blubank.doctorappointment.repositories;
+
+import com.blubank.doctorappointment.mappers.AppointmentMapper;
+import com.blubank.doctorappointment.models.Appointment;
+import com.blubank.doctorappointment.models.Doctor;
+import com.blubank.doctorappointment.models.DoctorDaySummary;
+import com.blubank.doctorappointment.models.Patient;
+import com.blubank.doctorappointment.payloads.responses.AppointmentRes;
+import com.blubank.doctorappointment.repositories.projections.AppointmentSlot;
+import com.blubank.doctorappointment.repositories.projections.SlotLocation;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+public class AppointmentRepositoryTest {
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Statistics statistics;
+
+    @DynamicPropertySource
+    static void databaseProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> "jdbc:h2:mem:doctor_appointment;MODE=Oracle");
+        registry.add("spring.datasource.username", () -> "sa");
+        registry.add("spring.datasource.password", () -> "");
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "create-drop");
+        registry.add("spring.jpa.properties.hibernate.generate_statistics", () -> "true");
+    }
+
+    @BeforeEach
+    void setUp() {
+        appointmentRepository.deleteAll();
+        entityManager.flush();
+        entityManager.clear();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void givenDayOfSlots_whenSaveAll_thenInsertsAreBatched() {
+        LocalDateTime startTime = LocalDateTime.of(2023, 6, 20, 0, 0);
+        List<Appointment> appointments = new ArrayList<>();
+        for (int i = 0; i < 48; i++) {
+            Appointment appointment = new Appointment();
+            appointment.setStartTime(startTime.plusMinutes(30L * i));
+            appointment.setEndTime(startTime.plusMinutes(30L * (i + 1)));
+            appointments.add(appointment);
+        }
+
+        appointmentRepository.saveAll(appointments);
+        entityManager.flush();
+
+        assertEquals(48, statistics.getEntityInsertCount());
+        // one batched insert statement plus at most two pooled sequence fetches
+        assertTrue(statistics.getPrepareStatementCount() <= 3,
+                "expected batched inserts but got " + statistics.getPrepareStatementCount() + " statements");
+    }
+
+    @Test
+    void givenOpenAndTakenSlots_whenFindOpenSlots_thenReturnOnlyOpenSlotsInOrder() {
+        Doctor doctor = new Doctor();
+        doctor.setName("Dr. Who");
+        entityManager.persist(doctor);
+        Patient patient = new Patient();
+        patient.setName("Some Who");
+        patient.setPhone("1234567890");
+        entityManager.persist(patient);
+
+        LocalDateTime startOfDay = LocalDateTime.of(2023, 6, 20, 0, 0);
+        Appointment taken = appointment(doctor, startOfDay.plusHours(9));
+        taken.setPatient(patient);
+        Appointment later = appointment(doctor, startOfDay.plusHours(11));
+        Appointment earlier = appointment(doctor, startOfDay.plusHours(10));
+        appointment(doctor, startOfDay.plusDays(1).plusHours(10));
+        entityManager.flush();
+        entityManager.clear();
+
+        List<AppointmentSlot> slots = appointmentRepository.findOpenSlots(doctor.getId(), startOfDay, startOfDay.plusDays(1));
+
+        assertEquals(2, slots.size());
+        assertEquals(earlier.getId(), slots.get(0).getId());
+        assertEquals(later.getId(), slots.get(1).getId());
+        assertEquals(later.getEndTime(), slots.get(1).getEndTime());
+    }
+
+    @Test
+    void givenTakenSlots_whenGetDoctorDayView_thenPatientsAreLoadedInOneStatement() {
+        Doctor doctor = new Doctor();
+        doctor.setName("Dr. Who");
+        entityManager.persist(doctor);
+        LocalDateTime startOfDay = LocalDateTime.of(2023, 6, 20, 0, 0);
+        for (int i = 0; i < 5; i++) {
+            Patient patient = new Patient();
+            patient.setName("Patient " + i);
+            patient.setPhone("123456789" + i);
+            entityManager.persist(patient);
+            appointment(doctor, startOfDay.plusHours(9 + i)).setPatient(patient);
+        }
+        appointment(doctor, startOfDay.plusHours(15));
+        appointment(doctor, startOfDay.plusDays(1));
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+
+        List<AppointmentRes> dayView;
+        try (Stream<Appointment> appointments = appointmentRepository
+                .streamDoctorAppointments(doctor.getId(), startOfDay, startOfDay.plusDays(1))) {
+            dayView = appointments.map(AppointmentMapper::mapToDoctorResponse).collect(Collectors.toList());
+        }
+
+        assertEquals(6, dayView.size());
+        assertEquals(5, dayView.stream().filter(AppointmentRes::getIsTaken).count());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void givenPatientHistory_whenWalkKeysetPages_thenEveryAppointmentIsReturnedOnce() {
+        Doctor doctor = new Doctor();
+        doctor.setName("Dr. Who");
+        entityManager.persist(doctor);
+        Doctor otherDoctor = new Doctor();
+        otherDoctor.setName("Dr. Strange");
+        entityManager.persist(otherDoctor);
+        Patient patient = new Patient();
+        patient.setName("Some Who");
+        patient.setPhone("1234567890");
+        entityManager.persist(patient);
+        LocalDateTime startTime = LocalDateTime.of(2023, 6, 20, 9, 0);
+        // two appointments with different doctors share a start time so the id tie-breaker is exercised
+        appointment(doctor, startTime).setPatient(patient);
+        appointment(otherDoctor, startTime).setPatient(patient);
+        appointment(doctor, startTime.plusDays(1)).setPatient(patient);
+        appointment(doctor, startTime.plusDays(2)).setPatient(patient);
+        appointment(doctor, startTime.plusDays(3));
+        entityManager.flush();
+        entityManager.clear();
+        LocalDateTime from = startTime.minusDays(1);
+        LocalDateTime to = startTime.plusDays(10);
+
+        Slice<Appointment> first = appointmentRepository.findPatientHistory(patient.getId(), from, to, PageRequest.of(0, 3));
+        Appointment last = first.getContent().get(2);
+        Slice<Appointment> second = appointmentRepository.findPatientHistoryAfter(patient.getId(), from, to,
+                last.getStartTime(), last.getId(), PageRequest.of(0, 3));
+
+        assertEquals(3, first.getNumberOfElements());
+        assertTrue(first.hasNext());
+        assertEquals(1, second.getNumberOfElements());
+        assertFalse(second.hasNext());
+        assertEquals(startTime.plusDays(2), second.getContent().get(0).getStartTime());
+    }
+
+    @Test
+    void givenOpenSlot_whenBookIfOpenTwice_thenOnlyFirstBookingWinsInOneStatementEach() {
+        Doctor doctor = new Doctor();
+        doctor.setName("Dr. Who");
+        entityManager.persist(doctor);
+        Patient first = new Patient();
+        first.setName("Some Who");
+        first.setPhone("1234567890");
+        entityManager.persist(first);
+        Patient second = new Patient();
+        second.setName("Other Who");
+        second.setPhone("1234567891");
+        entityManager.persist(second);
+        LocalDateTime startTime = LocalDateTime.of(2023, 6, 20, 9, 0);
+        Appointment appointment = appointment(doctor, startTime);
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+
+        assertEquals(1, appointmentRepository.bookIfOpen(appointment.getId(), first));
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, appointmentRepository.bookIfOpen(appointment.getId(), second));
+        assertEquals(0, appointmentRepository.bookIfOpen(-1L, second));
+
+        Appointment booked = appointmentRepository.findById(appointment.getId()).orElseThrow();
+        assertEquals(first.getId(), booked.getPatient().getId());
+        assertEquals(appointment.getVersion() + 1, booked.getVersion());
+        assertEquals(startTime, booked.getStartTime());
+    }
+
+    @Test
+    void givenBookedAndOpenSlots_whenCountSlots_thenAllSlotsInRangeCount() {
+        Doctor doctor = new Doctor();
+        doctor.setName("Jane Smith");
+        entityManager.persist(doctor);
+        Patient patient = new Patient();
+        patient.setName("John Doe");
+        patient.setPhone("1234567890");
+        entityManager.persist(patient);
+        LocalDateTime nine = LocalDateTime.of(2023, 6, 20, 9, 0);
+        appointment(doctor, nine).setPatient(patient);
+        appointment(doctor, nine.plusMinutes(30));
+        appointment(doctor, nine.plusDays(1));
+        entityManager.flush();
+
+        assertEquals(2, appointmentRepository.countSlots(doctor.getId(), nine, nine.plusHours(1)));
+        assertEquals(0, appointmentRepository.countSlots(doctor.getId(), nine.plusHours(1), nine.plusHours(2)));
+    }
+
+    @Test
+    void givenDoctorsWithAndWithoutSummaries_whenFindDoctorsWithoutDaySummaries_thenOnlyUnsummarizedDoctorsWithSlots() {
+        LocalDateTime nine = LocalDateTime.of(2023, 6, 20, 9, 0);
+        Doctor unsummarized = new Doctor();
+        unsummarized.setName("Jane Smith");
+        entityManager.persist(unsummarized);
+        appointment(unsummarized, nine);
+        Doctor summarized = new Doctor();
+        summarized.setName("John Smith");
+        entityManager.persist(summarized);
+        appointment(summarized, nine);
+        DoctorDaySummary summary = new DoctorDaySummary();
+        summary.setDoctor(summarized);
+        summary.setDate(nine.toLocalDate());
+        entityManager.persist(summary);
+        Doctor withoutSlots = new Doctor();
+        withoutSlots.setName("Jim Smith");
+        entityManager.persist(withoutSlots);
+        entityManager.flush();
+
+        assertEquals(List.of(unsummarized.getId()), appointmentRepository.findDoctorsWithoutDaySummaries());
+        assertEquals(List.of(nine), appointmentRepository.findStartTimes(unsummarized.getId()));
+    }
+
+    @Test
+    void givenSlotsOfSeveralDoctors_whenFindEarliestOpenSlots_thenOpenSlotsAreMergedInStartOrder() {
+        Doctor first = new Doctor();
+        first.setName("Jane Smith");
+        entityManager.persist(first);
+        Doctor second = new Doctor();
+        second.setName("John Smith");
+        entityManager.persist(second);
+        Doctor third = new Doctor();
+        third.setName("Jim Smith");
+        entityManager.persist(third);
+        Patient patient = new Patient();
+        patient.setName("John Doe");
+        patient.setPhone("1234567890");
+        entityManager.persist(patient);
+        LocalDateTime nine = LocalDateTime.of(2023, 6, 20, 9, 0);
+        appointment(first, nine).setPatient(patient);
+        Appointment firstOpen = appointment(first, nine.plusMinutes(30));
+        Appointment secondOpen = appointment(second, nine.plusMinutes(15));
+        Appointment thirdOpen = appointment(third, nine);
+        appointment(second, nine.plusDays(1));
+        entityManager.flush();
+
+        List<Long> all = appointmentRepository.findEarliestOpenSlots(nine, nine.plusHours(1), PageRequest.of(0, 10))
+                .stream().map(SlotLocation::getId).collect(Collectors.toList());
+        List<SlotLocation> chosen = appointmentRepository.findEarliestOpenSlots(
+                List.of(first.getId(), second.getId()), nine, nine.plusDays(2), PageRequest.of(0, 2));
+
+        assertEquals(List.of(thirdOpen.getId(), secondOpen.getId(), firstOpen.getId()), all);
+        assertEquals(List.of(secondOpen.getId(), firstOpen.getId()),
+                chosen.stream().map(SlotLocation::getId).collect(Collectors.toList()));
+        assertEquals(second.getId(), chosen.get(0).getDoctorId());
+    }
+
+    @Test
+    void givenLongHistory_whenFindOverlappingSlots_thenOnlyOverlappingSlotsAreReturned() {
+        Doctor doctor = new Doctor();
+        doctor.setName("Dr. Who");
+        entityManager.persist(doctor);
+        LocalDateTime startTime = LocalDateTime.of(2023, 6, 20, 0, 0);
+        for (int slot = 0; slot < 30 * 48; slot++) {
+            appointment(doctor, startTime.plusMinutes(30L * slot));
+        }
+        entityManager.flush();
+        LocalDateTime windowStart = startTime.plusDays(10).plusHours(9).plusMinutes(15);
+
+        List<AppointmentSlot> overlapping = appointmentRepository.findOverlappingSlots(doctor.getId(),
+                windowStart.minusHours(8), windowStart, windowStart.plusHours(1));
+
+        assertEquals(List.of(windowStart.minusMinutes(15), windowStart.plusMinutes(15), windowStart.plusMinutes(45)),
+                overlapping.stream().map(AppointmentSlot::getStartTime).collect(Collectors.toList()));
+    }
+
+    @Test
+    void givenSlot_whenAddSlotWithSameDoctorAndStart_thenUniqueConstraintRejectsIt() {
+        Doctor doctor = new Doctor();
+        doctor.setName("Dr. Who");
+        entityManager.persist(doctor);
+        LocalDateTime startTime = LocalDateTime.of(2023, 6, 20, 9, 0);
+        appointment(doctor, startTime);
+        appointment(doctor, startTime);
+
+        assertThrows(PersistenceException.class, () -> entityManager.flush());
+    }
+
+    @Test
+    void whenExplainOverlapQuery_thenDoctorStartRangeIsSeeked() {
+        String plan = jdbcTemplate.queryForObject("EXPLAIN SELECT id, start_time, end_time FROM appointment" +
+                " WHERE doctor_id = 1 AND start_time > TIMESTAMP '2023-06-20 01:00:00'" +
+                " AND start_time < TIMESTAMP '2023-06-20 10:00:00' AND end_time > TIMESTAMP '2023-06-20 09:00:00'", String.class);
+
+        // both start bounds are index conditions, so only the slots of the lookback window are read
+        String indexCondition = plan.toUpperCase().substring(plan.indexOf("/*"), plan.indexOf("*/"));
+        assertTrue(indexCondition.contains("DOCTOR_START"), plan);
+        assertTrue(indexCondition.contains("START_TIME >") && indexCondition.contains("START_TIME <"), plan);
+    }
+
+    @Test
+    void whenExplainOpenSlotQuery_thenCompositeIndexIsUsed() {
+        String plan = jdbcTemplate.queryForObject("EXPLAIN SELECT id, start_time, end_time FROM appointment" +
+                " WHERE doctor_id = 1 AND patient_id IS NULL" +
+                " AND start_time BETWEEN TIMESTAMP '2023-06-20 00:00:00' AND TIMESTAMP '2023-06-21 00:00:00'", String.class);
+
+        assertTrue(plan.toUpperCase().contains("IDX_APPOINTMENT_DOCTOR_START"), plan);
+    }
+
+    private Appointment appointment(Doctor doctor, LocalDateTime startTime) {
+        Appointment appointment = new Appointment();
+        appointment.setDoctor(doctor);
+        appointment.setStartTime(startTime);
+        appointment.setEndTime(startTime.plusMinutes(30));
+        entityManager.persist(appointment);
+        return appointment;
+    }
+}
@@ -0,0 +1,97 @@
+package com.blubank.doctorappointment.repositories;
+
+import com.blubank.doctorappointment.models.Doctor;
+import com.blubank.doctorappointment.models.DoctorDaySummary;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import javax.persistence.EntityManager;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class DoctorDaySummaryRepositoryTest {
+    private static final LocalDate DAY = LocalDate.of(2023, 6, 20);
+
+    @Autowired
+    private DoctorDaySummaryRepository summaryRepository;
+    @Autowired
+    private EntityManager entityManager;
+
+    private Doctor doctor;
+    private DoctorDaySummary summary;
+
+    @DynamicPropertySource
+    static void databaseProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> "jdbc:h2:mem:doctor_day_summary;MODE=Oracle");
+        registry.add("spring.datasource.username", () -> "sa");
+        registry.add("spring.datasource.password", () -> "");
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "create-drop");
+    }
+
+    @BeforeEach
+    void setUp() {
+        doctor = new Doctor();
+        doctor.setName("Jane Smith");
+        entityManager.persist(doctor);
+        summary = new DoctorDaySummary();
+        summary.setDoctor(doctor);
+        summary.setDate(DAY);
+        summary.setTotalSlots(2);
+        summary.setOpenSlots(2);
+        summary.setOpenMask(0b0110L);
+        entityManager.persist(summary);
+        entityManager.flush();
+    }
+
+    @Test
+    void givenOverlappingBits_whenAddSlots_thenMaskIsOredAndCountsAdded() {
+        assertEquals(1, summaryRepository.addSlots(doctor.getId(), DAY, 2, 0b1100L | (1L << 47)));
+        assertEquals(0, summaryRepository.addSlots(doctor.getId(), DAY.plusDays(1), 1, 1L));
+
+        DoctorDaySummary updated = reload();
+        assertEquals(4, updated.getTotalSlots());
+        assertEquals(4, updated.getOpenSlots());
+        assertEquals(0b1110L | (1L << 47), updated.getOpenMask());
+        assertEquals(1, updated.getPendingChanges());
+    }
+
+    @Test
+    void givenNoOpenSlotLeft_whenCloseSlot_thenOpenCountStaysAtZeroAndDayIsPending() {
+        assertEquals(1, summaryRepository.closeSlot(doctor.getId(), DAY, 0));
+        assertEquals(1, summaryRepository.closeSlot(doctor.getId(), DAY, -1));
+        assertEquals(1, summaryRepository.closeSlot(doctor.getId(), DAY, 0));
+        assertEquals(0, summaryRepository.closeSlot(doctor.getId(), DAY.plusDays(1), 0));
+
+        DoctorDaySummary updated = reload();
+        assertEquals(1, updated.getTotalSlots());
+        assertEquals(0, updated.getOpenSlots());
+        assertEquals(0b0110L, updated.getOpenMask());
+        assertEquals(3, updated.getPendingChanges());
+    }
+
+    @Test
+    void givenChangeAfterRead_whenStoreRecount_thenStaleRecountIsDropped() {
+        summaryRepository.closeSlot(doctor.getId(), DAY, 0);
+
+        assertEquals(0, summaryRepository.storeRecount(summary.getId(), 0, 2, 2, 0b0110L));
+        assertEquals(1, summaryRepository.storeRecount(summary.getId(), 1, 2, 1, 0b0100L));
+
+        DoctorDaySummary updated = reload();
+        assertEquals(1, updated.getOpenSlots());
+        assertEquals(0b0100L, updated.getOpenMask());
+        assertEquals(0, updated.getPendingChanges());
+    }
+
+    private DoctorDaySummary reload() {
+        entityManager.clear();
+        return summaryRepository.findById(summary.getId()).get();
+    }
+}
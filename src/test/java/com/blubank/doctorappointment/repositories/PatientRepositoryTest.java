@@ -0,0 +1,53 @@
+package com.blubank.doctorappointment.repositories;
+
+import com.blubank.doctorappointment.models.Patient;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+public class PatientRepositoryTest {
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @DynamicPropertySource
+    static void databaseProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> "jdbc:h2:mem:doctor_appointment;MODE=Oracle");
+        registry.add("spring.datasource.username", () -> "sa");
+        registry.add("spring.datasource.password", () -> "");
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "create-drop");
+    }
+
+    @BeforeEach
+    void setUp() {
+        patientRepository.deleteAll();
+    }
+
+    @Test
+    void givenExistingPhone_whenInsertIfAbsent_thenNothingIsInserted() {
+        assertEquals(1, patientRepository.insertIfAbsent("1234567890", "Some Who"));
+        assertEquals(0, patientRepository.insertIfAbsent("1234567890", "Someone Else"));
+
+        assertEquals(1, patientRepository.count());
+        assertEquals("Some Who", patientRepository.findByPhone("1234567890").get().getName());
+    }
+
+    @Test
+    void givenExistingPhone_whenSaveAnotherPatient_thenViolateUniquePhone() {
+        patientRepository.insertIfAbsent("1234567890", "Some Who");
+        Patient duplicate = new Patient();
+        duplicate.setName("Someone Else");
+        duplicate.setPhone("1234567890");
+
+        assertThrows(DataIntegrityViolationException.class, () -> patientRepository.saveAndFlush(duplicate));
+    }
+}
@@ -0,0 +1,164 @@
+package com.blubank.doctorappointment.services;
+
+import com.blubank.doctorappointment.models.Appointment;
+import com.blubank.doctorappointment.models.Doctor;
+import com.blubank.doctorappointment.models.Patient;
+import com.blubank.doctorappointment.repositories.AppointmentRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import javax.persistence.EntityManager;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class AppointmentExportServiceTest {
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+    @Autowired
+    private EntityManager entityManager;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    private AppointmentExportService exportService;
+    private Doctor doctor;
+    private Patient patient;
+
+    @DynamicPropertySource
+    static void databaseProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> "jdbc:h2:mem:doctor_appointment;MODE=Oracle");
+        registry.add("spring.datasource.username", () -> "sa");
+        registry.add("spring.datasource.password", () -> "");
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "create-drop");
+    }
+
+    @BeforeEach
+    void setUp() {
+        exportService = new AppointmentExportService(appointmentRepository, entityManager, objectMapper);
+        doctor = new Doctor();
+        doctor.setName("Jane Smith");
+        entityManager.persist(doctor);
+        patient = new Patient();
+        patient.setName("John Doe");
+        patient.setPhone("1234567890");
+        entityManager.persist(patient);
+    }
+
+    @Test
+    void givenAppointmentsOverSeveralDays_whenWrite_thenRangeIsWrittenInStartOrder() throws IOException {
+        LocalDateTime start = LocalDateTime.of(2023, 6, 20, 9, 0);
+        List<Appointment> appointments = new ArrayList<>();
+        for (int day = 2; day >= 0; day--) {
+            appointments.add(appointment(start.plusDays(day)));
+        }
+        appointments.get(2).setPatient(patient);
+        appointment(start.plusDays(3));
+        entityManager.flush();
+        entityManager.clear();
+
+        JsonNode written = write(start, start.plusDays(3));
+
+        assertEquals(3, written.size());
+        assertEquals("2023-06-20T09:00:00", written.get(0).get("startTime").asText());
+        assertEquals("2023-06-22T09:00:00", written.get(2).get("startTime").asText());
+        assertTrue(written.get(0).get("isTaken").asBoolean());
+        assertEquals("1234567890", written.get(0).get("patient").get("phone").asText());
+        assertFalse(written.get(1).get("isTaken").asBoolean());
+    }
+
+    @Test
+    void givenWrittenAppointments_thenPersistenceContextStaysEmpty() throws IOException {
+        LocalDateTime start = LocalDateTime.of(2023, 6, 20, 0, 0);
+        for (int slot = 0; slot < 48; slot++) {
+            appointment(start.plusMinutes(30L * slot)).setPatient(patient);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        JsonNode written = write(start, start.plusDays(1));
+
+        assertEquals(48, written.size());
+        assertEquals(0, entityManager.unwrap(Session.class).getStatistics().getEntityCount());
+    }
+
+    @Test
+    void givenNoAppointments_whenWrite_thenEmptyArray() throws IOException {
+        JsonNode written = write(LocalDateTime.of(2023, 6, 20, 0, 0), LocalDateTime.of(2023, 6, 21, 0, 0));
+
+        assertTrue(written.isArray());
+        assertEquals(0, written.size());
+    }
+
+    @Test
+    void givenOpenSlotsOfTwoDoctors_whenWriteOpenSlots_thenEarliestAreWrittenOnePerLine() throws IOException {
+        Doctor other = new Doctor();
+        other.setName("Max Mustermann");
+        entityManager.persist(other);
+        LocalDateTime start = LocalDateTime.of(2023, 6, 20, 9, 0);
+        appointment(start).setPatient(patient);
+        appointment(start.plusMinutes(30));
+        appointment(start.plusMinutes(90));
+        appointment(start.plusMinutes(120));
+        Appointment otherSlot = appointment(start.plusMinutes(60));
+        otherSlot.setDoctor(other);
+        entityManager.flush();
+        entityManager.clear();
+
+        List<JsonNode> all = writeOpenSlots(Set.of(), start, start.plusDays(1), 3);
+        List<JsonNode> mine = writeOpenSlots(Set.of(doctor.getId()), start, start.plusDays(1), 5);
+
+        assertEquals(3, all.size());
+        assertEquals("2023-06-20T09:30:00", all.get(0).get("startTime").asText());
+        assertEquals(other.getId().longValue(), all.get(1).get("doctorId").asLong());
+        assertEquals("2023-06-20T10:30:00", all.get(2).get("startTime").asText());
+        assertEquals(3, mine.size());
+        assertEquals("2023-06-20T11:00:00", mine.get(2).get("startTime").asText());
+    }
+
+    private List<JsonNode> writeOpenSlots(Set<Long> doctorIds, LocalDateTime from, LocalDateTime to, int limit)
+            throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.writeOpenSlots(doctorIds, from, to, limit, out);
+        List<JsonNode> lines = new ArrayList<>();
+        for (String line : out.toString(StandardCharsets.UTF_8).split("\n")) {
+            lines.add(objectMapper.readTree(line));
+        }
+        return lines;
+    }
+
+    private JsonNode write(LocalDateTime from, LocalDateTime to) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.writeDoctorAppointments(doctor.getId(), from, to, out);
+        return objectMapper.readTree(out.toByteArray());
+    }
+
+    private Appointment appointment(LocalDateTime startTime) {
+        Appointment appointment = new Appointment();
+        appointment.setDoctor(doctor);
+        appointment.setStartTime(startTime);
+        appointment.setEndTime(startTime.plusMinutes(30));
+        entityManager.persist(appointment);
+        return appointment;
+    }
+}
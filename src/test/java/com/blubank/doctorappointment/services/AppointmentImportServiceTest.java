@@ -0,0 +1,210 @@
+package com.blubank.doctorappointment.services;
+
+import com.blubank.doctorappointment.exceptions.BadRequestException;
+import com.blubank.doctorappointment.exceptions.NotFoundException;
+import com.blubank.doctorappointment.models.Appointment;
+import com.blubank.doctorappointment.models.Doctor;
+import com.blubank.doctorappointment.models.SlotPolicy;
+import com.blubank.doctorappointment.payloads.responses.BulkWindowRes;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.AdditionalAnswers.returnsSecondArg;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AppointmentImportServiceTest {
+
+    @Mock
+    private DoctorService doctorService;
+    @Mock
+    private AppointmentService appointmentService;
+    @Mock
+    private SlotPolicyService slotPolicyService;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private AppointmentImportService importService;
+    private Doctor doctor;
+    private SlotPolicy policy;
+
+    @BeforeEach
+    void setUp() {
+        importService = new AppointmentImportService(doctorService, appointmentService, slotPolicyService,
+                new SlotGenerator(2), new TransactionTemplate(transactionManager),
+                new ObjectMapper().registerModule(new JavaTimeModule()));
+        doctor = new Doctor();
+        doctor.setId(1L);
+        policy = SlotPolicy.defaults(1L);
+        lenient().when(slotPolicyService.getPolicy(anyLong())).thenReturn(policy);
+        lenient().when(appointmentService.saveSlots(eq(doctor), anyList(), eq(OverlapMode.MERGE))).then(returnsSecondArg());
+    }
+
+    @Test
+    void givenJsonWindows_whenImport_thenEachWindowIsSummarized() throws IOException {
+        String json = "[" +
+                "{\"doctorId\":1,\"startTime\":\"2023-06-20T09:00:00\",\"endTime\":\"2023-06-20T10:00:00\"}," +
+                "{\"doctorId\":2,\"startTime\":\"2023-06-20T09:00:00\",\"endTime\":\"2023-06-20T10:00:00\"}," +
+                "{\"doctorId\":1,\"startTime\":\"not a date\",\"endTime\":\"2023-06-20T10:00:00\"}" +
+                "]";
+        when(doctorService.getDoctor(1L)).thenReturn(doctor);
+        when(doctorService.getDoctor(2L)).thenThrow(new NotFoundException("Doctor not found"));
+        when(doctorService.hasSlots(eq(policy), any(LocalDateTime.class), any(LocalDateTime.class))).thenReturn(true);
+
+        List<BulkWindowRes> results = importService.importJson(body(json), OverlapMode.MERGE);
+
+        assertEquals(3, results.size());
+        assertEquals(BulkWindowRes.Status.CREATED, results.get(0).getStatus());
+        assertEquals(2, results.get(0).getSlots());
+        assertEquals(BulkWindowRes.Status.FAILED, results.get(1).getStatus());
+        assertEquals("Doctor not found", results.get(1).getMessage());
+        assertEquals(BulkWindowRes.Status.FAILED, results.get(2).getStatus());
+    }
+
+    @Test
+    void givenWindowsOfSeveralDoctors_whenImport_thenChunkIsSavedInDoctorIdOrder() throws IOException {
+        Doctor other = new Doctor();
+        other.setId(2L);
+        String json = "[" +
+                "{\"doctorId\":2,\"startTime\":\"2023-06-20T09:00:00\",\"endTime\":\"2023-06-20T10:00:00\"}," +
+                "{\"doctorId\":1,\"startTime\":\"2023-06-20T09:00:00\",\"endTime\":\"2023-06-20T10:00:00\"}," +
+                "{\"doctorId\":2,\"startTime\":\"2023-06-20T11:00:00\",\"endTime\":\"2023-06-20T11:30:00\"}" +
+                "]";
+        when(doctorService.getDoctor(1L)).thenReturn(doctor);
+        when(doctorService.getDoctor(2L)).thenReturn(other);
+        when(doctorService.hasSlots(eq(policy), any(LocalDateTime.class), any(LocalDateTime.class))).thenReturn(true);
+        when(appointmentService.saveSlots(eq(other), anyList(), eq(OverlapMode.MERGE))).then(returnsSecondArg());
+
+        List<BulkWindowRes> results = importService.importJson(body(json), OverlapMode.MERGE);
+
+        InOrder inOrder = inOrder(appointmentService);
+        inOrder.verify(appointmentService).saveSlots(eq(doctor), anyList(), eq(OverlapMode.MERGE));
+        inOrder.verify(appointmentService).saveSlots(eq(other), argThat(slots -> slots.size() == 2), eq(OverlapMode.MERGE));
+        inOrder.verify(appointmentService).saveSlots(eq(other), argThat(slots -> slots.size() == 1), eq(OverlapMode.MERGE));
+        assertEquals(List.of(2L, 1L, 2L), List.of(results.get(0).getDoctorId(), results.get(1).getDoctorId(),
+                results.get(2).getDoctorId()));
+        assertEquals(2, results.get(0).getSlots());
+        assertEquals(2, results.get(1).getSlots());
+        assertEquals(1, results.get(2).getSlots());
+    }
+
+    @Test
+    void givenNonObjectElement_whenImportJson_thenItFailsAndLaterWindowsAreImported() throws IOException {
+        String json = "[" +
+                "42," +
+                "[\"nested\", {\"doctorId\":1}]," +
+                "{\"doctorId\":1,\"startTime\":\"2023-06-20T09:00:00\",\"endTime\":\"2023-06-20T10:00:00\"}" +
+                "]";
+        when(doctorService.getDoctor(1L)).thenReturn(doctor);
+        when(doctorService.hasSlots(eq(policy), any(LocalDateTime.class), any(LocalDateTime.class))).thenReturn(true);
+
+        List<BulkWindowRes> results = importService.importJson(body(json), OverlapMode.MERGE);
+
+        assertEquals(3, results.size());
+        assertEquals(BulkWindowRes.Status.FAILED, results.get(0).getStatus());
+        assertEquals(BulkWindowRes.Status.FAILED, results.get(1).getStatus());
+        assertEquals(BulkWindowRes.Status.CREATED, results.get(2).getStatus());
+        assertEquals(2, results.get(2).getSlots());
+    }
+
+    @Test
+    void givenSyntaxErrorMidStream_whenImportJson_thenWindowsBeforeItAreImportedAndErrorIsReported() throws IOException {
+        String json = "[" +
+                "{\"doctorId\":1,\"startTime\":\"2023-06-20T09:00:00\",\"endTime\":\"2023-06-20T10:00:00\"}," +
+                "{\"doctorId\":1,\"startTime\" oops";
+        when(doctorService.getDoctor(1L)).thenReturn(doctor);
+        when(doctorService.hasSlots(eq(policy), any(LocalDateTime.class), any(LocalDateTime.class))).thenReturn(true);
+
+        List<BulkWindowRes> results = importService.importJson(body(json), OverlapMode.MERGE);
+
+        assertEquals(2, results.size());
+        assertEquals(BulkWindowRes.Status.CREATED, results.get(0).getStatus());
+        assertEquals(BulkWindowRes.Status.FAILED, results.get(1).getStatus());
+        assertTrue(results.get(1).getMessage().startsWith("Malformed JSON at line 1"));
+    }
+
+    @Test
+    void givenUnclosedArray_whenImportJson_thenEndOfInputIsReported() throws IOException {
+        List<BulkWindowRes> results = importService.importJson(body("["), OverlapMode.MERGE);
+
+        assertEquals(1, results.size());
+        assertEquals(BulkWindowRes.Status.FAILED, results.get(0).getStatus());
+    }
+
+    @Test
+    void givenJsonObjectInsteadOfArray_whenImport_thenThrowBadRequestException() {
+        assertThrows(BadRequestException.class, () -> importService.importJson(body("{\"doctorId\":1}"), OverlapMode.MERGE));
+    }
+
+    @Test
+    void givenCsvWithHeaderAndInvalidRange_whenImport_thenOnlyInvalidWindowFails() throws IOException {
+        String csv = "doctorId,startTime,endTime\n" +
+                "1,2023-06-20T09:00,2023-06-20T10:00\n" +
+                "1,2023-06-20T10:00,2023-06-20T09:00\n" +
+                "1,bad\n";
+        LocalDateTime validStart = LocalDateTime.of(2023, 6, 20, 9, 0);
+        LocalDateTime validEnd = LocalDateTime.of(2023, 6, 20, 10, 0);
+        when(doctorService.getDoctor(1L)).thenReturn(doctor);
+        when(doctorService.hasSlots(policy, validStart, validEnd)).thenReturn(true);
+        when(doctorService.hasSlots(policy, validEnd, validStart)).thenThrow(new BadRequestException("Invalid time range"));
+
+        List<BulkWindowRes> results = importService.importCsv(body(csv), OverlapMode.MERGE);
+
+        assertEquals(3, results.size());
+        assertEquals(BulkWindowRes.Status.CREATED, results.get(0).getStatus());
+        assertEquals("Invalid time range", results.get(1).getMessage());
+        assertEquals(BulkWindowRes.Status.FAILED, results.get(2).getStatus());
+    }
+
+    @Test
+    void givenWriteFailureInChunk_whenImport_thenOtherWindowsAreStillCreated() throws IOException {
+        String csv = "1,2023-06-20T09:00,2023-06-20T10:00\n" +
+                "1,2023-06-21T09:00,2023-06-21T10:00\n";
+        LocalDateTime failingStart = LocalDateTime.of(2023, 6, 21, 9, 0);
+        when(doctorService.getDoctor(1L)).thenReturn(doctor);
+        when(doctorService.hasSlots(eq(policy), any(LocalDateTime.class), any(LocalDateTime.class))).thenReturn(true);
+        when(appointmentService.saveSlots(eq(doctor), argThat(slots -> slots.get(0).getStartTime().equals(failingStart)),
+                eq(OverlapMode.MERGE)))
+                .thenThrow(new IllegalStateException("constraint violated"));
+        when(appointmentService.addAppointments(eq(doctor), eq(policy), any(LocalDateTime.class), any(LocalDateTime.class),
+                eq(OverlapMode.MERGE))).thenReturn(List.of(new Appointment(), new Appointment()));
+        when(appointmentService.addAppointments(eq(doctor), eq(policy), eq(failingStart), any(LocalDateTime.class),
+                eq(OverlapMode.MERGE))).thenThrow(new IllegalStateException("constraint violated"));
+
+        List<BulkWindowRes> results = importService.importCsv(body(csv), OverlapMode.MERGE);
+
+        assertEquals(BulkWindowRes.Status.CREATED, results.get(0).getStatus());
+        assertEquals(2, results.get(0).getSlots());
+        assertEquals(BulkWindowRes.Status.FAILED, results.get(1).getStatus());
+        assertEquals("constraint violated", results.get(1).getMessage());
+    }
+
+    private InputStream body(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
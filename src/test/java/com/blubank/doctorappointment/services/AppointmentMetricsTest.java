@@ -0,0 +1,57 @@
+package com.blubank.doctorappointment.services;
+
+import com.blubank.doctorappointment.exceptions.AppointmentTakenException;
+import com.blubank.doctorappointment.exceptions.ConflictException;
+import com.blubank.doctorappointment.exceptions.NotFoundException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AppointmentMetricsTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private AppointmentMetrics appointmentMetrics;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        appointmentMetrics = new AppointmentMetrics(meterRegistry);
+    }
+
+    @Test
+    void givenCompletedAndFailedCalls_whenRecord_thenTimerIsTaggedByOutcome() {
+        assertEquals("ok", appointmentMetrics.record(AppointmentMetrics.BOOK, () -> "ok"));
+        assertThrows(AppointmentTakenException.class, () -> appointmentMetrics.record(AppointmentMetrics.BOOK,
+                () -> { throw new AppointmentTakenException("Appointment is already taken"); }));
+        assertThrows(ConflictException.class, () -> appointmentMetrics.record(AppointmentMetrics.BOOK,
+                () -> { throw new ConflictException("conflict"); }));
+        assertThrows(NotFoundException.class, () -> appointmentMetrics.record(AppointmentMetrics.DELETE,
+                () -> { throw new NotFoundException("Appointment not found"); }));
+
+        assertEquals(1, count(AppointmentMetrics.BOOK, AppointmentMetrics.SUCCESS));
+        assertEquals(1, count(AppointmentMetrics.BOOK, AppointmentMetrics.ALREADY_TAKEN));
+        assertEquals(1, count(AppointmentMetrics.BOOK, AppointmentMetrics.CONFLICT));
+        assertEquals(1, count(AppointmentMetrics.DELETE, AppointmentMetrics.NOT_FOUND));
+    }
+
+    @Test
+    void givenSlotsAndRetries_whenRecorded_thenSummariesAreUpdated() {
+        appointmentMetrics.slotsGenerated(2);
+        appointmentMetrics.slotsGenerated(48);
+        appointmentMetrics.optimisticLockRetries(AppointmentMetrics.BOOK, 1);
+
+        assertEquals(50, meterRegistry.get(AppointmentMetrics.SLOTS_GENERATED).summary().totalAmount());
+        assertEquals(1, meterRegistry.get(AppointmentMetrics.OPTIMISTIC_LOCK_RETRIES)
+                .tag("operation", AppointmentMetrics.BOOK).summary().count());
+    }
+
+    private long count(String operation, String outcome) {
+        return meterRegistry.get(AppointmentMetrics.OPERATION_TIMER)
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .timer().count();
+    }
+}
@@ -1,17 +1,25 @@
 package com.blubank.doctorappointment.services;
 
+import com.blubank.doctorappointment.exceptions.AppointmentTakenException;
 import com.blubank.doctorappointment.exceptions.BadRequestException;
+import com.blubank.doctorappointment.exceptions.ConflictException;
 import com.blubank.doctorappointment.exceptions.NotFoundException;
 import com.blubank.doctorappointment.models.Appointment;
 import com.blubank.doctorappointment.models.Doctor;
 import com.blubank.doctorappointment.models.Patient;
+import com.blubank.doctorappointment.models.SlotPolicy;
 import com.blubank.doctorappointment.repositories.AppointmentRepository;
+import com.blubank.doctorappointment.repositories.DoctorRepository;
+import com.blubank.doctorappointment.repositories.projections.AppointmentSlot;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -25,6 +33,16 @@ public class AppointmentServiceTest {
 
     @Mock
     private AppointmentRepository appointmentRepository;
+    @Mock
+    private DoctorRepository doctorRepository;
+    @Mock
+    private AvailabilityCache availabilityCache;
+    @Spy
+    private AppointmentMetrics appointmentMetrics = new AppointmentMetrics(new SimpleMeterRegistry());
+    @Mock
+    private DoctorDaySummaryService doctorDaySummaryService;
+    @Spy
+    private SlotGenerator slotGenerator = new SlotGenerator(1);
     @InjectMocks
     private AppointmentService appointmentService;
 
@@ -43,6 +61,7 @@ public class AppointmentServiceTest {
 
         doctor = new Doctor();
         doctor.setName("Jane Smith");
+        lenient().when(doctorRepository.lockById(any())).thenReturn(Optional.of(doctor));
 
         LocalDateTime startTime = LocalDateTime.of(2023, 4, 1, 10, 0);
         LocalDateTime endTime = LocalDateTime.of(2023, 4, 1, 11, 0);
@@ -62,10 +81,24 @@ public class AppointmentServiceTest {
         when(appointmentRepository.saveAll(any(List.class))).thenReturn(List.of(
                 new Appointment(), new Appointment(), new Appointment()));
 
-        List<Appointment> appointments = appointmentService.addAppointments(doctor, startTime, endTime);
+        List<Appointment> appointments = appointmentService.addAppointments(doctor, SlotPolicy.defaults(1L), startTime, endTime, OverlapMode.REJECT);
 
         assertEquals(3, appointments.size());
         verify(appointmentRepository, times(1)).saveAll(any(List.class));
+        verify(doctorDaySummaryService, times(1)).slotsAdded(doctor, appointments);
+    }
+    @Test
+    public void addAppointmentsAcrossMidnightInvalidatesBothDays() {
+        doctor.setId(1L);
+        LocalDateTime startTime = LocalDateTime.of(2023, 4, 1, 23, 0);
+        LocalDateTime endTime = LocalDateTime.of(2023, 4, 2, 1, 0);
+
+        when(appointmentRepository.saveAll(any(List.class))).thenReturn(List.of());
+
+        appointmentService.addAppointments(doctor, SlotPolicy.defaults(1L), startTime, endTime, OverlapMode.REJECT);
+
+        verify(availabilityCache, times(1)).invalidate(1L, startTime.toLocalDate());
+        verify(availabilityCache, times(1)).invalidate(1L, endTime.toLocalDate());
     }
     @Test
     public void addAppointmentsWhenEndTimeIsExactly30MinutesAfterStartTime() {
@@ -74,7 +107,7 @@ public class AppointmentServiceTest {
 
         when(appointmentRepository.saveAll(any(List.class))).thenReturn(List.of(new Appointment()));
 
-        List<Appointment> appointments = appointmentService.addAppointments(doctor, startTime, endTime);
+        List<Appointment> appointments = appointmentService.addAppointments(doctor, SlotPolicy.defaults(1L), startTime, endTime, OverlapMode.REJECT);
 
         assertEquals(1, appointments.size());
         verify(appointmentRepository, times(1)).saveAll(any(List.class));
@@ -86,12 +119,41 @@ public class AppointmentServiceTest {
 
         when(appointmentRepository.saveAll(any(List.class))).thenReturn(List.of());
 
-        List<Appointment> appointments = appointmentService.addAppointments(doctor, startTime, endTime);
+        List<Appointment> appointments = appointmentService.addAppointments(doctor, SlotPolicy.defaults(1L), startTime, endTime, OverlapMode.REJECT);
 
         assertEquals(0, appointments.size());
         verify(appointmentRepository, times(1)).saveAll(any(List.class));
     }
     @Test
+    public void addAppointmentsOverlappingExistingSlot_Rejected() {
+        doctor.setId(1L);
+        LocalDateTime startTime = LocalDateTime.of(2023, 4, 1, 10, 0);
+        when(appointmentRepository.findOverlappingSlots(eq(1L), any(LocalDateTime.class), eq(startTime), eq(startTime.plusHours(2))))
+                .thenReturn(List.of(new AppointmentSlot(7L, startTime.plusMinutes(45), startTime.plusMinutes(75))));
+
+        assertThrows(ConflictException.class, () -> appointmentService.addAppointments(doctor, SlotPolicy.defaults(1L),
+                startTime, startTime.plusHours(2), OverlapMode.REJECT));
+        verify(appointmentRepository, never()).saveAll(any(List.class));
+    }
+    @Test
+    public void addAppointmentsOverlappingExistingSlot_Merged() {
+        doctor.setId(1L);
+        LocalDateTime startTime = LocalDateTime.of(2023, 4, 1, 10, 0);
+        when(appointmentRepository.findOverlappingSlots(eq(1L), any(LocalDateTime.class), eq(startTime), eq(startTime.plusHours(2))))
+                .thenReturn(List.of(
+                        new AppointmentSlot(6L, startTime.minusMinutes(15), startTime.plusMinutes(15)),
+                        new AppointmentSlot(7L, startTime.plusMinutes(45), startTime.plusMinutes(75))));
+        when(appointmentRepository.saveAll(any(List.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        List<Appointment> added = appointmentService.addAppointments(doctor, SlotPolicy.defaults(1L),
+                startTime, startTime.plusHours(2), OverlapMode.MERGE);
+
+        // 10:00 and 10:30 and 11:00 overlap, only 11:30 is free
+        assertEquals(1, added.size());
+        assertEquals(startTime.plusMinutes(90), added.get(0).getStartTime());
+        verify(doctorRepository).lockById(1L);
+    }
+    @Test
     public void bookAppointmentSuccessfully() {
         when(appointmentRepository.findById(VALID_APPOINTMENT_ID)).thenReturn(Optional.of(appointment));
         when(appointmentRepository.save(any(Appointment.class))).thenReturn(appointment);
@@ -101,6 +163,8 @@ public class AppointmentServiceTest {
         verify(appointmentRepository, times(1)).save(any(Appointment.class));
 
         assertEquals(patient, bookedAppointment.getPatient());
+        verify(availabilityCache, times(1)).invalidate(doctor.getId(), appointment.getStartTime().toLocalDate());
+        verify(doctorDaySummaryService, times(1)).slotBooked(doctor.getId(), appointment.getStartTime());
     }
     @Test
     public void bookAppointmentAlreadyTaken() {
@@ -121,6 +185,7 @@ public class AppointmentServiceTest {
         assertEquals("Appointment not found", exception.getMessage());
         verify(appointmentRepository, times(1)).findById(INVALID_APPOINTMENT_ID);
         verify(appointmentRepository, never()).save(any(Appointment.class));
+        verifyNoInteractions(availabilityCache);
     }
 
     @Test
@@ -128,6 +193,7 @@ public class AppointmentServiceTest {
         when(appointmentRepository.findById(VALID_APPOINTMENT_ID)).thenReturn(Optional.of(appointment));
         appointmentService.deleteAppointment(VALID_APPOINTMENT_ID);
         verify(appointmentRepository, times(1)).delete(any(Appointment.class));
+        verify(doctorDaySummaryService, times(1)).slotDeleted(doctor.getId(), appointment.getStartTime());
     }
     @Test
     public void testDeleteAppointment_TakenAppointment_ThrowsBadRequestException() {
@@ -148,5 +214,41 @@ public class AppointmentServiceTest {
         assertEquals("Appointment not found", exception.getMessage());
         verify(appointmentRepository, never()).delete(any(Appointment.class));
     }
+    @Test
+    public void bookAppointmentWithConditionalUpdate_ReturnsTheBookedRow() {
+        ReflectionTestUtils.setField(appointmentService, "conditionalUpdate", true);
+        doctor.setId(2L);
+        LocalDateTime startTime = appointment.getStartTime();
+        when(appointmentRepository.bookIfOpen(VALID_APPOINTMENT_ID, patient)).thenReturn(1);
+        appointment.setPatient(patient);
+        when(appointmentRepository.findById(VALID_APPOINTMENT_ID)).thenReturn(Optional.of(appointment));
+
+        Appointment booked = appointmentService.bookAppointment(VALID_APPOINTMENT_ID, patient);
+
+        assertSame(appointment, booked);
+        assertEquals(patient, booked.getPatient());
+        verify(appointmentRepository, never()).save(any(Appointment.class));
+        verify(availabilityCache).invalidate(2L, startTime.toLocalDate());
+        verify(doctorDaySummaryService).slotBooked(2L, startTime);
+    }
+    @Test
+    public void bookAppointmentWithConditionalUpdate_AlreadyTaken() {
+        ReflectionTestUtils.setField(appointmentService, "conditionalUpdate", true);
+        when(appointmentRepository.bookIfOpen(VALID_APPOINTMENT_ID, patient)).thenReturn(0);
+        when(appointmentRepository.existsById(VALID_APPOINTMENT_ID)).thenReturn(true);
+
+        assertThrows(AppointmentTakenException.class,
+                () -> appointmentService.bookAppointment(VALID_APPOINTMENT_ID, patient));
+        verifyNoInteractions(availabilityCache, doctorDaySummaryService);
+    }
+    @Test
+    public void bookAppointmentWithConditionalUpdate_NotFound() {
+        ReflectionTestUtils.setField(appointmentService, "conditionalUpdate", true);
+        when(appointmentRepository.bookIfOpen(INVALID_APPOINTMENT_ID, patient)).thenReturn(0);
+        when(appointmentRepository.existsById(INVALID_APPOINTMENT_ID)).thenReturn(false);
+
+        assertThrows(NotFoundException.class,
+                () -> appointmentService.bookAppointment(INVALID_APPOINTMENT_ID, patient));
+    }
 
 }
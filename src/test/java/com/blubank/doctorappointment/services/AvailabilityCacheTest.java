@@ -0,0 +1,141 @@
+package com.blubank.doctorappointment.services;
+
+import com.blubank.doctorappointment.repositories.projections.AppointmentSlot;
+import com.hazelcast.config.Config;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AvailabilityCacheTest {
+
+    private static HazelcastInstance hazelcastInstance;
+
+    private AvailabilityCache availabilityCache;
+    private MeterRegistry meterRegistry;
+    private final LocalDate date = LocalDate.of(2023, 6, 20);
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @BeforeAll
+    static void startHazelcast() {
+        Config config = new Config().setClusterName(UUID.randomUUID().toString());
+        config.getNetworkConfig().getJoin().getMulticastConfig().setEnabled(false);
+        hazelcastInstance = Hazelcast.newHazelcastInstance(config);
+    }
+
+    @AfterAll
+    static void stopHazelcast() {
+        hazelcastInstance.shutdown();
+    }
+
+    @BeforeEach
+    void setUp() {
+        hazelcastInstance.getMap(AvailabilityCache.SLOTS_MAP).clear();
+        hazelcastInstance.getMap(AvailabilityCache.VERSIONS_MAP).clear();
+        meterRegistry = new SimpleMeterRegistry();
+        availabilityCache = new AvailabilityCache(hazelcastInstance, meterRegistry);
+        loads.set(0);
+    }
+
+    @Test
+    void givenCachedDay_whenGetAgain_thenServeFromCache() {
+        availabilityCache.get(1L, date, this::load);
+        DaySchedule slots = availabilityCache.get(1L, date, this::load);
+
+        assertEquals(1, slots.size());
+        assertEquals(date.atTime(10, 0), slots.startTime(slots.getStartOfDay(), 0));
+        assertEquals(1, loads.get());
+        assertEquals(1.0, meterRegistry.counter("appointment.availability.cache", "result", "hit").count());
+        assertEquals(1.0, meterRegistry.counter("appointment.availability.cache", "result", "miss").count());
+    }
+
+    @Test
+    void givenInvalidatedDay_whenGet_thenReload() {
+        availabilityCache.get(1L, date, this::load);
+        long version = availabilityCache.version(1L, date);
+
+        availabilityCache.invalidate(1L, date);
+        availabilityCache.get(1L, date, this::load);
+
+        assertTrue(availabilityCache.version(1L, date) > version);
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void givenWriteDuringLoad_whenGetAgain_thenStaleLoadIsNotServed() {
+        availabilityCache.get(1L, date, () -> {
+            List<AppointmentSlot> stale = load();
+            availabilityCache.invalidate(1L, date);
+            return stale;
+        });
+        availabilityCache.get(1L, date, this::load);
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void givenOtherDoctorInvalidated_whenGet_thenStillServedFromCache() {
+        availabilityCache.get(1L, date, this::load);
+
+        availabilityCache.invalidate(2L, date);
+        availabilityCache.invalidate(1L, date.plusDays(1));
+        availabilityCache.get(1L, date, this::load);
+
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void givenUnchangedDay_whenEtagAgain_thenSameTagUntilInvalidated() {
+        String etag = availabilityCache.etag(1L, date);
+
+        assertEquals(etag, availabilityCache.etag(1L, date));
+        availabilityCache.invalidate(2L, date);
+        assertEquals(etag, availabilityCache.etag(1L, date));
+        availabilityCache.invalidate(1L, date);
+        assertNotEquals(etag, availabilityCache.etag(1L, date));
+    }
+
+    @Test
+    void givenDayNeverChanged_whenEtag_thenNoCounterIsStored() {
+        String etag = availabilityCache.etag(1L, date);
+
+        assertEquals(etag, availabilityCache.etag(1L, date));
+        assertTrue(hazelcastInstance.getMap(AvailabilityCache.VERSIONS_MAP).isEmpty());
+        availabilityCache.invalidate(1L, date);
+        assertEquals(1, hazelcastInstance.getMap(AvailabilityCache.VERSIONS_MAP).size());
+    }
+
+    @Test
+    void givenEvictedVersion_whenInvalidated_thenEarlierTagsAreNotReused() throws InterruptedException {
+        String first = availabilityCache.etag(1L, date);
+        availabilityCache.invalidate(1L, date);
+        String second = availabilityCache.etag(1L, date);
+
+        // versions are evicted after a day idle; a few milliseconds stand in for it
+        Thread.sleep(10);
+        hazelcastInstance.getMap(AvailabilityCache.VERSIONS_MAP).clear();
+        availabilityCache.invalidate(1L, date);
+        String afterEviction = availabilityCache.etag(1L, date);
+
+        assertTrue(Long.parseLong(afterEviction) > Long.parseLong(second));
+        assertNotEquals(first, afterEviction);
+    }
+
+    private List<AppointmentSlot> load() {
+        loads.incrementAndGet();
+        return List.of(new AppointmentSlot(1L, date.atTime(10, 0), date.atTime(10, 30)));
+    }
+}
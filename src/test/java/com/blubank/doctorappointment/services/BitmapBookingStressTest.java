@@ -0,0 +1,115 @@
+package com.blubank.doctorappointment.services;
+
+import com.blubank.doctorappointment.exceptions.AppointmentTakenException;
+import com.blubank.doctorappointment.exceptions.ConflictException;
+import com.blubank.doctorappointment.models.Appointment;
+import com.blubank.doctorappointment.models.Doctor;
+import com.blubank.doctorappointment.payloads.requests.CreateDoctorDto;
+import com.blubank.doctorappointment.payloads.requests.CreatePatientDto;
+import com.blubank.doctorappointment.repositories.AppointmentRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+/**
+ * Every patient races for every slot of a doctor through {@link PatientService#bookAppointment},
+ * with the bitmap engine in front of the database, and the winners are checked against the
+ * committed rows.
+ */
+@Slf4j
+@SpringBootTest(properties = {
+        "appointment.booking.engine=bitmap",
+        "appointment.hazelcast.cluster-name=bitmap-booking-stress",
+        "spring.datasource.url=jdbc:h2:mem:bitmap_booking_stress;MODE=Oracle"
+})
+class BitmapBookingStressTest {
+    private static final int PATIENTS = 16;
+    private static final int DAYS = 4;
+
+    @Autowired
+    private DoctorService doctorService;
+    @Autowired
+    private PatientService patientService;
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private SlotClaimEngine slotClaimEngine;
+
+    @Test
+    void givenEveryPatientRacingForEverySlot_whenBook_thenEachSlotIsBookedExactlyOnce() throws Exception {
+        assertInstanceOf(BitmapSlotClaimEngine.class, slotClaimEngine);
+        CreateDoctorDto doctorDto = new CreateDoctorDto();
+        doctorDto.setName("Stress Doctor");
+        Doctor doctor = doctorService.create(doctorDto);
+        LocalDateTime start = LocalDateTime.now().plusDays(1).withHour(0).withMinute(0).withSecond(0).withNano(0);
+        List<Long> slotIds = new ArrayList<>();
+        for (int day = 0; day < DAYS; day++) {
+            doctorService.addAppointments(doctor.getId(), start.plusDays(day), start.plusDays(day + 1), OverlapMode.REJECT)
+                    .forEach(appointment -> slotIds.add(appointment.getId()));
+        }
+        Map<Long, String> winners = new ConcurrentHashMap<>();
+        AtomicInteger doubleWins = new AtomicInteger();
+        AtomicInteger attempts = new AtomicInteger();
+        CountDownLatch go = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(PATIENTS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int p = 0; p < PATIENTS; p++) {
+            CreatePatientDto patient = new CreatePatientDto();
+            patient.setName("Patient " + p);
+            patient.setPhone(String.format("0912%07d", p));
+            List<Long> order = new ArrayList<>(slotIds);
+            Collections.shuffle(order);
+            futures.add(executor.submit(() -> {
+                go.await();
+                for (Long slotId : order) {
+                    attempts.incrementAndGet();
+                    try {
+                        patientService.bookAppointment(slotId, patient);
+                        if (winners.putIfAbsent(slotId, patient.getPhone()) != null) doubleWins.incrementAndGet();
+                    } catch (AppointmentTakenException | ConflictException e) {
+                        // lost the race
+                    }
+                }
+                return null;
+            }));
+        }
+
+        long began = System.nanoTime();
+        go.countDown();
+        for (Future<?> future : futures) future.get();
+        double seconds = (System.nanoTime() - began) / 1e9;
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.SECONDS);
+        log.info("{} booking attempts by {} patients for {} slots in {} s: {} attempts/s, {} bookings/s",
+                attempts.get(), PATIENTS, slotIds.size(), String.format("%.2f", seconds),
+                Math.round(attempts.get() / seconds), Math.round(slotIds.size() / seconds));
+
+        assertEquals(0, doubleWins.get());
+        assertEquals(slotIds.size(), winners.size());
+        Map<Long, String> booked = transactionTemplate.execute(status -> appointmentRepository.findAllById(slotIds)
+                .stream()
+                .collect(Collectors.toMap(Appointment::getId, appointment -> appointment.getPatient().getPhone())));
+        assertEquals(winners, booked);
+    }
+}
@@ -0,0 +1,129 @@
+package com.blubank.doctorappointment.services;
+
+import com.blubank.doctorappointment.repositories.AppointmentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BitmapSlotClaimEngineTest {
+
+    @Mock
+    private AppointmentRepository appointmentRepository;
+
+    private BitmapSlotClaimEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        engine = new BitmapSlotClaimEngine(appointmentRepository);
+    }
+
+    @Test
+    void givenClaimedSlot_whenClaimAgain_thenReject() {
+        assertTrue(engine.tryClaim(42L));
+        assertFalse(engine.tryClaim(42L));
+        assertTrue(engine.tryClaim(43L));
+    }
+
+    @Test
+    void givenReleasedSlot_whenClaimAgain_thenGrant() {
+        engine.tryClaim(42L);
+        engine.release(42L);
+
+        assertTrue(engine.tryClaim(42L));
+    }
+
+    @Test
+    void givenBookedSlotsInDatabase_whenRecover_thenTheyCannotBeClaimed() {
+        when(appointmentRepository.findBookedIdsFrom(any(LocalDateTime.class)))
+                .thenReturn(List.of(7L, (long) BitmapSlotClaimEngine.CHUNK_BITS + 7));
+
+        engine.recover();
+
+        assertFalse(engine.tryClaim(7L));
+        assertFalse(engine.tryClaim((long) BitmapSlotClaimEngine.CHUNK_BITS + 7));
+        assertTrue(engine.tryClaim(8L));
+    }
+
+    @Test
+    void givenChunksOfStartedAppointments_whenSweep_thenOnlyThoseAreEvicted() {
+        long liveId = 2L * BitmapSlotClaimEngine.CHUNK_BITS + 5;
+        engine.tryClaim(7L);
+        engine.tryClaim((long) BitmapSlotClaimEngine.CHUNK_BITS + 7);
+        engine.tryClaim(liveId);
+        engine.tryClaim(liveId + 1);
+        when(appointmentRepository.findUnstartedIdsFrom(eq(0L), any(LocalDateTime.class), any(Pageable.class)))
+                .thenReturn(List.of(liveId + 1));
+
+        engine.evictStartedChunks();
+
+        assertEquals(1, engine.chunkCount());
+        assertFalse(engine.tryClaim(liveId));
+        assertTrue(engine.tryClaim(7L));
+    }
+
+    @Test
+    void givenEarlierSweep_whenSweepAgain_thenScanResumesFromItsWatermark() {
+        when(appointmentRepository.findUnstartedIdsFrom(anyLong(), any(LocalDateTime.class), any(Pageable.class)))
+                .thenReturn(List.of(9000L), List.of());
+        engine.evictStartedChunks();
+        engine.tryClaim(9000L);
+
+        engine.evictStartedChunks();
+
+        verify(appointmentRepository).findUnstartedIdsFrom(eq(9000L), any(LocalDateTime.class), any(Pageable.class));
+        assertEquals(0, engine.chunkCount());
+    }
+
+    @Test
+    void givenConcurrentClaims_whenEveryThreadRacesForEverySlot_thenEachSlotHasExactlyOneWinner() throws Exception {
+        int threads = 16;
+        int slots = 20_000;
+        AtomicIntegerArray winners = new AtomicIntegerArray(slots);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            List<Long> ids = new ArrayList<>();
+            for (long id = 0; id < slots; id++) ids.add(id);
+            Collections.shuffle(ids);
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (Long id : ids) {
+                    if (engine.tryClaim(id)) winners.incrementAndGet(id.intValue());
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) future.get();
+        executor.shutdown();
+
+        for (int id = 0; id < slots; id++) {
+            assertEquals(1, winners.get(id), "slot " + id);
+        }
+    }
+}
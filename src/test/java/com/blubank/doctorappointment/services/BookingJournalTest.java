@@ -0,0 +1,107 @@
+package com.blubank.doctorappointment.services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BookingJournalTest {
+    private static final int SEGMENT_BYTES = 4096;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void givenAppendedRequests_whenReopened_thenTheyArePendingInTicketOrder() throws IOException {
+        try (BookingJournal journal = new BookingJournal(directory, SEGMENT_BYTES, false)) {
+            assertEquals(1, journal.append(10L, "John Doe", "1234567890").getTicket());
+            assertEquals(2, journal.append(10L, "Jane Doe", "1234567891").getTicket());
+        }
+
+        try (BookingJournal journal = new BookingJournal(directory, SEGMENT_BYTES, false)) {
+            List<BookingJournal.Entry> pending = journal.pending();
+            assertEquals(List.of(1L, 2L), tickets(pending));
+            assertEquals("Jane Doe", pending.get(1).getName());
+            assertEquals("1234567891", pending.get(1).getPhone());
+            assertEquals(3, journal.append(11L, "Jim Doe", "1234567892").getTicket());
+        }
+    }
+
+    @Test
+    void givenCheckpoint_whenReopened_thenOnlyLaterRequestsArePending() throws IOException {
+        try (BookingJournal journal = new BookingJournal(directory, SEGMENT_BYTES, false)) {
+            journal.append(10L, "John Doe", "1234567890");
+            journal.append(11L, "John Doe", "1234567890");
+            journal.append(12L, "John Doe", "1234567890");
+            journal.checkpoint(2);
+        }
+
+        try (BookingJournal journal = new BookingJournal(directory, SEGMENT_BYTES, false)) {
+            assertEquals(List.of(3L), tickets(journal.pending()));
+            assertEquals(2, journal.getCheckpoint());
+        }
+    }
+
+    @Test
+    void givenTornRecord_whenReopened_thenJournalEndsBeforeIt() throws IOException {
+        try (BookingJournal journal = new BookingJournal(directory, SEGMENT_BYTES, false)) {
+            journal.append(10L, "John Doe", "1234567890");
+            journal.append(11L, "John Doe", "1234567890");
+        }
+        Path segment = segments().get(0);
+        int secondRecord = 8 + 8 * 2 + 2 * 2 + "John Doe".length() + "1234567890".length();
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            // corrupt the payload of the second record, as if its pages never reached the disk
+            channel.write(ByteBuffer.wrap(new byte[]{1, 2, 3}), secondRecord + 20);
+        }
+
+        try (BookingJournal journal = new BookingJournal(directory, SEGMENT_BYTES, false)) {
+            assertEquals(List.of(1L), tickets(journal.pending()));
+            assertEquals(2, journal.append(12L, "Jim Doe", "1234567892").getTicket());
+        }
+        try (BookingJournal journal = new BookingJournal(directory, SEGMENT_BYTES, false)) {
+            assertEquals(List.of(1L, 2L), tickets(journal.pending()));
+            assertEquals(12L, journal.pending().get(1).getAppointmentId());
+        }
+    }
+
+    @Test
+    void givenFullSegments_whenCheckpointed_thenAppliedSegmentsAreDeleted() throws IOException {
+        try (BookingJournal journal = new BookingJournal(directory, SEGMENT_BYTES, false)) {
+            for (long id = 1; id <= 300; id++) {
+                journal.append(id, "John Doe", "1234567890");
+            }
+            int written = segments().size();
+            assertTrue(written > 2, "expected several segments but got " + written);
+
+            journal.checkpoint(300);
+
+            assertEquals(1, segments().size());
+        }
+        try (BookingJournal journal = new BookingJournal(directory, SEGMENT_BYTES, false)) {
+            assertTrue(journal.pending().isEmpty());
+            assertEquals(301, journal.append(1L, "John Doe", "1234567890").getTicket());
+        }
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(f -> f.toString().endsWith(".journal")).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static List<Long> tickets(List<BookingJournal.Entry> entries) {
+        return entries.stream().map(BookingJournal.Entry::getTicket).collect(Collectors.toList());
+    }
+}
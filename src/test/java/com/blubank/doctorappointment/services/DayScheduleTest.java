@@ -0,0 +1,38 @@
+package com.blubank.doctorappointment.services;
+
+import com.blubank.doctorappointment.repositories.projections.AppointmentSlot;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DayScheduleTest {
+    private static final LocalDate DAY = LocalDate.of(2023, 6, 20);
+
+    @Test
+    void givenSlots_whenPacked_thenTimesRoundTrip() {
+        DaySchedule schedule = DaySchedule.of(DAY, List.of(
+                new AppointmentSlot(7L, DAY.atTime(0, 0), DAY.atTime(0, 30)),
+                new AppointmentSlot(8L, DAY.atTime(9, 10), DAY.atTime(9, 40)),
+                new AppointmentSlot(9L, DAY.atTime(23, 45), DAY.plusDays(1).atTime(0, 15))));
+
+        assertEquals(DAY, schedule.getDate());
+        assertEquals(3, schedule.size());
+        assertEquals(7L, schedule.id(0));
+        assertEquals(0, schedule.startMinute(0));
+        assertEquals(550, schedule.startMinute(1));
+        assertEquals(30, schedule.lengthMinutes(1));
+        assertEquals(DAY.atStartOfDay(), schedule.getStartOfDay());
+        assertEquals(DAY.atTime(9, 10), schedule.startTime(schedule.getStartOfDay(), 1));
+        assertEquals(DAY.plusDays(1).atTime(0, 15), schedule.endTime(DAY.atTime(23, 45), 2));
+    }
+
+    @Test
+    void givenValueOutOfRange_whenPack_thenThrowIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> DaySchedule.pack(-1, 30));
+        assertThrows(IllegalArgumentException.class, () -> DaySchedule.pack(0, 0x10000));
+    }
+}
@@ -0,0 +1,196 @@
+package com.blubank.doctorappointment.services;
+
+import com.blubank.doctorappointment.exceptions.BadRequestException;
+import com.blubank.doctorappointment.exceptions.NotFoundException;
+import com.blubank.doctorappointment.models.Appointment;
+import com.blubank.doctorappointment.models.Doctor;
+import com.blubank.doctorappointment.models.DoctorDaySummary;
+import com.blubank.doctorappointment.repositories.AppointmentRepository;
+import com.blubank.doctorappointment.repositories.DoctorDaySummaryRepository;
+import com.blubank.doctorappointment.repositories.DoctorRepository;
+import com.blubank.doctorappointment.repositories.projections.AppointmentSlot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DoctorDaySummaryServiceTest {
+
+    @Mock
+    private DoctorDaySummaryRepository summaryRepository;
+    @Mock
+    private DoctorRepository doctorRepository;
+    @Mock
+    private AppointmentRepository appointmentRepository;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+    @InjectMocks
+    private DoctorDaySummaryService summaryService;
+
+    private static final LocalDate DAY = LocalDate.of(2023, 6, 20);
+
+    private Doctor doctor;
+
+    @BeforeEach
+    void setUp() {
+        doctor = new Doctor();
+        doctor.setId(1L);
+    }
+
+    @Test
+    void givenSlotsOverTwoDays_whenSlotsAdded_thenOneSummaryPerDayIsCreated() {
+        when(doctorRepository.lockById(1L)).thenReturn(Optional.of(doctor));
+
+        summaryService.slotsAdded(doctor, List.of(
+                slot(DAY.atTime(9, 0)), slot(DAY.atTime(9, 30)), slot(DAY.plusDays(1).atTime(0, 0))));
+
+        ArgumentCaptor<DoctorDaySummary> saved = ArgumentCaptor.forClass(DoctorDaySummary.class);
+        verify(summaryRepository, times(2)).save(saved.capture());
+        DoctorDaySummary first = saved.getAllValues().get(0);
+        assertEquals(DAY, first.getDate());
+        assertEquals(2, first.getTotalSlots());
+        assertEquals(2, first.getOpenSlots());
+        assertEquals((1L << 18) | (1L << 19), first.getOpenMask());
+        DoctorDaySummary second = saved.getAllValues().get(1);
+        assertEquals(DAY.plusDays(1), second.getDate());
+        assertEquals(1L, second.getOpenMask());
+    }
+
+    @Test
+    void givenExistingSummary_whenSlotsAdded_thenCountsAndMaskAreAddedInOneUpdate() {
+        when(doctorRepository.lockById(1L)).thenReturn(Optional.of(doctor));
+        when(summaryRepository.addSlots(1L, DAY, 2, (1L << 18) | (1L << 47))).thenReturn(1);
+
+        summaryService.slotsAdded(doctor, List.of(slot(DAY.atTime(9, 0)), slot(DAY.atTime(23, 30))));
+
+        verify(summaryRepository, never()).save(any());
+    }
+
+    @Test
+    void givenNoSlots_whenSlotsAdded_thenNothingIsLocked() {
+        summaryService.slotsAdded(doctor, List.of());
+
+        verifyNoInteractions(doctorRepository, summaryRepository);
+    }
+
+    @Test
+    void givenBookedSlot_whenSlotBooked_thenOpenCountDropsWithoutLockOrQuery() {
+        when(summaryRepository.closeSlot(1L, DAY, 0)).thenReturn(1);
+
+        summaryService.slotBooked(1L, DAY.atTime(9, 0));
+
+        verify(summaryRepository).closeSlot(1L, DAY, 0);
+        verifyNoMoreInteractions(summaryRepository);
+        verifyNoInteractions(doctorRepository, appointmentRepository);
+    }
+
+    @Test
+    void givenDeletedSlot_whenSlotDeleted_thenTotalAndOpenCountsDrop() {
+        when(summaryRepository.closeSlot(1L, DAY, -1)).thenReturn(1);
+
+        summaryService.slotDeleted(1L, DAY.atTime(9, 15));
+
+        verify(summaryRepository).closeSlot(1L, DAY, -1);
+        verify(summaryRepository, never()).save(any());
+    }
+
+    @Test
+    void givenDayWithoutSummary_whenSlotBooked_thenEmptyPendingSummaryIsCreated() {
+        when(doctorRepository.lockById(1L)).thenReturn(Optional.of(doctor));
+
+        summaryService.slotBooked(1L, DAY.atTime(9, 0));
+
+        verify(summaryRepository, times(2)).closeSlot(1L, DAY, 0);
+        ArgumentCaptor<DoctorDaySummary> saved = ArgumentCaptor.forClass(DoctorDaySummary.class);
+        verify(summaryRepository).save(saved.capture());
+        assertEquals(DAY, saved.getValue().getDate());
+        assertEquals(0, saved.getValue().getOpenSlots());
+        assertEquals(1, saved.getValue().getPendingChanges());
+    }
+
+    @Test
+    void givenPendingDay_whenRecount_thenCountsAndMaskComeFromItsAppointments() {
+        DoctorDaySummary summary = summary(3, 2, (1L << 18) | (1L << 19));
+        summary.setId(7L);
+        summary.setPendingChanges(2);
+        when(summaryRepository.findPendingRecount(any())).thenReturn(List.of(summary));
+        when(appointmentRepository.findOpenSlots(1L, DAY.atStartOfDay(), DAY.plusDays(1).atStartOfDay()))
+                .thenReturn(List.of(new AppointmentSlot(2L, DAY.atTime(9, 30), DAY.atTime(10, 0))));
+        when(appointmentRepository.countSlots(1L, DAY.atStartOfDay(), DAY.plusDays(1).atStartOfDay())).thenReturn(3L);
+
+        summaryService.recountPendingDays();
+
+        verify(summaryRepository).storeRecount(7L, 2, 3, 1, 1L << 19);
+    }
+
+    @Test
+    void givenDoctorWithoutSummaries_whenBackfill_thenMissingDaysAreCreatedPending() {
+        when(doctorRepository.lockById(1L)).thenReturn(Optional.of(doctor));
+        when(summaryRepository.findDates(1L)).thenReturn(List.of(DAY));
+        when(appointmentRepository.findStartTimes(1L)).thenReturn(List.of(
+                DAY.atTime(9, 0), DAY.plusDays(1).atTime(9, 0), DAY.plusDays(1).atTime(9, 30)));
+
+        summaryService.backfill(1L);
+
+        ArgumentCaptor<DoctorDaySummary> saved = ArgumentCaptor.forClass(DoctorDaySummary.class);
+        verify(summaryRepository).save(saved.capture());
+        assertEquals(DAY.plusDays(1), saved.getValue().getDate());
+        assertEquals(0, saved.getValue().getOpenSlots());
+        assertEquals(1, saved.getValue().getPendingChanges());
+    }
+
+    @Test
+    void givenWeeksOutOfRange_whenGetAvailableDays_thenThrowBadRequestException() {
+        assertThrows(BadRequestException.class, () -> summaryService.getAvailableDays(1L, DAY, 0));
+        assertThrows(BadRequestException.class,
+                () -> summaryService.getAvailableDays(1L, DAY, DoctorDaySummaryService.MAX_WEEKS + 1));
+    }
+
+    @Test
+    void givenUnknownDoctor_whenGetAvailableDays_thenThrowNotFoundException() {
+        when(doctorRepository.existsById(2L)).thenReturn(false);
+
+        assertThrows(NotFoundException.class, () -> summaryService.getAvailableDays(2L, DAY, 4));
+    }
+
+    @Test
+    void givenDoctor_whenGetAvailableDays_thenRangeIsHalfOpen() {
+        when(doctorRepository.existsById(1L)).thenReturn(true);
+
+        summaryService.getAvailableDays(1L, DAY, 2);
+
+        verify(summaryRepository).findAvailableDays(1L, DAY, DAY.plusWeeks(2));
+    }
+
+    private Appointment slot(LocalDateTime startTime) {
+        Appointment appointment = new Appointment();
+        appointment.setDoctor(doctor);
+        appointment.setStartTime(startTime);
+        appointment.setEndTime(startTime.plusMinutes(30));
+        return appointment;
+    }
+
+    private DoctorDaySummary summary(int totalSlots, int openSlots, long openMask) {
+        DoctorDaySummary summary = new DoctorDaySummary();
+        summary.setDoctor(doctor);
+        summary.setDate(DAY);
+        summary.setTotalSlots(totalSlots);
+        summary.setOpenSlots(openSlots);
+        summary.setOpenMask(openMask);
+        return summary;
+    }
+}
@@ -1,27 +1,34 @@
 package com.blubank.doctorappointment.services;
 
 import com.blubank.doctorappointment.exceptions.BadRequestException;
+import com.blubank.doctorappointment.exceptions.ConflictException;
 import com.blubank.doctorappointment.exceptions.NotFoundException;
 import com.blubank.doctorappointment.models.Appointment;
 import com.blubank.doctorappointment.models.Doctor;
-import com.blubank.doctorappointment.models.Patient;
+import com.blubank.doctorappointment.models.SlotPolicy;
 import com.blubank.doctorappointment.repositories.DoctorRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 import java.time.LocalDateTime;
-import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
@@ -35,12 +42,17 @@ class DoctorServiceTest {
     @Mock
     private AppointmentService appointmentService;
 
+    @Spy
+    private AppointmentMetrics appointmentMetrics = new AppointmentMetrics(new SimpleMeterRegistry());
+    @Spy
+    private OptimisticLockRetry optimisticLockRetry = new OptimisticLockRetry(appointmentMetrics, 3, 0, 0, 3, 0, 0);
+    @Mock
+    private SlotPolicyService slotPolicyService;
     @InjectMocks
     private DoctorService doctorService;
 
     private Doctor doctor;
     private Appointment appointment;
-    private Patient patient;
 
     @BeforeEach
     void setUp() {
@@ -54,10 +66,7 @@ class DoctorServiceTest {
         appointment.setStartTime(LocalDateTime.now().plusDays(1));
         appointment.setEndTime(appointment.getStartTime().plusMinutes(30));
 
-        patient = new Patient();
-        patient.setId(1L);
-        patient.setName("Some Who");
-        patient.setPhone("1234567890");
+        lenient().when(slotPolicyService.getPolicy(1L)).thenReturn(SlotPolicy.defaults(1L));
     }
 
     @Test
@@ -69,7 +78,7 @@ class DoctorServiceTest {
         when(doctorRepository.findById(doctorId)).thenReturn(Optional.of(doctor));
 
         BadRequestException exception = assertThrows(BadRequestException.class, () ->
-                doctorService.addAppointments(doctorId, startTime, endTime)
+                doctorService.addAppointments(doctorId, startTime, endTime, OverlapMode.REJECT)
         );
 
         assertEquals("Invalid time range", exception.getMessage());
@@ -83,43 +92,65 @@ class DoctorServiceTest {
 
         when(doctorRepository.findById(doctorId)).thenReturn(Optional.of(doctor));
 
-        List<Appointment> appointments = doctorService.addAppointments(doctorId, startTime, endTime);
+        List<Appointment> appointments = doctorService.addAppointments(doctorId, startTime, endTime, OverlapMode.REJECT);
 
         assertTrue(appointments.isEmpty());
     }
 
     @Test
-    void givenNoAppointments_whenGetDoctorAppointments_thenReturnEmptyList() {
+    void givenShorterSlotPolicy_whenAddAppointments_thenWindowShorterThan30MinutesIsExpanded() {
         Long doctorId = 1L;
-        LocalDateTime date = LocalDateTime.of(2023, 6, 20, 10, 0);
-        LocalDateTime startOfDay = date.toLocalDate().atStartOfDay();
-        LocalDateTime endOfDay = startOfDay.plusDays(1);
+        LocalDateTime startTime = LocalDateTime.of(2023, 6, 20, 10, 0);
+        LocalDateTime endTime = LocalDateTime.of(2023, 6, 20, 10, 20);
+        SlotPolicy policy = SlotPolicy.defaults(doctorId);
+        policy.setSlotMinutes(10);
 
         when(doctorRepository.findById(doctorId)).thenReturn(Optional.of(doctor));
-        when(appointmentService.getDoctorAppointments(doctor, startOfDay, endOfDay)).thenReturn(Collections.emptyList());
+        when(slotPolicyService.getPolicy(doctorId)).thenReturn(policy);
 
-        List<Appointment> appointments = doctorService.getDoctorAppointments(doctorId, date);
+        doctorService.addAppointments(doctorId, startTime, endTime, OverlapMode.REJECT);
 
-        assertTrue(appointments.isEmpty());
+        verify(appointmentService, times(1)).addAppointments(doctor, policy, startTime, endTime, OverlapMode.REJECT);
     }
 
     @Test
-    void givenTakenAppointments_whenGetDoctorAppointments_thenReturnAppointmentsWithPatientDetails() {
-        Long doctorId = 1L;
-        LocalDateTime date = LocalDateTime.of(2023, 6, 20, 10, 0);
-        LocalDateTime startOfDay = date.toLocalDate().atStartOfDay();
-        LocalDateTime endOfDay = startOfDay.plusDays(1);
+    void givenWindowLongerThanConfiguredMaximum_whenAddAppointments_thenThrowBadRequestException() {
+        ReflectionTestUtils.setField(doctorService, "maxWindowHours", 8);
+        LocalDateTime startTime = LocalDateTime.of(2023, 6, 20, 8, 0);
 
-        appointment.setPatient(patient);
+        when(doctorRepository.findById(1L)).thenReturn(Optional.of(doctor));
 
-        when(doctorRepository.findById(doctorId)).thenReturn(Optional.of(doctor));
-        when(appointmentService.getDoctorAppointments(doctor, startOfDay, endOfDay)).thenReturn(List.of(appointment));
+        assertThrows(BadRequestException.class,
+                () -> doctorService.addAppointments(1L, startTime, startTime.plusHours(9), OverlapMode.REJECT));
+    }
+
+    @Test
+    void givenWindowStartingMidMinute_whenAddAppointments_thenThrowBadRequestException() {
+        LocalDateTime startTime = LocalDateTime.of(2023, 6, 20, 8, 0, 30);
+
+        when(doctorRepository.findById(1L)).thenReturn(Optional.of(doctor));
+
+        assertThrows(BadRequestException.class,
+                () -> doctorService.addAppointments(1L, startTime, startTime.plusHours(1), OverlapMode.REJECT));
+        verifyNoInteractions(appointmentService);
+    }
 
-        List<Appointment> appointments = doctorService.getDoctorAppointments(doctorId, date);
+    @Test
+    void givenRangeOfMaximumLength_whenGetDoctorForExport_thenReturnDoctor() {
+        LocalDateTime from = LocalDateTime.of(2023, 6, 1, 0, 0);
+
+        when(doctorRepository.findById(1L)).thenReturn(Optional.of(doctor));
 
-        assertFalse(appointments.isEmpty());
-        assertEquals("Some Who", appointments.get(0).getPatient().getName());
-        assertEquals("1234567890", appointments.get(0).getPatient().getPhone());
+        assertEquals(doctor, doctorService.getDoctorForExport(1L, from, from.plusDays(DoctorService.MAX_EXPORT_DAYS)));
+    }
+
+    @Test
+    void givenRangeLongerThanMaximum_whenGetDoctorForExport_thenThrowBadRequestException() {
+        LocalDateTime from = LocalDateTime.of(2023, 6, 1, 0, 0);
+
+        assertThrows(BadRequestException.class, () -> doctorService.getDoctorForExport(1L, from,
+                from.plusDays(DoctorService.MAX_EXPORT_DAYS).plusMinutes(1)));
+        assertThrows(BadRequestException.class, () -> doctorService.getDoctorForExport(1L, from, from));
     }
 
     @Test
@@ -144,4 +175,28 @@ class DoctorServiceTest {
         assertEquals("Cannot delete taken appointment", exception.getMessage());
     }
 
-}
\ No newline at end of file
+    @Test
+    void givenOptimisticLockFailureOnFirstAttempt_whenDeleteAppointment_thenRetry() {
+        Long appointmentId = 1L;
+
+        doThrow(new ObjectOptimisticLockingFailureException(Appointment.class, appointmentId))
+                .doNothing()
+                .when(appointmentService).deleteAppointment(appointmentId);
+
+        doctorService.deleteAppointment(appointmentId);
+
+        verify(appointmentService, times(2)).deleteAppointment(appointmentId);
+    }
+
+    @Test
+    void givenPersistentOptimisticLockFailure_whenDeleteAppointment_thenThrowConflictException() {
+        Long appointmentId = 1L;
+
+        doThrow(new ObjectOptimisticLockingFailureException(Appointment.class, appointmentId))
+                .when(appointmentService).deleteAppointment(appointmentId);
+
+        assertThrows(ConflictException.class, () -> doctorService.deleteAppointment(appointmentId));
+        verify(appointmentService, times(3)).deleteAppointment(appointmentId);
+    }
+
+}
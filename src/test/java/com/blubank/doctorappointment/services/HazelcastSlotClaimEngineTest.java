@@ -0,0 +1,169 @@
+package com.blubank.doctorappointment.services;
+
+import com.blubank.doctorappointment.config.HazelcastConfig;
+import com.blubank.doctorappointment.repositories.AppointmentRepository;
+import com.hazelcast.config.Config;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs three embedded members in one JVM, joined over TCP-IP as in production, with an
+ * engine per member standing in for three application nodes.
+ */
+@ExtendWith(MockitoExtension.class)
+class HazelcastSlotClaimEngineTest {
+    private static final int MEMBERS = 3;
+    private static final List<HazelcastInstance> members = new ArrayList<>();
+
+    @Mock
+    private AppointmentRepository appointmentRepository;
+
+    private final List<HazelcastSlotClaimEngine> engines = new ArrayList<>();
+
+    private static String clusterName;
+
+    @BeforeAll
+    static void startCluster() {
+        clusterName = "claims-" + UUID.randomUUID();
+        for (int i = 0; i < MEMBERS; i++) {
+            members.add(newMember());
+        }
+    }
+
+    private static HazelcastInstance newMember() {
+        Config config = new HazelcastConfig().hazelcast(60, clusterName, List.of("127.0.0.1"), 60);
+        config.setProperty("hazelcast.jmx", "false");
+        config.setProperty("hazelcast.wait.seconds.before.join", "0");
+        return Hazelcast.newHazelcastInstance(config);
+    }
+
+    @AfterAll
+    static void stopCluster() {
+        members.forEach(HazelcastInstance::shutdown);
+    }
+
+    @BeforeEach
+    void setUp() {
+        members.forEach(member -> engines.add(new HazelcastSlotClaimEngine(appointmentRepository, member, 60, 60)));
+        members.get(0).getMap(HazelcastSlotClaimEngine.CLAIMS_MAP).clear();
+    }
+
+    @Test
+    void givenCluster_thenAllMembersJoined() {
+        members.forEach(member -> assertEquals(MEMBERS, member.getCluster().getMembers().size()));
+    }
+
+    @Test
+    void givenSlotClaimedOnOneNode_whenClaimOnOtherNodes_thenReject() {
+        assertTrue(engines.get(0).tryClaim(42L));
+
+        assertFalse(engines.get(1).tryClaim(42L));
+        assertFalse(engines.get(2).tryClaim(42L));
+        assertTrue(engines.get(1).tryClaim(43L));
+    }
+
+    @Test
+    void givenClaimReleasedOnAnotherNode_whenClaimAgain_thenGrant() {
+        engines.get(0).tryClaim(42L);
+        engines.get(2).release(42L);
+
+        assertTrue(engines.get(1).tryClaim(42L));
+    }
+
+    @Test
+    void givenConcurrentClaimsOnAllNodes_thenEachSlotIsGrantedOnce() throws Exception {
+        int threads = 12;
+        int slots = 200;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> granted = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            SlotClaimEngine engine = engines.get(t % MEMBERS);
+            granted.add(executor.submit(() -> {
+                start.await();
+                int count = 0;
+                for (long id = 1; id <= slots; id++) {
+                    if (engine.tryClaim(id)) count++;
+                }
+                return count;
+            }));
+        }
+        start.countDown();
+
+        int total = 0;
+        for (Future<Integer> future : granted) {
+            total += future.get();
+        }
+        executor.shutdown();
+        assertEquals(slots, total);
+    }
+
+    @Test
+    void givenBookedSlotsInDatabase_whenRecover_thenNoNodeCanClaimThem() {
+        when(appointmentRepository.findBookedIdsFrom(any(LocalDateTime.class))).thenReturn(List.of(7L, 8L));
+
+        engines.get(0).recover();
+        engines.get(1).recover();
+
+        assertFalse(engines.get(2).tryClaim(7L));
+        assertFalse(engines.get(1).tryClaim(8L));
+        assertTrue(engines.get(0).tryClaim(9L));
+    }
+
+    @Test
+    void givenMemberHoldingAClaimIsKilled_whenClaimOnAnotherNode_thenGrant() throws Exception {
+        HazelcastInstance doomed = newMember();
+        SlotClaimEngine doomedEngine = new HazelcastSlotClaimEngine(appointmentRepository, doomed, 60, 60);
+        assertTrue(doomedEngine.tryClaim(42L));
+        assertTrue(doomedEngine.tryClaim(43L));
+        doomedEngine.commit(43L);
+        assertFalse(engines.get(1).tryClaim(42L));
+
+        doomed.getLifecycleService().terminate();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        boolean granted = engines.get(1).tryClaim(42L);
+        while (!granted && System.nanoTime() < deadline) {
+            Thread.sleep(100);
+            granted = engines.get(1).tryClaim(42L);
+        }
+        assertTrue(granted);
+        assertFalse(engines.get(2).tryClaim(43L));
+    }
+
+    @Test
+    void givenInFlightClaimOutlivesTheTimeout_whenClaimAgain_thenGrantButKeepCommittedClaims() throws Exception {
+        SlotClaimEngine shortLived = new HazelcastSlotClaimEngine(appointmentRepository, members.get(0), 1, 60);
+        assertTrue(shortLived.tryClaim(42L));
+        assertTrue(shortLived.tryClaim(43L));
+        shortLived.commit(43L);
+
+        Thread.sleep(2500);
+
+        assertTrue(engines.get(1).tryClaim(42L));
+        assertFalse(engines.get(2).tryClaim(43L));
+    }
+}
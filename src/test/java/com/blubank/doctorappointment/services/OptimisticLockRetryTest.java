@@ -0,0 +1,68 @@
+package com.blubank.doctorappointment.services;
+
+import com.blubank.doctorappointment.exceptions.AppointmentTakenException;
+import com.blubank.doctorappointment.models.Appointment;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class OptimisticLockRetryTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private OptimisticLockRetry optimisticLockRetry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        optimisticLockRetry = new OptimisticLockRetry(new AppointmentMetrics(meterRegistry), 3, 1, 2, 2, 1, 2);
+    }
+
+    @Test
+    void givenTransientFailures_whenExecute_thenRetryUntilSuccess() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = optimisticLockRetry.execute(AppointmentMetrics.BOOK, () -> {
+            if (attempts.incrementAndGet() < 3) throw new ObjectOptimisticLockingFailureException(Appointment.class, 1L);
+            return "booked";
+        });
+
+        assertEquals("booked", result);
+        assertEquals(3, attempts.get());
+        assertEquals(2, meterRegistry.get(AppointmentMetrics.OPTIMISTIC_LOCK_RETRIES)
+                .tag("operation", AppointmentMetrics.BOOK).summary().totalAmount());
+    }
+
+    @Test
+    void givenPersistentFailure_whenExecute_thenGiveUpAfterMaxAttempts() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThrows(ObjectOptimisticLockingFailureException.class,
+                () -> optimisticLockRetry.execute(AppointmentMetrics.DELETE, () -> {
+                    attempts.incrementAndGet();
+                    throw new ObjectOptimisticLockingFailureException(Appointment.class, 1L);
+                }));
+
+        assertEquals(2, attempts.get());
+        assertEquals(1, meterRegistry.get(AppointmentMetrics.OPTIMISTIC_LOCK_GIVE_UPS)
+                .tag("operation", AppointmentMetrics.DELETE).counter().count());
+    }
+
+    @Test
+    void givenTakenAppointmentOnRecheck_whenExecute_thenDoNotRetry() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThrows(AppointmentTakenException.class,
+                () -> optimisticLockRetry.execute(AppointmentMetrics.BOOK, () -> {
+                    attempts.incrementAndGet();
+                    throw new AppointmentTakenException("Appointment is already taken");
+                }));
+
+        assertEquals(1, attempts.get());
+    }
+}
@@ -0,0 +1,86 @@
+package com.blubank.doctorappointment.services;
+
+import com.blubank.doctorappointment.models.Patient;
+import com.blubank.doctorappointment.payloads.requests.CreatePatientDto;
+import com.blubank.doctorappointment.repositories.PatientRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * First bookings of the same new patient racing on a real database, each in its own transaction.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PatientRegistrationTest {
+    private static final int THREADS = 8;
+    private static final int PHONES = 50;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    private PatientService patientService;
+
+    @DynamicPropertySource
+    static void databaseProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> "jdbc:h2:mem:patient_registration;MODE=Oracle");
+        registry.add("spring.datasource.username", () -> "sa");
+        registry.add("spring.datasource.password", () -> "");
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "create-drop");
+    }
+
+    @BeforeEach
+    void setUp() {
+        patientRepository.deleteAll();
+        patientService = new PatientService(patientRepository, null, null, null, null, null, null);
+    }
+
+    @Test
+    void givenConcurrentFirstBookingsWithSamePhone_whenGetOrCreatePatient_thenAllGetTheOnePatient() throws Exception {
+        CyclicBarrier barrier = new CyclicBarrier(THREADS);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<List<Long>>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                List<Long> ids = new ArrayList<>();
+                for (int p = 0; p < PHONES; p++) {
+                    CreatePatientDto dto = new CreatePatientDto();
+                    dto.setName("Patient " + p);
+                    dto.setPhone(String.format("0912%07d", p));
+                    barrier.await();
+                    Patient patient = patientService.getOrCreatePatient(dto);
+                    ids.add(patient.getId());
+                }
+                return ids;
+            }));
+        }
+
+        List<List<Long>> ids = new ArrayList<>();
+        for (Future<List<Long>> future : futures) ids.add(future.get());
+        executor.shutdown();
+
+        assertEquals(PHONES, patientRepository.count());
+        for (int p = 0; p < PHONES; p++) {
+            Long id = patientRepository.findByPhone(String.format("0912%07d", p)).get().getId();
+            for (List<Long> threadIds : ids) {
+                assertEquals(id, threadIds.get(p));
+            }
+        }
+    }
+}
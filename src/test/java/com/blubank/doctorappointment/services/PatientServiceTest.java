@@ -7,18 +7,30 @@ import com.blubank.doctorappointment.models.Appointment;
 import com.blubank.doctorappointment.models.Patient;
 import com.blubank.doctorappointment.payloads.requests.CreatePatientDto;
 import com.blubank.doctorappointment.repositories.PatientRepository;
+import com.blubank.doctorappointment.repositories.projections.AppointmentSlot;
+import com.blubank.doctorappointment.repositories.projections.SlotLocation;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.orm.ObjectOptimisticLockingFailureException;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -33,6 +45,16 @@ class PatientServiceTest {
     private PatientRepository patientRepository;
     @Mock
     private AppointmentService appointmentService;
+    @Mock
+    private SlotClaimEngine slotClaimEngine;
+    @Spy
+    private AppointmentMetrics appointmentMetrics = new AppointmentMetrics(new SimpleMeterRegistry());
+    @Spy
+    private OptimisticLockRetry optimisticLockRetry = new OptimisticLockRetry(appointmentMetrics, 3, 0, 0, 3, 0, 0);
+    @Mock
+    private DoctorDaySummaryService doctorDaySummaryService;
+    @Mock
+    private ScheduleService scheduleService;
     @InjectMocks
     private PatientService patientService;
 
@@ -43,41 +65,42 @@ class PatientServiceTest {
     public void setUp() {
         doctorId = 1L;
         date = LocalDateTime.now();
+        lenient().when(slotClaimEngine.tryClaim(anyLong())).thenReturn(true);
     }
 
     @Test
     public void testGetDoctorAppointmentsForGivenDay_NoOpenAppointments() {
         // Arrange
-        when(appointmentService.getDoctorAppointmentsForPatient(anyLong(), any(LocalDateTime.class), any(LocalDateTime.class)))
-                .thenReturn(Collections.emptyList());
+        when(appointmentService.getDoctorAppointmentsForPatient(anyLong(), any(LocalDate.class)))
+                .thenReturn(DaySchedule.of(date.toLocalDate(), Collections.emptyList()));
 
         // Act
-        List<Appointment> openAppointments = patientService.getDoctorAppointments(doctorId, date);
+        DaySchedule openAppointments = patientService.getDoctorAppointments(doctorId, date);
 
         // Assert
         assertEquals(0, openAppointments.size());
         verify(appointmentService, times(1))
-                .getDoctorAppointmentsForPatient(anyLong(), any(LocalDateTime.class), any(LocalDateTime.class));
+                .getDoctorAppointmentsForPatient(anyLong(), any(LocalDate.class));
     }
     @Test
     public void testGetDoctorAppointmentsForGivenDay_WithOpenAppointments() {
         // Arrange
         LocalDateTime startOfDay = date.toLocalDate().atStartOfDay();
-        Appointment appointment = new Appointment();
-        appointment.setStartTime(startOfDay.plusHours(1));
-        appointment.setEndTime(startOfDay.plusHours(1).plusMinutes(30));
+        AppointmentSlot appointment = new AppointmentSlot(1L, startOfDay.plusHours(1),
+                startOfDay.plusHours(1).plusMinutes(30));
 
-        when(appointmentService.getDoctorAppointmentsForPatient(anyLong(), any(LocalDateTime.class), any(LocalDateTime.class)))
-                .thenReturn(List.of(appointment));
+        when(appointmentService.getDoctorAppointmentsForPatient(anyLong(), any(LocalDate.class)))
+                .thenReturn(DaySchedule.of(date.toLocalDate(), List.of(appointment)));
 
         // Act
-        List<Appointment> openAppointments = patientService.getDoctorAppointments(doctorId, date);
+        DaySchedule openAppointments = patientService.getDoctorAppointments(doctorId, date);
 
         // Assert
         assertEquals(1, openAppointments.size());
-        assertEquals(appointment, openAppointments.get(0));
+        assertEquals(1L, openAppointments.id(0));
+        assertEquals(appointment.getStartTime(), openAppointments.startTime(openAppointments.getStartOfDay(), 0));
         verify(appointmentService, times(1))
-                .getDoctorAppointmentsForPatient(anyLong(), any(LocalDateTime.class), any(LocalDateTime.class));
+                .getDoctorAppointmentsForPatient(anyLong(), any(LocalDate.class));
     }
 
     @Test
@@ -101,6 +124,15 @@ class PatientServiceTest {
                 () -> patientService.bookAppointment(1L, dto));
     }
     @Test
+    public void testBookScheduledSlot_MissingName() {
+        CreatePatientDto dto = new CreatePatientDto();
+        dto.setPhone("1234567890");
+
+        assertThrows(BadRequestException.class,
+                () -> patientService.bookScheduledSlot(doctorId, date, dto));
+        verifyNoInteractions(scheduleService);
+    }
+    @Test
     public void testBookAppointment_AppointmentAlreadyTaken() {
         // Arrange
         CreatePatientDto dto = new CreatePatientDto();
@@ -138,6 +170,7 @@ class PatientServiceTest {
        NotFoundException exception = assertThrows(NotFoundException.class,
                () -> patientService.bookAppointment(1L, dto));
        assertEquals("Appointment not found",exception.getMessage());
+       verify(slotClaimEngine, times(1)).release(1L);
     }
     @Test
     public void testBookAppointment_ConcurrencyIssue() {
@@ -159,6 +192,44 @@ class PatientServiceTest {
               () -> patientService.bookAppointment(1L, dto));
 
       assertEquals("Appointment is being modified by another transaction", exception.getMessage());
+      verify(appointmentService, times(3)).bookAppointment(anyLong(), any(Patient.class));
+      verify(slotClaimEngine, times(1)).release(1L);
+    }
+    @Test
+    public void testBookAppointment_RetriedAfterOptimisticLockFailure() {
+        CreatePatientDto dto = new CreatePatientDto();
+        dto.setName("bla bla bla");
+        dto.setPhone("1234567890");
+        Patient patient = new Patient();
+        patient.setName(dto.getName());
+        patient.setPhone(dto.getPhone());
+        Appointment booked = new Appointment();
+        booked.setPatient(patient);
+
+        when(patientRepository.findByPhone(dto.getPhone())).thenReturn(Optional.of(patient));
+        when(appointmentService.bookAppointment(1L, patient))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Appointment.class, 1L))
+                .thenReturn(booked);
+
+        assertSame(booked, patientService.bookAppointment(1L, dto));
+        verify(appointmentService, times(2)).bookAppointment(1L, patient);
+        verify(slotClaimEngine, never()).release(anyLong());
+        verify(slotClaimEngine).commit(1L);
+    }
+    @Test
+    public void testBookAppointment_ClaimedByConcurrentRequest() {
+        // Arrange
+        CreatePatientDto dto = new CreatePatientDto();
+        dto.setName("bla bla bla");
+        dto.setPhone("1234567890");
+        when(slotClaimEngine.tryClaim(1L)).thenReturn(false);
+
+        // Act & Assert
+        BadRequestException exception = assertThrows(BadRequestException.class,
+                () -> patientService.bookAppointment(1L, dto));
+
+        assertEquals("Appointment is already taken", exception.getMessage());
+        verifyNoInteractions(patientRepository, appointmentService);
     }
     @Test
     public void testBookAppointment_Success() {
@@ -184,15 +255,98 @@ class PatientServiceTest {
         assertEquals(appointment, bookedAppointment);
     }
     @Test
+    public void testBookAppointment_ReturningPatient_NoInsertAndSecondLookupIsCached() {
+        // Arrange
+        CreatePatientDto dto = new CreatePatientDto();
+        dto.setName("hoooommmm");
+        dto.setPhone("1234567890");
+        Patient patient = new Patient();
+        patient.setId(5L);
+        patient.setPhone(dto.getPhone());
+
+        when(patientRepository.findByPhone(dto.getPhone())).thenReturn(Optional.of(patient));
+        when(patientRepository.getReferenceById(5L)).thenReturn(patient);
+
+        // Act
+        patientService.bookAppointment(1L, dto);
+        patientService.bookAppointment(2L, dto);
+
+        // Assert
+        verify(patientRepository, times(1)).findByPhone(dto.getPhone());
+        verify(patientRepository, times(1)).getReferenceById(5L);
+        verify(patientRepository, never()).save(any(Patient.class));
+        verify(patientRepository, never()).insertIfAbsent(anyString(), anyString());
+        verify(appointmentService, times(2)).bookAppointment(anyLong(), eq(patient));
+    }
+    @Test
+    public void testBookAppointment_NewPatient_InsertedOnceWithMerge() {
+        // Arrange
+        CreatePatientDto dto = new CreatePatientDto();
+        dto.setName("hoooommmm");
+        dto.setPhone("1234567890");
+        Patient patient = new Patient();
+        patient.setId(5L);
+        patient.setPhone(dto.getPhone());
+
+        when(patientRepository.findByPhone(dto.getPhone()))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(patient));
+
+        // Act
+        patientService.bookAppointment(1L, dto);
+
+        // Assert
+        verify(patientRepository, times(1)).insertIfAbsent(dto.getPhone(), dto.getName());
+        verify(patientRepository, never()).save(any(Patient.class));
+        verify(appointmentService, times(1)).bookAppointment(1L, patient);
+    }
+    @Test
+    public void testBookAppointment_NewPatient_ConcurrentInsertWinsTheUniquePhone() {
+        // Arrange
+        CreatePatientDto dto = new CreatePatientDto();
+        dto.setName("hoooommmm");
+        dto.setPhone("1234567890");
+        Patient patient = new Patient();
+        patient.setId(5L);
+        patient.setPhone(dto.getPhone());
+
+        when(patientRepository.findByPhone(dto.getPhone()))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(patient));
+        when(patientRepository.insertIfAbsent(dto.getPhone(), dto.getName()))
+                .thenThrow(new DataIntegrityViolationException("unique phone"));
+
+        // Act
+        patientService.bookAppointment(1L, dto);
+
+        // Assert
+        verify(appointmentService, times(1)).bookAppointment(1L, patient);
+        verify(slotClaimEngine, never()).release(anyLong());
+    }
+    @Test
+    public void testCreate_DuplicatePhone() {
+        CreatePatientDto dto = new CreatePatientDto();
+        dto.setName("hoooommmm");
+        dto.setPhone("1234567890");
+        when(patientRepository.save(any(Patient.class))).thenThrow(new DataIntegrityViolationException("uk_patient_phone"));
+
+        ConflictException exception = assertThrows(ConflictException.class, () -> patientService.create(dto));
+        assertEquals("Patient with this phone already exists", exception.getMessage());
+    }
+    @Test
     public void testGetPatientAppointments_NoAppointments() {
         // Arrange
         String phoneNumber = "1234567890";
         Patient patient = new Patient();
+        patient.setId(1L);
         patient.setPhone(phoneNumber);
 
         when(patientRepository.findByPhone(phoneNumber)).thenReturn(Optional.of(patient));
+        when(appointmentService.getPatientAppointments(eq(1L), isNull(), any(LocalDateTime.class),
+                any(LocalDateTime.class), eq(50)))
+                .thenReturn(new SliceImpl<>(Collections.emptyList()));
 
-        List<Appointment> appointments = patientService.getPatientAppointments(phoneNumber);
+        Slice<Appointment> appointments = patientService.getPatientAppointments(phoneNumber, null, null, null, 50);
 
         assertTrue(appointments.isEmpty());
 
@@ -203,20 +357,71 @@ class PatientServiceTest {
         // Arrange
         String phoneNumber = "1234567890";
         Patient patient = new Patient();
+        patient.setId(1L);
         patient.setPhone(phoneNumber);
+        LocalDateTime from = LocalDateTime.of(2023, 6, 1, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2023, 7, 1, 0, 0);
 
         Appointment appointment1 = new Appointment();
         Appointment appointment2 = new Appointment();
-        patient.setAppointments(List.of(appointment1, appointment2));
 
         when(patientRepository.findByPhone(phoneNumber)).thenReturn(Optional.of(patient));
+        when(appointmentService.getPatientAppointments(1L, null, from, to, 2))
+                .thenReturn(new SliceImpl<>(List.of(appointment1, appointment2), PageRequest.of(0, 2), true));
 
         // Act
-        List<Appointment> appointments = patientService.getPatientAppointments(phoneNumber);
+        Slice<Appointment> appointments = patientService.getPatientAppointments(phoneNumber, null, from, to, 2);
 
         // Assert
-        assertEquals(2, appointments.size());
-        assertEquals(List.of(appointment1, appointment2), appointments);
+        assertEquals(List.of(appointment1, appointment2), appointments.getContent());
+        assertTrue(appointments.hasNext());
         verify(patientRepository, times(1)).findByPhone(phoneNumber);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testGetPatientAppointments_PageSizeTooLarge() {
+        assertThrows(BadRequestException.class,
+                () -> patientService.getPatientAppointments("1234567890", null, null, null, 201));
+        verify(patientRepository, never()).findByPhone(anyString());
+    }
+
+    @Test
+    public void testSearchOpenSlots_DuplicateDoctorIdsAreSearchedOnce() {
+        // Arrange
+        LocalDateTime from = LocalDateTime.of(2023, 6, 1, 0, 0);
+        LocalDateTime to = from.plusDays(7);
+        SlotLocation slot = new SlotLocation(2L, 10L, from.plusHours(9), from.plusHours(9).plusMinutes(30));
+        when(appointmentService.getEarliestOpenSlots(Set.of(1L, 2L), from, to, 20)).thenReturn(List.of(slot));
+
+        // Act
+        List<SlotLocation> slots = patientService.searchOpenSlots(from, to, List.of(1L, 2L, 1L), 20);
+
+        // Assert
+        assertEquals(List.of(slot), slots);
+    }
+
+    @Test
+    public void testSearchOpenSlots_NoDoctorIdsSearchesAllDoctors() {
+        LocalDateTime from = LocalDateTime.of(2023, 6, 1, 0, 0);
+
+        patientService.searchOpenSlots(from, from.plusDays(1), null, 20);
+
+        verify(appointmentService, times(1)).getEarliestOpenSlots(Set.of(), from, from.plusDays(1), 20);
+    }
+
+    @Test
+    public void testSearchOpenSlots_UnboundedRequestsAreRejected() {
+        LocalDateTime from = LocalDateTime.of(2023, 6, 1, 0, 0);
+
+        assertThrows(BadRequestException.class, () -> patientService.searchOpenSlots(from, from, null, 20));
+        assertThrows(BadRequestException.class, () -> patientService.searchOpenSlots(from,
+                from.plusDays(PatientService.MAX_SEARCH_DAYS + 1), null, 20));
+        assertThrows(BadRequestException.class, () -> patientService.searchOpenSlots(from, from.plusDays(1), null,
+                PatientService.MAX_SEARCH_RESULTS + 1));
+        List<Long> tooManyDoctors = LongStream.rangeClosed(1, PatientService.MAX_SEARCH_DOCTORS + 1)
+                .boxed().collect(Collectors.toList());
+        assertThrows(BadRequestException.class,
+                () -> patientService.searchOpenSlots(from, from.plusDays(1), tooManyDoctors, 20));
+        verifyNoInteractions(appointmentService);
+    }
+}
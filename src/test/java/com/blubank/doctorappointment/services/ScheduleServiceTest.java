@@ -0,0 +1,170 @@
+package com.blubank.doctorappointment.services;
+
+import com.blubank.doctorappointment.exceptions.AppointmentTakenException;
+import com.blubank.doctorappointment.exceptions.BadRequestException;
+import com.blubank.doctorappointment.exceptions.NotFoundException;
+import com.blubank.doctorappointment.models.Appointment;
+import com.blubank.doctorappointment.models.Doctor;
+import com.blubank.doctorappointment.models.Patient;
+import com.blubank.doctorappointment.payloads.requests.ScheduleExceptionDto;
+import com.blubank.doctorappointment.payloads.requests.ScheduleWindowDto;
+import com.blubank.doctorappointment.repositories.AppointmentRepository;
+import com.blubank.doctorappointment.repositories.DoctorRepository;
+import com.blubank.doctorappointment.repositories.ScheduleExceptionRepository;
+import com.blubank.doctorappointment.repositories.ScheduleWindowRepository;
+import com.blubank.doctorappointment.repositories.SlotPolicyRepository;
+import com.blubank.doctorappointment.repositories.projections.SlotLocation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import javax.persistence.EntityManager;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class ScheduleServiceTest {
+    // a Monday
+    private static final LocalDate MONDAY = LocalDate.of(2023, 6, 19);
+
+    @Autowired
+    private ScheduleWindowRepository windowRepository;
+    @Autowired
+    private ScheduleExceptionRepository exceptionRepository;
+    @Autowired
+    private DoctorRepository doctorRepository;
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+    @Autowired
+    private SlotPolicyRepository slotPolicyRepository;
+    @Autowired
+    private EntityManager entityManager;
+
+    private ScheduleService scheduleService;
+    private AvailabilityCache availabilityCache;
+    private DoctorDaySummaryService doctorDaySummaryService;
+    private Doctor doctor;
+    private Patient patient;
+
+    @DynamicPropertySource
+    static void databaseProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> "jdbc:h2:mem:doctor_appointment;MODE=Oracle");
+        registry.add("spring.datasource.username", () -> "sa");
+        registry.add("spring.datasource.password", () -> "");
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "create-drop");
+    }
+
+    @BeforeEach
+    void setUp() {
+        availabilityCache = mock(AvailabilityCache.class);
+        doctorDaySummaryService = mock(DoctorDaySummaryService.class);
+        scheduleService = new ScheduleService(windowRepository, exceptionRepository, doctorRepository,
+                appointmentRepository, new SlotPolicyService(slotPolicyRepository, doctorRepository),
+                new SlotGenerator(1), availabilityCache, doctorDaySummaryService);
+        doctor = new Doctor();
+        doctor.setName("Jane Smith");
+        entityManager.persist(doctor);
+        patient = new Patient();
+        patient.setName("John Doe");
+        patient.setPhone("1234567890");
+        entityManager.persist(patient);
+        scheduleService.replaceWeeklySchedule(doctor.getId(), List.of(
+                new ScheduleWindowDto(DayOfWeek.MONDAY, LocalTime.of(9, 0), LocalTime.of(11, 0)),
+                new ScheduleWindowDto(DayOfWeek.MONDAY, LocalTime.of(14, 0), LocalTime.of(15, 15))));
+    }
+
+    @Test
+    void givenWeeklyWindows_whenGetOpenSlots_thenWindowsAreSplitWithoutWritingAppointments() {
+        List<SlotLocation> slots = scheduleService.getOpenSlots(doctor.getId(), MONDAY);
+
+        assertEquals(List.of("09:00", "09:30", "10:00", "10:30", "14:00", "14:30"), startTimes(slots));
+        assertNull(slots.get(0).getId());
+        assertEquals(0, appointmentRepository.count());
+        assertTrue(scheduleService.getOpenSlots(doctor.getId(), MONDAY.plusDays(1)).isEmpty());
+    }
+
+    @Test
+    void givenExceptionsAndAppointments_whenGetOpenSlots_thenTheirSlotsAreNotOffered() {
+        scheduleService.addException(doctor.getId(),
+                new ScheduleExceptionDto(MONDAY, LocalTime.of(9, 15), LocalTime.of(10, 0)));
+        Appointment explicit = new Appointment();
+        explicit.setDoctor(doctor);
+        explicit.setStartTime(MONDAY.atTime(14, 10));
+        explicit.setEndTime(MONDAY.atTime(14, 40));
+        entityManager.persist(explicit);
+
+        List<SlotLocation> slots = scheduleService.getOpenSlots(doctor.getId(), MONDAY);
+
+        assertEquals(List.of("10:00", "10:30"), startTimes(slots));
+    }
+
+    @Test
+    void givenWholeDayException_whenGetOpenSlots_thenNothingIsOffered() {
+        scheduleService.addException(doctor.getId(), new ScheduleExceptionDto(MONDAY, null, null));
+
+        assertTrue(scheduleService.getOpenSlots(doctor.getId(), MONDAY).isEmpty());
+        assertThrows(NotFoundException.class,
+                () -> scheduleService.bookSlot(doctor.getId(), MONDAY.atTime(9, 0), patient));
+    }
+
+    @Test
+    void whenBookSlot_thenOnlyThatSlotIsMaterialized() {
+        LocalDateTime startTime = MONDAY.atTime(10, 0);
+
+        Appointment booked = scheduleService.bookSlot(doctor.getId(), startTime, patient);
+
+        assertEquals(1, appointmentRepository.count());
+        assertEquals(patient, booked.getPatient());
+        assertEquals(startTime.plusMinutes(30), booked.getEndTime());
+        assertEquals(5, scheduleService.getOpenSlots(doctor.getId(), MONDAY).size());
+        verify(availabilityCache).invalidate(doctor.getId(), MONDAY);
+        verify(doctorDaySummaryService).slotsAdded(doctor, List.of(booked));
+        verify(doctorDaySummaryService).slotBooked(doctor.getId(), startTime);
+        assertThrows(AppointmentTakenException.class,
+                () -> scheduleService.bookSlot(doctor.getId(), startTime, patient));
+    }
+
+    @Test
+    void givenTimeOffTheSlotGrid_whenBookSlot_thenNotFound() {
+        assertThrows(NotFoundException.class,
+                () -> scheduleService.bookSlot(doctor.getId(), MONDAY.atTime(9, 10), patient));
+        assertThrows(NotFoundException.class,
+                () -> scheduleService.bookSlot(doctor.getId(), MONDAY.atTime(15, 0), patient));
+    }
+
+    @Test
+    void givenInvalidWindows_whenReplaceWeeklySchedule_thenBadRequest() {
+        assertThrows(BadRequestException.class, () -> scheduleService.replaceWeeklySchedule(doctor.getId(), List.of(
+                new ScheduleWindowDto(DayOfWeek.FRIDAY, LocalTime.of(9, 0), LocalTime.of(12, 0)),
+                new ScheduleWindowDto(DayOfWeek.FRIDAY, LocalTime.of(11, 0), LocalTime.of(13, 0)))));
+        assertThrows(BadRequestException.class, () -> scheduleService.replaceWeeklySchedule(doctor.getId(), List.of(
+                new ScheduleWindowDto(DayOfWeek.FRIDAY, LocalTime.of(9, 0), LocalTime.of(9, 0)))));
+        assertThrows(BadRequestException.class, () -> scheduleService.replaceWeeklySchedule(doctor.getId(), List.of(
+                new ScheduleWindowDto(DayOfWeek.FRIDAY, LocalTime.of(9, 0), null))));
+        assertThrows(BadRequestException.class, () -> scheduleService.replaceWeeklySchedule(doctor.getId(), List.of(
+                new ScheduleWindowDto(DayOfWeek.FRIDAY, LocalTime.of(9, 0, 30), LocalTime.of(12, 0)))));
+        assertEquals(2, scheduleService.getWeeklySchedule(doctor.getId()).size());
+    }
+
+    private static List<String> startTimes(List<SlotLocation> slots) {
+        return slots.stream()
+                .map(slot -> slot.getStartTime().toLocalTime().toString())
+                .collect(Collectors.toList());
+    }
+}
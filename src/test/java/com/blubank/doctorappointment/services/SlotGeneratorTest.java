@@ -0,0 +1,104 @@
+package com.blubank.doctorappointment.services;
+
+import com.blubank.doctorappointment.models.Appointment;
+import com.blubank.doctorappointment.models.BreakWindow;
+import com.blubank.doctorappointment.models.Doctor;
+import com.blubank.doctorappointment.models.SlotPolicy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SlotGeneratorTest {
+    private static final LocalDateTime MORNING = LocalDateTime.of(2023, 6, 20, 9, 0);
+
+    private final SlotGenerator slotGenerator = new SlotGenerator(4);
+    private final Doctor doctor = new Doctor();
+
+    @AfterEach
+    void tearDown() {
+        slotGenerator.shutdown();
+    }
+
+    @Test
+    void givenDefaultPolicy_whenGenerate_then30MinuteSlotsBackToBack() {
+        List<Appointment> slots = slotGenerator.generate(doctor, SlotPolicy.defaults(1L), MORNING, MORNING.plusMinutes(100));
+
+        assertEquals(List.of("09:00-09:30", "09:30-10:00", "10:00-10:30"), times(slots));
+        assertSame(doctor, slots.get(0).getDoctor());
+    }
+
+    @Test
+    void givenDurationAndBuffer_whenGenerate_thenBufferIsLeftAfterEverySlot() {
+        SlotPolicy policy = policy(20, 10);
+
+        List<Appointment> slots = slotGenerator.generate(doctor, policy, MORNING, MORNING.plusHours(1).plusMinutes(20));
+
+        assertEquals(List.of("09:00-09:20", "09:30-09:50", "10:00-10:20"), times(slots));
+    }
+
+    @Test
+    void givenBreak_whenGenerate_thenSlotsResumeWhenTheBreakEnds() {
+        SlotPolicy policy = policy(30, 0);
+        policy.getBreaks().add(new BreakWindow(LocalTime.of(10, 15), LocalTime.of(10, 45)));
+
+        List<Appointment> slots = slotGenerator.generate(doctor, policy, MORNING, MORNING.plusHours(3));
+
+        assertEquals(List.of("09:00-09:30", "09:30-10:00", "10:45-11:15", "11:15-11:45"), times(slots));
+    }
+
+    @Test
+    void givenWindowPastMidnight_whenGenerate_thenNextDaysBreakIsSkippedToo() {
+        SlotPolicy policy = policy(60, 0);
+        policy.getBreaks().add(new BreakWindow(LocalTime.of(0, 30), LocalTime.of(1, 0)));
+        LocalDateTime lateEvening = LocalDateTime.of(2023, 6, 20, 22, 0);
+
+        List<Appointment> slots = slotGenerator.generate(doctor, policy, lateEvening, lateEvening.plusHours(5));
+
+        assertEquals(List.of("22:00-23:00", "23:00-00:00", "01:00-02:00", "02:00-03:00"), times(slots));
+        assertEquals(lateEvening.plusHours(3), slots.get(2).getStartTime());
+    }
+
+    @Test
+    void givenManyRequests_whenGenerateAll_thenResultsAreInRequestOrder() {
+        List<SlotGenerator.Request> requests = new ArrayList<>();
+        for (int day = 0; day < 50; day++) {
+            requests.add(new SlotGenerator.Request(doctor, policy(15, 0), MORNING.plusDays(day),
+                    MORNING.plusDays(day).plusHours(8)));
+        }
+
+        List<List<Appointment>> generated = slotGenerator.generateAll(requests);
+
+        assertEquals(50, generated.size());
+        for (int day = 0; day < 50; day++) {
+            assertEquals(32, generated.get(day).size());
+            assertEquals(MORNING.plusDays(day), generated.get(day).get(0).getStartTime());
+        }
+    }
+
+    @Test
+    void givenWindowShorterThanASlot_whenGenerate_thenNoSlots() {
+        assertTrue(slotGenerator.generate(doctor, policy(45, 0), MORNING, MORNING.plusMinutes(30)).isEmpty());
+    }
+
+    private static SlotPolicy policy(int slotMinutes, int bufferMinutes) {
+        SlotPolicy policy = SlotPolicy.defaults(1L);
+        policy.setSlotMinutes(slotMinutes);
+        policy.setBufferMinutes(bufferMinutes);
+        return policy;
+    }
+
+    private static List<String> times(List<Appointment> slots) {
+        return slots.stream()
+                .map(slot -> slot.getStartTime().toLocalTime() + "-" + slot.getEndTime().toLocalTime())
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,68 @@
+package com.blubank.doctorappointment.services;
+
+import com.blubank.doctorappointment.exceptions.BadRequestException;
+import com.blubank.doctorappointment.models.SlotPolicy;
+import com.blubank.doctorappointment.payloads.requests.BreakWindowDto;
+import com.blubank.doctorappointment.payloads.requests.SlotPolicyDto;
+import com.blubank.doctorappointment.repositories.DoctorRepository;
+import com.blubank.doctorappointment.repositories.SlotPolicyRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SlotPolicyServiceTest {
+
+    @Mock
+    private SlotPolicyRepository slotPolicyRepository;
+    @Mock
+    private DoctorRepository doctorRepository;
+    @InjectMocks
+    private SlotPolicyService slotPolicyService;
+
+    @Test
+    void givenBreakWithSeconds_whenUpdatePolicy_thenThrowBadRequestException() {
+        SlotPolicyDto dto = new SlotPolicyDto(30, 0,
+                List.of(new BreakWindowDto(LocalTime.of(12, 0, 30), LocalTime.of(13, 0))));
+
+        assertThrows(BadRequestException.class, () -> slotPolicyService.updatePolicy(1L, dto));
+        verifyNoInteractions(slotPolicyRepository, doctorRepository);
+    }
+
+    @Test
+    void givenBreakEndWithNanos_whenUpdatePolicy_thenThrowBadRequestException() {
+        SlotPolicyDto dto = new SlotPolicyDto(30, 0,
+                List.of(new BreakWindowDto(LocalTime.of(12, 0), LocalTime.of(13, 0, 0, 1))));
+
+        assertThrows(BadRequestException.class, () -> slotPolicyService.updatePolicy(1L, dto));
+    }
+
+    @Test
+    void givenBreaksOutOfOrder_whenUpdatePolicy_thenStoredSortedByStart() {
+        when(doctorRepository.existsById(1L)).thenReturn(true);
+        when(slotPolicyRepository.findById(1L)).thenReturn(Optional.empty());
+        when(slotPolicyRepository.save(any(SlotPolicy.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        SlotPolicyDto dto = new SlotPolicyDto(20, 5, List.of(
+                new BreakWindowDto(LocalTime.of(15, 0), LocalTime.of(15, 15)),
+                new BreakWindowDto(LocalTime.of(12, 0), LocalTime.of(13, 0))));
+
+        SlotPolicy policy = slotPolicyService.updatePolicy(1L, dto);
+
+        assertEquals(20, policy.getSlotMinutes());
+        assertEquals(5, policy.getBufferMinutes());
+        assertEquals(LocalTime.of(12, 0), policy.getBreaks().get(0).getStartTime());
+        assertEquals(LocalTime.of(15, 0), policy.getBreaks().get(1).getStartTime());
+    }
+}
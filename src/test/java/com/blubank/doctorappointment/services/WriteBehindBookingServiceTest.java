@@ -0,0 +1,271 @@
+package com.blubank.doctorappointment.services;
+
+import com.blubank.doctorappointment.exceptions.AppointmentTakenException;
+import com.blubank.doctorappointment.exceptions.BadRequestException;
+import com.blubank.doctorappointment.exceptions.NotFoundException;
+import com.blubank.doctorappointment.models.Appointment;
+import com.blubank.doctorappointment.models.Patient;
+import com.blubank.doctorappointment.payloads.requests.CreatePatientDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class WriteBehindBookingServiceTest {
+
+    @Mock
+    private PatientService patientService;
+    @Mock
+    private AppointmentService appointmentService;
+    @Mock
+    private SlotClaimEngine slotClaimEngine;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    Path directory;
+
+    private WriteBehindBookingService service;
+    private Patient patient;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        service = newService();
+        patient = new Patient();
+        patient.setId(1L);
+        patient.setPhone("1234567890");
+        lenient().when(slotClaimEngine.tryClaim(anyLong())).thenReturn(true);
+        lenient().when(patientService.getOrCreatePatient(any(CreatePatientDto.class))).thenReturn(patient);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        service.stop();
+    }
+
+    @Test
+    void givenMissingPhone_whenAccept_thenThrowBadRequestException() {
+        CreatePatientDto dto = new CreatePatientDto();
+        dto.setName("John Doe");
+
+        assertThrows(BadRequestException.class, () -> service.accept(1L, dto));
+        verifyNoInteractions(slotClaimEngine);
+    }
+
+    @Test
+    void givenClaimedSlot_whenAccept_thenRejectWithoutTicket() {
+        when(slotClaimEngine.tryClaim(1L)).thenReturn(false);
+
+        assertThrows(AppointmentTakenException.class, () -> service.accept(1L, dto("1234567890")));
+        assertThrows(NotFoundException.class, () -> service.getTicket(1));
+    }
+
+    @Test
+    void givenAcceptedRequests_whenApplied_thenBookedInTicketOrderAndTicketsComplete() {
+        BookingTicket first = service.accept(1L, dto("1234567890"));
+        BookingTicket second = service.accept(2L, dto("1234567890"));
+        assertEquals(BookingTicket.Status.PENDING, service.getTicket(first.getTicket()).getStatus());
+
+        service.apply(entries(first, second));
+
+        InOrder inOrder = inOrder(appointmentService);
+        inOrder.verify(appointmentService).bookIfOpen(1L, patient);
+        inOrder.verify(appointmentService).bookIfOpen(2L, patient);
+        assertEquals(BookingTicket.Status.BOOKED, service.getTicket(first.getTicket()).getStatus());
+        assertEquals(BookingTicket.Status.BOOKED, service.getTicket(second.getTicket()).getStatus());
+        verify(transactionManager, times(1)).commit(any());
+    }
+
+    @Test
+    void givenSlotTakenByAnotherPatient_whenApplied_thenRejectedAndClaimKept() {
+        BookingTicket ticket = service.accept(1L, dto("1234567890"));
+        Patient other = new Patient();
+        other.setPhone("1234567899");
+        Appointment appointment = new Appointment();
+        appointment.setPatient(other);
+        when(appointmentService.bookIfOpen(1L, patient)).thenThrow(new AppointmentTakenException("Appointment is already taken"));
+        when(appointmentService.getAppointment(1L)).thenReturn(appointment);
+
+        service.apply(entries(ticket));
+
+        BookingTicket state = service.getTicket(ticket.getTicket());
+        assertEquals(BookingTicket.Status.REJECTED, state.getStatus());
+        assertEquals("Appointment is already taken", state.getMessage());
+        verify(slotClaimEngine, never()).release(anyLong());
+        verify(slotClaimEngine).commit(1L);
+    }
+
+    @Test
+    void givenFailingBatch_whenApplied_thenOtherRequestsAreStillBooked() {
+        BookingTicket first = service.accept(1L, dto("1234567890"));
+        BookingTicket second = service.accept(2L, dto("1234567890"));
+        lenient().when(appointmentService.bookIfOpen(2L, patient)).thenThrow(new IllegalStateException("constraint violated"));
+
+        service.apply(entries(first, second));
+
+        assertEquals(BookingTicket.Status.BOOKED, service.getTicket(first.getTicket()).getStatus());
+        BookingTicket failed = service.getTicket(second.getTicket());
+        assertEquals(BookingTicket.Status.FAILED, failed.getStatus());
+        assertEquals("constraint violated", failed.getMessage());
+        verify(slotClaimEngine).release(2L);
+    }
+
+    @Test
+    void givenNoJournalDirectory_whenCreated_thenFailFast() {
+        IllegalStateException exception = assertThrows(IllegalStateException.class, () -> new WriteBehindBookingService(
+                patientService, appointmentService, slotClaimEngine, new TransactionTemplate(transactionManager),
+                "", 4096, false, 100, 1000, 3));
+
+        assertTrue(exception.getMessage().contains("appointment.booking.write-behind.dir"));
+    }
+
+    @Test
+    void givenDatabaseOutage_whenApplied_thenBatchStaysPendingAndIsNotCheckpointed() throws Exception {
+        BookingTicket ticket = service.accept(1L, dto("1234567890"));
+        when(appointmentService.bookIfOpen(1L, patient))
+                .thenThrow(new TransientDataAccessResourceException("connection refused"));
+
+        assertThrows(TransientDataAccessResourceException.class, () -> service.apply(entries(ticket)));
+
+        assertEquals(BookingTicket.Status.PENDING, service.getTicket(ticket.getTicket()).getStatus());
+        verify(slotClaimEngine, never()).release(anyLong());
+        service.stop();
+        reset(appointmentService);
+        service = newService();
+        service.start();
+        assertEquals(BookingTicket.Status.BOOKED, awaitCompletion(service, ticket.getTicket()).getStatus());
+    }
+
+    @Test
+    void givenPatientLookupOutage_whenApplying_thenApplierRetriesTheBatch() throws Exception {
+        when(patientService.getOrCreatePatient(any(CreatePatientDto.class)))
+                .thenThrow(new CannotCreateTransactionException("connection refused"))
+                .thenReturn(patient);
+        service.start();
+
+        BookingTicket ticket = service.accept(1L, dto("1234567890"));
+
+        assertEquals(BookingTicket.Status.BOOKED, awaitCompletion(service, ticket.getTicket()).getStatus());
+        verify(patientService, times(2)).getOrCreatePatient(any(CreatePatientDto.class));
+        verify(appointmentService, times(1)).bookIfOpen(1L, patient);
+        verify(slotClaimEngine, never()).release(anyLong());
+    }
+
+    @Test
+    void givenOutageOutlastingAttempts_whenApplying_thenBatchFailsAndIsCheckpointed() throws Exception {
+        when(patientService.getOrCreatePatient(any(CreatePatientDto.class)))
+                .thenThrow(new CannotCreateTransactionException("connection refused"));
+        service.start();
+
+        BookingTicket ticket = service.accept(1L, dto("1234567890"));
+
+        assertEquals(BookingTicket.Status.FAILED, awaitCompletion(service, ticket.getTicket()).getStatus());
+        verify(patientService, times(3)).getOrCreatePatient(any(CreatePatientDto.class));
+        verify(slotClaimEngine).release(1L);
+        service.stop();
+        service = newService();
+        service.start();
+        assertThrows(NotFoundException.class, () -> service.getTicket(ticket.getTicket()));
+    }
+
+    @Test
+    void givenFailures_whenIsTransient_thenOnlyFailuresThatMayClearUpAreRetried() {
+        assertTrue(WriteBehindBookingService.isTransient(new QueryTimeoutException("timeout")));
+        assertTrue(WriteBehindBookingService.isTransient(new CannotCreateTransactionException("connection refused")));
+        assertFalse(WriteBehindBookingService.isTransient(new DataAccessResourceFailureException("table missing")));
+        assertFalse(WriteBehindBookingService.isTransient(new DataIntegrityViolationException("constraint violated")));
+        assertFalse(WriteBehindBookingService.isTransient(new IllegalStateException("bug")));
+    }
+
+    @Test
+    void givenMoreTicketsThanKept_whenAccept_thenOldestTicketIsForgotten() throws Exception {
+        service.stop();
+        service = new WriteBehindBookingService(patientService, appointmentService, slotClaimEngine,
+                new TransactionTemplate(transactionManager), directory.toString(), 4096, false, 100, 2, 3);
+
+        BookingTicket first = service.accept(1L, dto("1234567890"));
+        BookingTicket second = service.accept(2L, dto("1234567890"));
+        BookingTicket third = service.accept(3L, dto("1234567890"));
+
+        assertThrows(NotFoundException.class, () -> service.getTicket(first.getTicket()));
+        assertEquals(BookingTicket.Status.PENDING, service.getTicket(second.getTicket()).getStatus());
+        assertEquals(BookingTicket.Status.PENDING, service.getTicket(third.getTicket()).getStatus());
+    }
+
+    @Test
+    void givenUnappliedRequestsAtShutdown_whenRestarted_thenReplayed() throws Exception {
+        BookingTicket first = service.accept(1L, dto("1234567890"));
+        BookingTicket applied = service.accept(2L, dto("1234567890"));
+        BookingTicket crashed = service.accept(3L, dto("1234567890"));
+        BookingTicket notApplied = service.accept(4L, dto("1234567890"));
+        service.apply(entries(first, applied));
+        // the booking of ticket 3 committed but the process died before the checkpoint
+        Appointment bookedBeforeCrash = new Appointment();
+        bookedBeforeCrash.setPatient(patient);
+        when(appointmentService.bookIfOpen(3L, patient)).thenThrow(new AppointmentTakenException("Appointment is already taken"));
+        when(appointmentService.getAppointment(3L)).thenReturn(bookedBeforeCrash);
+
+        WriteBehindBookingService restarted = newService();
+        try {
+            restarted.start();
+
+            assertEquals(BookingTicket.Status.BOOKED, awaitCompletion(restarted, crashed.getTicket()).getStatus());
+            assertEquals(BookingTicket.Status.BOOKED, awaitCompletion(restarted, notApplied.getTicket()).getStatus());
+            verify(appointmentService, times(1)).bookIfOpen(4L, patient);
+            verify(appointmentService, times(1)).bookIfOpen(2L, patient);
+            assertThrows(NotFoundException.class, () -> restarted.getTicket(applied.getTicket()));
+        } finally {
+            restarted.stop();
+        }
+    }
+
+    private WriteBehindBookingService newService() throws IOException {
+        return new WriteBehindBookingService(patientService, appointmentService, slotClaimEngine,
+                new TransactionTemplate(transactionManager), directory.toString(), 4096, false, 100, 1000, 3);
+    }
+
+    private static BookingTicket awaitCompletion(WriteBehindBookingService service, long ticket) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            BookingTicket state = service.getTicket(ticket);
+            if (state.getStatus() != BookingTicket.Status.PENDING) return state;
+            Thread.sleep(50);
+        }
+        return fail("ticket " + ticket + " was never applied");
+    }
+
+    private static List<BookingJournal.Entry> entries(BookingTicket... tickets) {
+        return Arrays.stream(tickets)
+                .map(t -> new BookingJournal.Entry(t.getTicket(), t.getAppointmentId(), "John Doe", "1234567890"))
+                .collect(Collectors.toList());
+    }
+
+    private static CreatePatientDto dto(String phone) {
+        CreatePatientDto dto = new CreatePatientDto();
+        dto.setName("John Doe");
+        dto.setPhone(phone);
+        return dto;
+    }
+}